@@ -0,0 +1,84 @@
+package com.example.fakegeigercounter;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Handler;
+
+/**
+ * GattLink sopra BluetoothGatt. Ogni connessione usa un nuovo BluetoothGatt
+ * (autoConnect=false è molto più rapido); gli eventi di connessione vengono
+ * riportati sul thread dell'Handler, le letture RSSI direttamente dal thread Binder.
+ * I permessi Bluetooth vanno verificati prima di usarlo.
+ */
+@SuppressLint("MissingPermission")
+public class AndroidGattLink implements GattLink {
+    private final Context context;
+    private final BluetoothDevice device;
+    private final Handler handler;
+    private volatile BluetoothGatt gatt;
+
+    public AndroidGattLink(Context context, BluetoothDevice device, Handler handler) {
+        this.context = context.getApplicationContext();
+        this.device = device;
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean connect(Callback callback) {
+        close();
+        gatt = device.connectGatt(context, false, new BluetoothGattCallback() {
+            @Override
+            public void onConnectionStateChange(BluetoothGatt g, int status, int newState) {
+                if (g != gatt) return; // evento di una connessione già chiusa
+                if (newState == BluetoothProfile.STATE_CONNECTED && status == BluetoothGatt.GATT_SUCCESS) {
+                    handler.post(callback::onConnected);
+                } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                    handler.post(callback::onDisconnected);
+                }
+            }
+
+            @Override
+            public void onReadRemoteRssi(BluetoothGatt g, int rssi, int status) {
+                callback.onRssiRead(rssi, status == BluetoothGatt.GATT_SUCCESS);
+            }
+        }, BluetoothDevice.TRANSPORT_LE);
+        return gatt != null;
+    }
+
+    @Override
+    public void disconnect() {
+        BluetoothGatt current = gatt;
+        if (current != null) current.disconnect();
+    }
+
+    @Override
+    public void close() {
+        BluetoothGatt current = gatt;
+        gatt = null;
+        if (current != null) current.close();
+    }
+
+    @Override
+    public boolean requestPriority(ConnectionPriority priority) {
+        BluetoothGatt current = gatt;
+        if (current == null) return false;
+        switch (priority) {
+            case HIGH:
+                return current.requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+            case LOW_POWER:
+                return current.requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER);
+            default:
+                return current.requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+        }
+    }
+
+    @Override
+    public boolean readRssi() {
+        BluetoothGatt current = gatt;
+        return current != null && current.readRemoteRssi();
+    }
+}
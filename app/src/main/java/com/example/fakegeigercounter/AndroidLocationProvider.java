@@ -0,0 +1,78 @@
+package com.example.fakegeigercounter;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Posizioni dal GPS tramite LocationManager, consegnate sul looper dato
+ */
+public class AndroidLocationProvider implements LocationProvider {
+    private static final long MIN_INTERVAL_MS = 1000;
+
+    private final Context context;
+    private final Looper looper;
+    private final LocationManager locationManager;
+    private LocationListener locationListener;
+
+    public AndroidLocationProvider(Context context, Looper looper) {
+        this.context = context.getApplicationContext();
+        this.looper = looper;
+        this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    }
+
+    public boolean hasPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public boolean start(Listener listener) {
+        if (locationManager == null || !hasPermission()) return false;
+        if (!locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) return false;
+        stop();
+
+        // Anche i metodi con implementazione di default: prima di Android 10 sono astratti
+        locationListener = new LocationListener() {
+            @Override
+            public void onLocationChanged(Location location) {
+                listener.onLocation(location.getLatitude(), location.getLongitude(),
+                        location.hasAccuracy() ? location.getAccuracy() : Float.MAX_VALUE, System.nanoTime());
+            }
+
+            @Override
+            public void onStatusChanged(String provider, int status, Bundle extras) {
+            }
+
+            @Override
+            public void onProviderEnabled(String provider) {
+            }
+
+            @Override
+            public void onProviderDisabled(String provider) {
+            }
+        };
+        try {
+            locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, MIN_INTERVAL_MS, 0,
+                    locationListener, looper);
+        } catch (SecurityException e) {
+            locationListener = null;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void stop() {
+        if (locationListener == null) return;
+        locationManager.removeUpdates(locationListener);
+        locationListener = null;
+    }
+}
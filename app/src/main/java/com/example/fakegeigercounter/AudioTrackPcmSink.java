@@ -0,0 +1,85 @@
+package com.example.fakegeigercounter;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+
+/**
+ * Sink PCM che scrive su un AudioTrack in streaming
+ */
+public class AudioTrackPcmSink implements PcmSink {
+    private final AudioTrack track;
+    private final int sampleRate;
+    private final int minBufferFrames;
+
+    public AudioTrackPcmSink(int sampleRate) {
+        this(sampleRate, 0);
+    }
+
+    /**
+     * capacityFrames riserva spazio per buffer più grandi, attivabili con setBufferFrames
+     */
+    public AudioTrackPcmSink(int sampleRate, int capacityFrames) {
+        this.sampleRate = sampleRate;
+
+        int minBufferSize = AudioTrack.getMinBufferSize(sampleRate,
+                AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        // 16 bit mono: il doppio del minimo in byte equivale al minimo in frame
+        minBufferFrames = minBufferSize;
+
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_GAME)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setSampleRate(sampleRate)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .build())
+                .setBufferSizeInBytes(Math.max(minBufferSize * 2, capacityFrames * 2))
+                .setTransferMode(AudioTrack.MODE_STREAM);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        track = builder.build();
+        setBufferFrames(minBufferFrames);
+    }
+
+    /**
+     * Cambia la latenza: con un buffer più grande le write bloccanti si risvegliano più di rado
+     */
+    public void setBufferFrames(int frames) {
+        track.setBufferSizeInFrames(Math.max(minBufferFrames, frames));
+    }
+
+    public void play() {
+        track.play();
+    }
+
+    /**
+     * Ferma la riproduzione e scarta i campioni non ancora suonati
+     */
+    public void pause() {
+        track.pause();
+        track.flush();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public void write(short[] buffer, int frames) {
+        // Bloccante: è il buffer dell'AudioTrack a dare il ritmo al ciclo di render
+        track.write(buffer, 0, frames);
+    }
+
+    @Override
+    public void close() {
+        track.stop();
+        track.release();
+    }
+}
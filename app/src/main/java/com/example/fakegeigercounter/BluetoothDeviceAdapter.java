@@ -1,24 +1,44 @@
 package com.example.fakegeigercounter;
 
-import android.bluetooth.BluetoothDevice;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class BluetoothDeviceAdapter extends RecyclerView.Adapter<BluetoothDeviceAdapter.ViewHolder> {
-    private List<BluetoothDevice> devices = new ArrayList<>();
+/**
+ * Elenco dei dispositivi trovati. I risultati di scansione arrivano da qualsiasi
+ * thread con onScanResult e vengono applicati alla lista al massimo una volta per
+ * frame, con un'unica notifica per gli inserimenti e una per intervallo di RSSI cambiati.
+ */
+public class BluetoothDeviceAdapter extends RecyclerView.Adapter<BluetoothDeviceAdapter.ViewHolder>
+        implements Choreographer.FrameCallback, DeviceList.Observer {
+    private static final Object PAYLOAD_RSSI = new Object();
+    private static final String[] RSSI_TEXT = new String[CurveTables.MAX_RSSI - CurveTables.MIN_RSSI + 1];
+
+    static {
+        for (int rssi = CurveTables.MIN_RSSI; rssi <= CurveTables.MAX_RSSI; rssi++) {
+            RSSI_TEXT[rssi - CurveTables.MIN_RSSI] = rssi + " dBm";
+        }
+    }
+
+    private final DeviceList devices = new DeviceList();
     private final Context context;
     private final DeviceClickListener clickListener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Runnable requestFrame = () -> choreographer.postFrameCallback(this);
 
     public interface DeviceClickListener {
-        void onDeviceClick(BluetoothDevice device);
+        void onDeviceClick(String address);
     }
 
     public BluetoothDeviceAdapter(Context context, DeviceClickListener clickListener) {
@@ -26,29 +46,83 @@ public class BluetoothDeviceAdapter extends RecyclerView.Adapter<BluetoothDevice
         this.clickListener = clickListener;
     }
 
-    public void addDevice(BluetoothDevice device) {
-        if (!devices.contains(device)) {
-            devices.add(device);
-            notifyItemInserted(devices.size() - 1);
+    /**
+     * Nome già noto per il dispositivo, se è stato visto in questa scansione
+     */
+    public String cachedName(String address) {
+        return devices.cachedName(address);
+    }
+
+    /**
+     * Ultimo RSSI mostrato per il dispositivo, o MIN_RSSI se non è in lista
+     */
+    public int rssiOf(String address) {
+        int index = devices.indexOf(address);
+        return index < 0 ? CurveTables.MIN_RSSI : devices.rssi(index);
+    }
+
+    /**
+     * Registra un risultato di scansione; può essere chiamato da qualsiasi thread
+     */
+    public void onScanResult(String address, String name, int rssi) {
+        if (devices.offer(address, name, rssi)) {
+            mainHandler.post(requestFrame);
         }
     }
 
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        devices.apply(this);
+    }
+
+    @Override
+    public void onInserted(int from, int count) {
+        notifyItemRangeInserted(from, count);
+    }
+
+    @Override
+    public void onRssiChanged(int from, int count) {
+        notifyItemRangeChanged(from, count, PAYLOAD_RSSI);
+    }
+
+    @Override
+    public void onNameChanged(int position) {
+        // Senza payload: la riga viene ricollegata per intero, nome compreso
+        notifyItemChanged(position);
+    }
+
     public void clearDevices() {
         devices.clear();
         notifyDataSetChanged();
     }
 
+    @NonNull
     @Override
-    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_device, parent, false);
         return new ViewHolder(view);
     }
 
     @Override
-    public void onBindViewHolder(ViewHolder holder, int position) {
-        BluetoothDevice device = devices.get(position);
-        holder.deviceName.setText(device.getName());
-        holder.deviceAddress.setText(device.getAddress());
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.deviceName.setText(devices.name(position));
+        holder.deviceAddress.setText(devices.address(position));
+        bindRssi(holder, position);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        // Solo l'RSSI è cambiato: nome e indirizzo restano quelli già mostrati
+        if (payloads.size() > 0 && payloads.get(0) == PAYLOAD_RSSI) {
+            bindRssi(holder, position);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private void bindRssi(ViewHolder holder, int position) {
+        int rssi = Math.max(CurveTables.MIN_RSSI, Math.min(CurveTables.MAX_RSSI, devices.rssi(position)));
+        holder.deviceRssi.setText(RSSI_TEXT[rssi - CurveTables.MIN_RSSI]);
     }
 
     @Override
@@ -57,19 +131,20 @@ public class BluetoothDeviceAdapter extends RecyclerView.Adapter<BluetoothDevice
     }
 
     public class ViewHolder extends RecyclerView.ViewHolder {
-        TextView deviceName, deviceAddress;
+        TextView deviceName, deviceAddress, deviceRssi;
 
         public ViewHolder(View itemView) {
             super(itemView);
             deviceName = itemView.findViewById(R.id.deviceName);
             deviceAddress = itemView.findViewById(R.id.deviceAddress);
+            deviceRssi = itemView.findViewById(R.id.deviceRssi);
 
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION) {
-                    clickListener.onDeviceClick(devices.get(position));
+                    clickListener.onDeviceClick(devices.address(position));
                 }
             });
         }
     }
-}
\ No newline at end of file
+}
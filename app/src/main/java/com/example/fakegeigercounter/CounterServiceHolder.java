@@ -0,0 +1,78 @@
+package com.example.fakegeigercounter;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.IBinder;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+/**
+ * Tiene il collegamento al GeigerCounterService attraverso le ricreazioni
+ * dell'activity (rotazione, cambio di tema...). Il bind è fatto sul contesto
+ * dell'applicazione e sciolto solo quando l'activity finisce davvero, quindi il
+ * servizio, con la sessione GATT, il calcolo e l'audio, non viene mai distrutto
+ * e ricreato in mezzo, nemmeno a contatore fermo.
+ */
+public class CounterServiceHolder extends AndroidViewModel {
+    public interface Callback {
+        /**
+         * Sul main thread: subito in attach se il servizio è già collegato
+         */
+        void onServiceReady(GeigerCounterService service);
+    }
+
+    private GeigerCounterService service;
+    private Callback callback;
+    private final boolean bound;
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((GeigerCounterService.LocalBinder) binder).getService();
+            if (callback != null) callback.onServiceReady(service);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
+    };
+
+    public CounterServiceHolder(@NonNull Application application) {
+        super(application);
+        bound = application.bindService(new Intent(application, GeigerCounterService.class),
+                connection, Context.BIND_AUTO_CREATE);
+    }
+
+    /**
+     * Collega l'activity corrente; un'activity ricreata riceve il servizio senza aspettare
+     */
+    public void attach(Callback callback) {
+        this.callback = callback;
+        if (service != null) callback.onServiceReady(service);
+    }
+
+    public void detach() {
+        callback = null;
+    }
+
+    public GeigerCounterService getService() {
+        return service;
+    }
+
+    /**
+     * L'activity è finita: se il contatore è attivo il servizio resta avviato in primo piano
+     */
+    @Override
+    protected void onCleared() {
+        callback = null;
+        service = null;
+        if (bound) {
+            getApplication().unbindService(connection);
+        }
+    }
+}
@@ -1,17 +1,12 @@
 package com.example.fakegeigercounter;
 
 import android.Manifest;
-import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothManager;
-import android.bluetooth.BluetoothProfile;
-import android.content.Context;
+import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -23,90 +18,130 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
+/**
+ * Mostra le letture del GeigerCounterService, che continua a contare anche
+ * quando l'activity non è visibile
+ */
 public class DetectorActivity extends AppCompatActivity {
 
     private static final int REQUEST_PERMISSIONS = 1;
+    private static final long OVERLAY_REFRESH_MS = 1000;
+    private static final long DOSE_REFRESH_MS = 1000;
 
-    private BluetoothAdapter bluetoothAdapter;
-    private BluetoothGatt bluetoothGatt;
     private TextView tvRadiationValue;
     private TextView tvRadiationLevel;
     private TextView tvConnectionStatus;
+    private TextView tvDose;
     private Button btnStart;
     private RelativeLayout bg;
 
-    private final Handler handler = new Handler();
-    private GeigerClickPlayer geigerPlayer;
-    private RadiationCalculator radiationCalculator = new RadiationCalculator();
-
-    private boolean isGeigerActive = false;
-    private String deviceAddress;
-
-    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+    // La UI si aggiorna al massimo una volta per frame
+    private ReadingUiUpdater uiUpdater;
+    private int[] bandColors;
+
+    private CounterServiceHolder serviceHolder;
+    private GeigerCounterService service;
+    private boolean permissionsGranted = false;
+
+    // Tempo dalla creazione dell'activity alla prima lettura mostrata, anche dopo una rotazione.
+    // Solo diagnostica nel log su dispositivo: non ci sono valori di riferimento registrati
+    private long createdNanos;
+    private boolean recreated;
+    private boolean firstReadingShown = false;
+
+    // Overlay con le metriche di latenza e riga della dose, aggiornati una volta al secondo
+    private TextView tvDebugOverlay;
+    private boolean debugOverlay;
+    private final Handler refreshHandler = new Handler(Looper.getMainLooper());
+    private final Runnable doseRefresh = new Runnable() {
         @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            if (newState == BluetoothProfile.STATE_CONNECTED) {
-                runOnUiThread(() -> {
-                    tvConnectionStatus.setText(isGeigerActive ? "Contatore attivo" : "Connesso (in pausa)");
-                    if (isGeigerActive) {
-                        startRssiUpdates();
-                    }
-                });
-            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                runOnUiThread(() -> {
-                    tvConnectionStatus.setText("Disconnesso");
-                    stopGeigerCounter();
-                });
-            }
+        public void run() {
+            if (service == null || !service.isActive()) return;
+            showDose(service.getDoseAccumulator());
+            refreshHandler.postDelayed(this, DOSE_REFRESH_MS);
         }
-
+    };
+    private final Runnable overlayRefresh = new Runnable() {
         @Override
-        public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                radiationCalculator.updateRssi(rssi);
-                updateRadiationLevel();
-            }
+        public void run() {
+            if (service == null) return;
+            PipelineMetrics metrics = service.getMetrics();
+            metrics.sample();
+            tvDebugOverlay.setText(metrics.toText());
+            refreshHandler.postDelayed(this, OVERLAY_REFRESH_MS);
         }
     };
 
-    private final Runnable rssiUpdater = new Runnable() {
+    private final GeigerCounterService.Listener serviceListener = new GeigerCounterService.Listener() {
         @Override
-        public void run() {
-            if (bluetoothGatt != null && isGeigerActive) {
-                if (ActivityCompat.checkSelfPermission(DetectorActivity.this,
-                        Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-                    bluetoothGatt.readRemoteRssi();
-                }
-            }
-            handler.postDelayed(this, 1000);
+        public void onStatusChanged() {
+            updateStatus();
+        }
+
+        @Override
+        public void onReadingPublished() {
+            uiUpdater.onReadingPublished();
         }
     };
 
+    /**
+     * Sul main thread: alla prima creazione appena il bind si completa, dopo una
+     * ricreazione subito in onCreate, con sessione e audio ancora attivi
+     */
+    private void onServiceReady(GeigerCounterService service) {
+        this.service = service;
+        service.configure(getIntent());
+        uiUpdater = new ReadingUiUpdater(service.getReadingChannel(), this::showReading);
+        uiUpdater.setMetrics(service.getMetrics());
+        service.setListener(serviceListener);
+        service.setInteractive(true);
+        if (permissionsGranted) {
+            connectToSource();
+        }
+        updateStatus();
+        startOverlay();
+        // Mostra subito l'ultima lettura invece di aspettare la prossima
+        uiUpdater.refresh();
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdNanos = System.nanoTime();
+        recreated = savedInstanceState != null;
         setContentView(R.layout.activity_detector);
 
         // Inizializzazione UI
         initViews();
+        bandColors = RadiationBandColors.resolve(this);
 
-        // Ottieni indirizzo dispositivo dal Intent
-        deviceAddress = getIntent().getStringExtra("DEVICE_ADDRESS");
-
-        // Inizializza Bluetooth
-        BluetoothManager bluetoothManager = (BluetoothManager) getSystemService(Context.BLUETOOTH_SERVICE);
-        bluetoothAdapter = bluetoothManager.getAdapter();
-
-        // Inizializza SoundPool
-        geigerPlayer = new GeigerClickPlayer(this);
-
-        // Verifica permessi e connetti
+        // Verifica permessi prima di collegarsi: se il servizio è già pronto si connette subito
         if (checkPermissions()) {
-            connectToDevice();
+            permissionsGranted = true;
+        }
+        serviceHolder = new ViewModelProvider(this).get(CounterServiceHolder.class);
+        serviceHolder.attach(this::onServiceReady);
+    }
+
+    /**
+     * In modalità passiva non c'è nessuna connessione da aprire
+     */
+    private void connectToSource() {
+        if (service == null) return;
+        if (!service.connect()) {
+            Toast.makeText(this, "Dispositivo non valido", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        if (service.takeAutoStart() && !service.isActive()) {
+            toggleGeigerCounter();
         }
     }
 
@@ -114,95 +149,113 @@ public class DetectorActivity extends AppCompatActivity {
         tvRadiationValue = findViewById(R.id.tv_radiation_value);
         tvRadiationLevel = findViewById(R.id.tv_radiation_level);
         tvConnectionStatus = findViewById(R.id.tv_connection_status);
+        tvDose = findViewById(R.id.tv_dose);
         btnStart = findViewById(R.id.btn_start);
         bg = findViewById(R.id.det_act);
 
         btnStart.setOnClickListener(v -> toggleGeigerCounter());
+
+        tvDebugOverlay = findViewById(R.id.tv_debug_overlay);
+        // Pressione lunga: salva un'istantanea delle metriche
+        tvDebugOverlay.setOnLongClickListener(v -> {
+            File dump = service != null ? service.dumpMetrics() : null;
+            Toast.makeText(this, dump != null ? dump.getName() : "Salvataggio non riuscito",
+                    Toast.LENGTH_SHORT).show();
+            return true;
+        });
+    }
+
+    /**
+     * L'overlay segue la sessione del servizio, anche se l'activity è stata aperta
+     * dalla notifica senza extra
+     */
+    private void startOverlay() {
+        debugOverlay = service.isDebugOverlay();
+        tvDebugOverlay.setVisibility(debugOverlay ? View.VISIBLE : View.GONE);
+        if (!debugOverlay) return;
+        refreshHandler.removeCallbacks(overlayRefresh);
+        refreshHandler.post(overlayRefresh);
     }
 
     public void toggleGeigerCounter() {
-        isGeigerActive = !isGeigerActive;
+        if (service == null) return;
 
-        if (isGeigerActive) {
-            startGeigerCounter();
-        } else {
-            stopGeigerCounter();
+        if (service.isActive()) {
+            service.stopCounter();
+        } else if (!service.startCounter()) {
+            Toast.makeText(this, service.isPassiveMode() ? "Scansione non disponibile" : "Dispositivo non valido",
+                    Toast.LENGTH_SHORT).show();
         }
-        updateButtonState();
     }
 
-    private void startGeigerCounter() {
-        if (bluetoothGatt == null) {
-            connectToDevice();
-            return;
+    /**
+     * Chiamato sul main thread quando il servizio cambia stato
+     */
+    private void updateStatus() {
+        if (service == null) return;
+
+        boolean active = service.isActive();
+        btnStart.setText(active ? "FERMA CONTATORE" : "AVVIA CONTATORE");
+        refreshHandler.removeCallbacks(doseRefresh);
+        if (active) {
+            refreshHandler.post(doseRefresh);
+        } else {
+            resetRadiationDisplay();
         }
 
-        startRssiUpdates();
-        geigerPlayer.setEnabled(true);
-        tvConnectionStatus.setText("Contatore attivo");
-    }
-
-    private void stopGeigerCounter() {
-        handler.removeCallbacks(rssiUpdater);
-        geigerPlayer.setEnabled(false);
-        tvConnectionStatus.setText("Connesso (in pausa)");
-        resetRadiationDisplay();
-    }
-
-    private void startRssiUpdates() {
-        handler.post(rssiUpdater);
+        switch (service.getStatus()) {
+            case CONNECTING:
+                tvConnectionStatus.setText("Connessione in corso...");
+                break;
+            case RECONNECTING:
+                tvConnectionStatus.setText("Disconnesso, riconnessione...");
+                break;
+            default:
+                if (service.isPassiveMode()) {
+                    tvConnectionStatus.setText(active ? "Contatore attivo (passivo)" : "Modalità passiva (in pausa)");
+                } else if (service.getStatus() == GeigerCounterService.Status.CONNECTED) {
+                    tvConnectionStatus.setText(active ? "Contatore attivo" : "Connesso (in pausa)");
+                }
+                break;
+        }
     }
 
-    private void updateButtonState() {
-        btnStart.setText(isGeigerActive ? "FERMA CONTATORE" : "AVVIA CONTATORE");
+    /**
+     * Una volta al secondo: dose della sessione e CPM su 1 s, 10 s, 1 min e 10 min
+     */
+    private void showDose(DoseAccumulator dose) {
+        tvDose.setText(String.format(Locale.ROOT, "Dose %.3f μSv%nCPM 1s %.0f · 10s %.0f · 1m %.0f · 10m %.0f",
+                dose.getTotalDose(),
+                dose.cpm(DoseAccumulator.Window.SECOND),
+                dose.cpm(DoseAccumulator.Window.TEN_SECONDS),
+                dose.cpm(DoseAccumulator.Window.MINUTE),
+                dose.cpm(DoseAccumulator.Window.TEN_MINUTES)));
     }
 
     private void resetRadiationDisplay() {
+        tvDose.setText("--");
         tvRadiationValue.setText("--");
         tvRadiationLevel.setText("-- μSv/h");
-        bg.setBackgroundColor(ContextCompat.getColor(this, R.color.radiation_background_normal));
+        bg.setBackgroundColor(bandColors[0]);
+        if (uiUpdater != null) {
+            uiUpdater.invalidate();
+        }
     }
 
-    private void updateRadiationLevel() {
-        if (!isGeigerActive) return;
-
-        int radiation = radiationCalculator.calculateRadiation();
-        geigerPlayer.updateRadiationLevel(radiation);
-
-        String levelName;
-        int color;
-
-        if (radiation <= 50) {
-            levelName = "Aria Vault";
-            color = R.color.radiation_background_normal;
-        } else if (radiation <= 150) {
-            levelName = "Polvere Glow";
-            color = R.color.radiation_background_light;
-        } else if (radiation <= 300) {
-            levelName = "Zona Gialla";
-            color =  R.color.radiation_background_moderate;
-        } else if (radiation <= 500) {
-            levelName = "Sangue Verde";
-            color =  R.color.radiation_background_high;
-        } else if (radiation <= 700) {
-            levelName = "Ghoul Ferale";
-            color =  R.color.radiation_background_danger;
-        } else if (radiation <= 850) {
-            levelName = "Scorie Dirette";
-            color =  R.color.radiation_background_emergency;
-        } else if (radiation <= 950) {
-            levelName = "Cuore FEV";
-            color =  R.color.radiation_background_critical;
-        } else {
-            levelName = "Liberty Prime";
-            color =  R.color.radiation_background_lethal;
+    /**
+     * Chiamato sul main thread al massimo una volta per frame, solo se valore o fascia sono cambiati
+     */
+    private void showReading(int radiation, int band) {
+        if (service == null || !service.isActive()) return;
+
+        tvRadiationValue.setText(RadiationBands.valueText(radiation));
+        tvRadiationLevel.setText(RadiationBands.name(band));
+        bg.setBackgroundColor(bandColors[band]);
+        if (!firstReadingShown) {
+            firstReadingShown = true;
+            Log.d("DetectorActivity", "First reading shown " + (System.nanoTime() - createdNanos) / 1_000_000
+                    + " ms after " + (recreated ? "recreation" : "creation"));
         }
-
-        runOnUiThread(() -> {
-            tvRadiationValue.setText(String.valueOf(radiation));
-            tvRadiationLevel.setText(levelName);
-            bg.setBackgroundColor(ContextCompat.getColor(this, color));
-        });
     }
 
     private boolean checkPermissions() {
@@ -224,6 +277,13 @@ public class DetectorActivity extends AppCompatActivity {
             }
         }
 
+        // Senza questo permesso il servizio gira lo stesso, ma la notifica non è visibile
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            permissionsNeeded.add(Manifest.permission.POST_NOTIFICATIONS);
+        }
+
         if (!permissionsNeeded.isEmpty()) {
             ActivityCompat.requestPermissions(this,
                     permissionsNeeded.toArray(new String[0]),
@@ -238,52 +298,50 @@ public class DetectorActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == REQUEST_PERMISSIONS) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                connectToDevice();
+                permissionsGranted = true;
+                connectToSource();
             } else {
                 Toast.makeText(this, "Permessi necessari per funzionare", Toast.LENGTH_SHORT).show();
             }
         }
     }
 
-    private void connectToDevice() {
-        if (deviceAddress == null) {
-            Toast.makeText(this, "Dispositivo non valido", Toast.LENGTH_SHORT).show();
-            finish();
-            return;
-        }
-
-        BluetoothDevice device = bluetoothAdapter.getRemoteDevice(deviceAddress);
-        if (device == null) {
-            Toast.makeText(this, "Dispositivo non trovato", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        tvConnectionStatus.setText("Connessione in corso...");
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-            bluetoothGatt = device.connectGatt(this, false, gattCallback);
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (service != null) {
+            service.setInteractive(true);
+            uiUpdater.invalidate();
+            updateStatus();
+            startOverlay();
         }
     }
 
+    /**
+     * A schermo spento o in un'altra app il contatore continua nel servizio, a basso
+     * consumo; durante una rotazione no, l'activity torna visibile subito
+     */
     @Override
-    protected void onPause() {
-        super.onPause();
-        if (isGeigerActive) {
-            stopGeigerCounter();
+    protected void onStop() {
+        super.onStop();
+        refreshHandler.removeCallbacks(overlayRefresh);
+        refreshHandler.removeCallbacks(doseRefresh);
+        if (service != null && !isChangingConfigurations()) {
+            service.setInteractive(false);
         }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        handler.removeCallbacks(rssiUpdater);
-        geigerPlayer.release();
-
-        if (bluetoothGatt != null) {
-            if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-                bluetoothGatt.disconnect();
-                bluetoothGatt.close();
-            }
-            bluetoothGatt = null;
+        if (service != null) {
+            service.setListener(null);
+            uiUpdater.cancel();
+            Log.d("DetectorActivity", "UI updates: " + uiUpdater.getApplied() + " applied, "
+                    + uiUpdater.getCoalesced() + " coalesced, " + uiUpdater.getUnchanged() + " unchanged");
+            service = null;
         }
+        // Il collegamento al servizio resta nel CounterServiceHolder fino alla fine dell'activity
+        serviceHolder.detach();
     }
-}
\ No newline at end of file
+}
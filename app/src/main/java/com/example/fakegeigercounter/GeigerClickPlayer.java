@@ -1,56 +1,149 @@
 package com.example.fakegeigercounter;
 
 import android.content.Context;
-import android.media.AudioAttributes;
-import android.media.SoundPool;
-import android.os.Handler;
+import android.os.Process;
 import android.util.Log;
 
-import java.util.Random;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
 
 public class GeigerClickPlayer {
     private static final String TAG = "GeigerClickPlayer";
 
-    private final SoundPool soundPool;
-    private final int clickSoundId;
-    private final Handler handler = new Handler();
-    private final Random random = new Random();
-
     // Parametri di configurazione
-    private static final float MIN_FREQ = 0.2f;    // 1 click ogni 5 secondi
-    private static final float MAX_FREQ = 13f;     // 13 click al secondo
-    private static final int MAX_RAD = 1000;       // Valore massimo radiazioni
-    private static final float PITCH_VARIATION = 0.2f; // ±10% variazione pitch
-    private static final float VOLUME_VARIATION = 0.15f; // ±15% variazione volume
-
-    private int currentRadLevel = 0;
-    private boolean isEnabled = false;
-    private boolean isPlaying = false;
+    private static final int MAX_RAD = CurveTables.MAX_RAD; // Valore massimo radiazioni
+    private static final int MAX_VOICES = 64;           // click sovrapposti mixati contemporaneamente
+    private static final int BUFFER_FRAMES = 256;       // ~6 ms a 44.1 kHz
+    private static final int LOW_POWER_FRAMES = 8192;   // ~186 ms, in background
+    private static final int SILENCE_THRESHOLD = 50;    // coda del campione considerata silenzio
+    private static final String VARIANT_CACHE = "click_variants.bin";
+
+    private final Context context;
+    private final MonotonicClock clock;
+
+    private volatile int currentRadLevel = 0;
+    private volatile boolean isEnabled = false;
+    private volatile boolean isPlaying = false;
+    private volatile boolean lowPower = false;
+    private volatile WakeupMeter wakeupMeter;
+
+    // Il sintetizzatore viene creato dal thread di caricamento, il sink dal thread audio
+    private final CountDownLatch clickLoaded = new CountDownLatch(1);
+    private volatile ClickSynthesizer synthesizer;
+    private AudioTrackPcmSink sink;
+    private Thread audioThread;
+    private volatile SessionRecorder recorder;
+    private volatile PipelineMetrics metrics;
+    private volatile DoseAccumulator doseAccumulator;
+
+    // Origine del tempo per convertire la posizione in campioni negli istanti dei click
+    private long bufferStartNanos;
+    private long bufferStartSample;
+    // Inizio della riproduzione: da qui ogni campione ha il suo istante previsto
+    private long playStartNanos;
+    private long playStartSample;
+    private final ClickSynthesizer.PulseListener pulseRecorder = this::recordPulse;
 
     public GeigerClickPlayer(Context context) {
-        AudioAttributes attributes = new AudioAttributes.Builder()
-                .setUsage(AudioAttributes.USAGE_GAME)
-                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                .build();
+        this(context, MonotonicClock.SYSTEM);
+    }
+
+    /**
+     * clock dà gli istanti dei click passati a dose, registrazione e metriche
+     */
+    public GeigerClickPlayer(Context context, MonotonicClock clock) {
+        this.context = context.getApplicationContext();
+        this.clock = clock;
 
-        soundPool = new SoundPool.Builder()
-                .setMaxStreams(5)
-                .setAudioAttributes(attributes)
-                .build();
+        Thread loader = new Thread(this::loadClick, "GeigerClickLoader");
+        loader.setPriority(Thread.MIN_PRIORITY);
+        loader.start();
+    }
 
-        clickSoundId = soundPool.load(context, R.raw.geiger_click, 1);
+    /**
+     * Decodifica il click, poi prepara in background il banco di varianti
+     * (dalla cache se già generato in un avvio precedente)
+     */
+    private void loadClick() {
+        PcmClip click;
+        try (InputStream in = context.getResources().openRawResource(R.raw.geiger_click)) {
+            click = WavDecoder.decode(in).trimmed(SILENCE_THRESHOLD);
+            synthesizer = new ClickSynthesizer(click, MAX_VOICES, LOW_POWER_FRAMES, new PulseEngine());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load click sound", e);
+            return;
+        } finally {
+            clickLoaded.countDown();
+        }
 
-        soundPool.setOnLoadCompleteListener((soundPool, sampleId, status) -> {
-            if (status != 0) {
-                Log.e(TAG, "Failed to load sound with status: " + status);
-            }
-        });
+        long start = System.nanoTime();
+        File cache = new File(context.getFilesDir(), VARIANT_CACHE);
+        ClickVariantBank bank = ClickVariantBank.loadOrBuild(click, cache);
+        synthesizer.setVariantBank(bank);
+        Log.d(TAG, "Click variants ready in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * In modalità a basso consumo l'audio viene preparato in blocchi grandi, con
+     * molti meno risvegli del thread audio ma più ritardo nei cambi di livello
+     */
+    public void setLowPower(boolean lowPower) {
+        this.lowPower = lowPower;
+    }
+
+    public void setWakeupMeter(WakeupMeter meter) {
+        this.wakeupMeter = meter;
+    }
+
+    /**
+     * Registra ogni click nella sessione indicata; null per smettere
+     */
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Passa ogni click all'accumulatore della dose; null per smettere
+     */
+    public void setDoseAccumulator(DoseAccumulator accumulator) {
+        this.doseAccumulator = accumulator;
+    }
+
+    /**
+     * Conta i click e quanto in ritardo sono stati renderizzati rispetto al loro istante previsto
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Chiamato sul thread audio durante il rendering
+     */
+    private void recordPulse(long samplePosition) {
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null && metrics.isEnabled()) {
+            metrics.count(PipelineMetrics.Counter.CLICKS);
+            // Il blocco viene scritto in anticipo: c'è ritardo solo se il rendering è rimasto indietro
+            long intended = playStartNanos
+                    + (samplePosition - playStartSample) * 1_000_000_000L / synthesizer.getSampleRate();
+            metrics.recordLatency(PipelineMetrics.Stage.CLICK_LAG, Math.max(0, bufferStartNanos - intended));
+        }
+
+        DoseAccumulator dose = this.doseAccumulator;
+        SessionRecorder recorder = this.recorder;
+        if (dose == null && recorder == null) return;
+        long offset = samplePosition - bufferStartSample;
+        long nanos = bufferStartNanos + offset * 1_000_000_000L / synthesizer.getSampleRate();
+        if (dose != null) dose.onPulse(nanos);
+        if (recorder != null) recorder.onPulse(nanos);
     }
 
     /**
      * Abilita o disabilita il player
      */
-    public void setEnabled(boolean enabled) {
+    public synchronized void setEnabled(boolean enabled) {
         this.isEnabled = enabled;
         if (!enabled) {
             stopPlayback();
@@ -60,9 +153,10 @@ public class GeigerClickPlayer {
     }
 
     /**
-     * Aggiorna il livello di radiazione e regola la riproduzione
+     * Aggiorna il livello di radiazione e regola la riproduzione; può essere chiamato
+     * dal thread di elaborazione delle letture
      */
-    public void updateRadiationLevel(int radLevel) {
+    public synchronized void updateRadiationLevel(int radLevel) {
         currentRadLevel = Math.min(radLevel, MAX_RAD);
 
         if (!isEnabled) return;
@@ -78,53 +172,82 @@ public class GeigerClickPlayer {
         if (isPlaying) return;
 
         isPlaying = true;
-        scheduleNextClick();
+        audioThread = new Thread(this::renderLoop, "GeigerAudio");
+        audioThread.start();
         Log.d(TAG, "Playback started");
     }
 
     private void stopPlayback() {
         if (!isPlaying) return;
 
-        handler.removeCallbacksAndMessages(null);
         isPlaying = false;
+        joinAudioThread();
         Log.d(TAG, "Playback stopped");
     }
 
-    private void scheduleNextClick() {
-        if (!isPlaying || !isEnabled || currentRadLevel <= 0) return;
-
-        // Calcola frequenza con curva esponenziale
-        float normalized = currentRadLevel / (float)MAX_RAD;
-        float baseFrequency = MIN_FREQ + (MAX_FREQ - MIN_FREQ) * (float)Math.pow(normalized, 2.5);
-
-        // Aggiungi variazione casuale
-        float variedFreq = baseFrequency * (0.9f + 0.2f * random.nextFloat());
-        long delayMillis = (long) (1000 / variedFreq);
-
-        handler.postDelayed(() -> {
-            if (!isPlaying || !isEnabled) return;
-
-            playClickSound();
-            scheduleNextClick();
-        }, delayMillis);
+    private void joinAudioThread() {
+        if (audioThread == null) return;
+        try {
+            audioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        audioThread = null;
     }
 
-    private void playClickSound() {
-        // Variazioni casuali per maggiore realismo
-        float pitch = 1.0f + (random.nextFloat() * 2 * PITCH_VARIATION - PITCH_VARIATION);
-        float volume = 1.0f - (random.nextFloat() * VOLUME_VARIATION);
+    /**
+     * Ciclo del thread audio: il click viene mixato nel PCM alla posizione esatta,
+     * la scrittura bloccante sull'AudioTrack dà il ritmo
+     */
+    private void renderLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        try {
+            clickLoaded.await();
+        } catch (InterruptedException e) {
+            return;
+        }
+        ClickSynthesizer synthesizer = this.synthesizer;
+        if (synthesizer == null) return;
+        if (sink == null) {
+            sink = new AudioTrackPcmSink(synthesizer.getSampleRate(), 2 * LOW_POWER_FRAMES);
+        }
 
-        soundPool.play(clickSoundId, volume, volume, 1, 0, pitch);
+        short[] buffer = new short[LOW_POWER_FRAMES];
+        int frames = 0;
+        synthesizer.setPulseListener(pulseRecorder);
+        sink.play();
+        playStartNanos = clock.nanoTime();
+        playStartSample = synthesizer.getPosition();
+        while (isPlaying && isEnabled) {
+            int blockFrames = lowPower ? LOW_POWER_FRAMES : BUFFER_FRAMES;
+            if (blockFrames != frames) {
+                frames = blockFrames;
+                sink.setBufferFrames(2 * frames);
+            }
+            synthesizer.setRate(CurveTables.frequencyFor(currentRadLevel));
+            bufferStartNanos = clock.nanoTime();
+            bufferStartSample = synthesizer.getPosition();
+            synthesizer.render(buffer, frames);
+            sink.write(buffer, frames);
+
+            WakeupMeter meter = wakeupMeter;
+            if (meter != null) meter.record(WakeupMeter.Source.AUDIO);
+        }
+        synthesizer.setRate(0);
+        sink.pause();
     }
 
     public void stop() {
         setEnabled(false);
     }
 
-    public void release() {
+    public synchronized void release() {
         stop();
-        soundPool.release();
-        handler.removeCallbacksAndMessages(null);
+        joinAudioThread();
+        if (sink != null) {
+            sink.close();
+            sink = null;
+        }
         Log.d(TAG, "Resources released");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,769 @@
+package com.example.fakegeigercounter;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Motore del contatore: sessione GATT o scansione passiva, polling RSSI, calcolo
+ * e audio. Gira come servizio in primo piano mentre il contatore è attivo, così
+ * continua a schermo spento; l'activity si collega solo per mostrare le letture.
+ *
+ * Senza nessuno a guardare (setInteractive(false)) passa alla modalità a basso
+ * consumo: letture RSSI a gruppi e audio preparato in blocchi grandi.
+ */
+public class GeigerCounterService extends Service {
+    private static final String TAG = "GeigerCounterService";
+    private static final String CHANNEL_ID = "geiger_counter";
+    private static final int NOTIFICATION_ID = 1;
+    private static final String ACTION_STOP = "com.example.fakegeigercounter.STOP";
+
+    private static final int MSG_RSSI = 1;
+    private static final int MSG_FIELD_TICK = 2;
+    private static final int MSG_METER_SAMPLE = 3;
+    private static final long FIELD_TICK_MS = 100;            // ricalcolo del campo in modalità passiva
+    private static final long BACKGROUND_FIELD_TICK_MS = 1000;
+    private static final int BACKGROUND_BATCH_SIZE = 4;       // letture RSSI per risveglio in background
+    private static final long METER_SAMPLE_MS = 60_000;
+
+    public enum Status {
+        IDLE,
+        CONNECTING,
+        CONNECTED,
+        RECONNECTING
+    }
+
+    /**
+     * onStatusChanged arriva sul main thread, onReadingPublished sul thread di elaborazione
+     */
+    public interface Listener {
+        void onStatusChanged();
+
+        void onReadingPublished();
+    }
+
+    public class LocalBinder extends Binder {
+        public GeigerCounterService getService() {
+            return GeigerCounterService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ReadingChannel readingChannel = new ReadingChannel();
+    // Ricreati a ogni nuova sessione, letti dal thread di elaborazione
+    private volatile RadiationCalculator radiationCalculator = new RadiationCalculator();
+    private volatile RadiationField radiationField = new RadiationField();
+    private final WakeupMeter wakeupMeter = new WakeupMeter(MonotonicClock.SYSTEM);
+    private final PipelineMetrics metrics = new PipelineMetrics(MonotonicClock.SYSTEM);
+    private final DoseAccumulator doseAccumulator = new DoseAccumulator(MonotonicClock.SYSTEM);
+
+    // Ogni lettura pubblicata passa da qui a tutti i consumatori
+    private final ReadingBus readingBus = new ReadingBus();
+    // Consumatori veloci, sul thread di elaborazione subito dopo ogni pubblicazione
+    private ReadingBus.Consumer audioConsumer;
+    private ReadingBus.Consumer doseConsumer;
+    private ReadingBus.Consumer uiConsumer;
+    // Consumatori con I/O, ognuno sul proprio thread: se restano indietro perdono letture
+    private final List<ReadingBus.Consumer> threadedConsumers = new ArrayList<>();
+    private final List<Thread> consumerThreads = new ArrayList<>();
+
+    private BluetoothAdapter bluetoothAdapter;
+    private volatile GattSessionPool sessionPool;
+    // Per sessione del pool: slot nel campo; scritto prima di sessionPool,
+    // usato solo dal thread di elaborazione
+    private int[] sessionSlots;
+    private GeigerClickPlayer geigerPlayer;
+    private HandlerThread processingThread;
+    private Handler processingHandler;
+
+    // Configurazione della sessione; un intent con extra diversi ne apre una nuova
+    private String deviceAddress;
+    private boolean passiveMode;
+    private List<String> sourceAddresses;
+    private RssiFilterType rssiFilterType = RssiFilterType.MEDIAN;
+    private AdvertisementScanner advertisementScanner;
+    private AdvertisementRssiFeed advertisementFeed;
+    private SessionRecorder sessionRecorder;
+    // Letture geolocalizzate, solo con GEO_TAG
+    private AndroidLocationProvider locationProvider;
+    private volatile GeoTagger geoTagger;
+    private boolean autoStart;
+
+    // Tempo dall'avvio dell'app alla prima lettura pubblicata, -1 finché non arriva
+    private long launchNanos;
+    private boolean launchedFromCache;
+    private volatile long timeToFirstReadingMillis = -1;
+
+    // Letti anche dal thread Bluetooth e da quello di elaborazione
+    private volatile boolean isActive = false;
+    private volatile boolean interactive = true;
+    private volatile Status status = Status.IDLE;
+    private volatile Listener listener;
+
+    private final DelayedExecutor mainExecutor = new DelayedExecutor() {
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            handler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            handler.removeCallbacks(task);
+        }
+    };
+
+    // Tiene, sostituisce o riusa la sessione a ogni configure
+    private final SessionSwitch sessionSwitch = new SessionSwitch(new SessionSwitch.Target() {
+        @Override
+        public void closeSession() {
+            Log.d(TAG, "Session configuration changed, closing the previous session");
+            GeigerCounterService.this.closeSession();
+        }
+
+        @Override
+        public void openSession(SessionConfig config) {
+            GeigerCounterService.this.openSession(config);
+        }
+    });
+
+    private final GattSessionPool.Listener sessionListener = new GattSessionPool.Listener() {
+        @Override
+        public void onSessionStateChanged(int session, boolean connected) {
+            // Il contatore resta attivo: le sessioni cadute si riconnettono da sole
+            GattSessionPool pool = sessionPool;
+            if (pool == null) return;
+            boolean any = pool.connectedCount() > 0;
+            geigerPlayer.setEnabled(isActive && any);
+            setStatus(any ? Status.CONNECTED : Status.RECONNECTING);
+        }
+
+        @Override
+        public void onReading(int session, int rssi) {
+            // Message viene dal pool di sistema, nessuna allocazione per lettura
+            processingHandler.obtainMessage(MSG_RSSI, rssi, session).sendToTarget();
+        }
+    };
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        BluetoothManager bluetoothManager = (BluetoothManager) getSystemService(Context.BLUETOOTH_SERVICE);
+        bluetoothAdapter = bluetoothManager.getAdapter();
+        geigerPlayer = new GeigerClickPlayer(this);
+        geigerPlayer.setWakeupMeter(wakeupMeter);
+        geigerPlayer.setMetrics(metrics);
+        geigerPlayer.setDoseAccumulator(doseAccumulator);
+
+        audioConsumer = readingBus.addConsumer("audio",
+                (rssi, radLevel, nanos) -> geigerPlayer.updateRadiationLevel(radLevel),
+                ReadingBus.WaitStrategy.BLOCKING);
+        doseConsumer = readingBus.addConsumer("dose",
+                (rssi, radLevel, nanos) -> doseAccumulator.onReading(radLevel, nanos),
+                ReadingBus.WaitStrategy.BLOCKING);
+        uiConsumer = readingBus.addConsumer("ui", (rssi, radLevel, nanos) -> {
+            readingChannel.publish(rssi, radLevel, RadiationBands.bandOf(radLevel));
+            Listener listener = this.listener;
+            if (listener != null) listener.onReadingPublished();
+        }, ReadingBus.WaitStrategy.BLOCKING);
+
+        processingThread = new HandlerThread("ReadingProcessor", Process.THREAD_PRIORITY_DISPLAY);
+        processingThread.start();
+        processingHandler = new Handler(processingThread.getLooper(), this::handleProcessingMessage);
+        processingHandler.sendEmptyMessageDelayed(MSG_METER_SAMPLE, METER_SAMPLE_MS);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopCounter();
+        }
+        return START_NOT_STICKY;
+    }
+
+    /**
+     * Legge la configurazione della sessione dagli extra dell'intent dell'activity.
+     * Con gli stessi extra (activity ricreata, stesso dispositivo riaperto) tiene la
+     * sessione così com'è; con extra diversi chiude quella corrente e ne apre una nuova.
+     * Un intent senza extra di sessione, come quello della notifica, si aggancia alla
+     * sessione in corso senza fermarla.
+     */
+    public void configure(Intent intent) {
+        SessionSwitch.Action action = sessionSwitch.apply(SessionConfig.read(extrasOf(intent)));
+        if (action == SessionSwitch.Action.ATTACH && !intent.hasExtra("LAUNCH_NANOS")) return;
+        // Stessa sessione: conta solo se è un nuovo avvio dalla lista dei dispositivi
+        if (action != SessionSwitch.Action.KEEP || intent.getLongExtra("LAUNCH_NANOS", 0) != launchNanos) {
+            readLaunch(intent);
+        }
+    }
+
+    private static SessionConfig.Extras extrasOf(Intent intent) {
+        return new SessionConfig.Extras() {
+            @Override
+            public boolean has(String name) {
+                return intent.hasExtra(name);
+            }
+
+            @Override
+            public String getString(String name) {
+                return intent.getStringExtra(name);
+            }
+
+            @Override
+            public String[] getStringArray(String name) {
+                return intent.getStringArrayExtra(name);
+            }
+
+            @Override
+            public boolean getBoolean(String name) {
+                return intent.getBooleanExtra(name, false);
+            }
+        };
+    }
+
+    private void openSession(SessionConfig config) {
+        deviceAddress = config.getDeviceAddress();
+        passiveMode = config.isPassiveMode();
+        sourceAddresses = config.getSourceAddresses();
+
+        // Filtro RSSI scelto per questa sessione: le letture GATT arrivano già filtrate
+        // dal pool, che ne ha uno per dispositivo
+        rssiFilterType = config.getRssiFilter();
+        radiationCalculator.setRssiFilter(RssiFilterType.NONE.create());
+
+        RadiationCurveType curveType = config.getRadiationCurve();
+        radiationCalculator.setCurve(curveType.create());
+        radiationField.setCurve(curveType.create());
+
+        if (passiveMode && sourceAddresses != null) {
+            advertisementScanner = new LeAdvertisementScanner(this, bluetoothAdapter);
+            advertisementFeed = new AdvertisementRssiFeed(sourceAddresses, radiationField);
+        }
+
+        // Attesa dei consumatori con thread proprio
+        ReadingBus.WaitStrategy busWait = config.getBusWait();
+
+        if (config.isRecordSession()) {
+            startSessionRecording();
+            SessionRecorder recorder = sessionRecorder;
+            if (recorder != null) {
+                startConsumerThread("recorder", recorder::onReading, busWait);
+            }
+        }
+
+        // Metriche di latenza solo su richiesta: spente costano una lettura di un volatile
+        metrics.setEnabled(config.isInstrumentation() || config.isDebugOverlay());
+
+        if (config.isGeoTag()) {
+            locationProvider = new AndroidLocationProvider(this, processingThread.getLooper());
+            GeoTagger tagger = new GeoTagger(new GeoReadingIndex());
+            geoTagger = tagger;
+            startConsumerThread("geo", (rssi, radLevel, nanos) -> tagger.onReading(radLevel, nanos), busWait);
+        }
+    }
+
+    /**
+     * true se la sessione in corso mostra l'overlay di debug
+     */
+    public boolean isDebugOverlay() {
+        SessionConfig config = sessionSwitch.current();
+        return config != null && config.isDebugOverlay();
+    }
+
+    private void readLaunch(Intent intent) {
+        autoStart = intent.getBooleanExtra("AUTO_START", false);
+        launchNanos = intent.getLongExtra("LAUNCH_NANOS", 0);
+        launchedFromCache = intent.getBooleanExtra("FROM_CACHE", false);
+        timeToFirstReadingMillis = -1;
+    }
+
+    /**
+     * Chiude la sessione corrente: contatore, connessioni, scansione, registrazione
+     * e geolocalizzazione. Il servizio resta collegato all'activity.
+     */
+    private void closeSession() {
+        if (isActive) {
+            stopCounter();
+        }
+        if (sessionPool != null) {
+            if (hasConnectPermission()) {
+                sessionPool.stop();
+            }
+            sessionPool = null;
+        }
+        if (advertisementScanner != null) {
+            advertisementScanner.stop();
+            advertisementScanner = null;
+        }
+        advertisementFeed = null;
+        // Il contatore è fermo: nessuna lettura nuova per registrazione e geolocalizzazione
+        haltConsumerThreads();
+        closeSessionRecording();
+        locationProvider = null;
+        geoTagger = null;
+
+        deviceAddress = null;
+        passiveMode = false;
+        sourceAddresses = null;
+        radiationCalculator = new RadiationCalculator();
+        radiationField = new RadiationField();
+        doseAccumulator.reset();
+        setStatus(Status.IDLE);
+    }
+
+    /**
+     * true una sola volta se la sessione va avviata senza aspettare l'utente
+     * (dispositivo noto scelto all'avvio, con AUTO_START nell'intent di avvio)
+     */
+    public boolean takeAutoStart() {
+        boolean start = autoStart;
+        autoStart = false;
+        return start;
+    }
+
+    /**
+     * Millisecondi dall'avvio dell'app alla prima lettura, o -1 se non ancora arrivata
+     */
+    public long getTimeToFirstReadingMillis() {
+        return timeToFirstReadingMillis;
+    }
+
+    /**
+     * Apre una connessione GATT per ogni sorgente o, in modalità passiva, verifica
+     * solo le sorgenti; false se nessun dispositivo è valido
+     */
+    public boolean connect() {
+        if (passiveMode) {
+            return advertisementFeed != null;
+        }
+        if (sourceAddresses == null || !hasConnectPermission()) return false;
+        if (sessionPool != null) return true;
+
+        GattSessionPool pool = new GattSessionPool(mainExecutor, MonotonicClock.SYSTEM);
+        pool.setListener(sessionListener);
+        pool.setWakeupMeter(wakeupMeter);
+        pool.setMetrics(metrics);
+        pool.setRssiFilter(rssiFilterType);
+        pool.setCurve(radiationCalculator.getCurve());
+        int[] slots = new int[sourceAddresses.size()];
+        for (String address : sourceAddresses) {
+            if (!BluetoothAdapter.checkBluetoothAddress(address)) continue;
+            BluetoothDevice device = bluetoothAdapter.getRemoteDevice(address);
+            // Ogni sessione ricorda il proprio slot nel campo
+            int slot = radiationField.register(address, 1f);
+            int session = pool.addSession(address, new AndroidGattLink(this, device, handler));
+            slots[session] = slot;
+        }
+        if (pool.size() == 0) {
+            return false;
+        }
+        sessionSlots = slots;
+        sessionPool = pool;
+        pool.setInteractive(interactive);
+        setStatus(Status.CONNECTING);
+        return true;
+    }
+
+    /**
+     * Avvia il contatore; false se la sorgente non è disponibile
+     */
+    public boolean startCounter() {
+        if (passiveMode) {
+            if (advertisementScanner == null || !advertisementScanner.start(sourceAddresses, advertisementFeed)) {
+                return false;
+            }
+            isActive = true;
+            processingHandler.removeMessages(MSG_FIELD_TICK);
+            processingHandler.sendEmptyMessage(MSG_FIELD_TICK);
+            geigerPlayer.setEnabled(true);
+        } else {
+            if (!connect()) return false;
+            isActive = true;
+            // Le sessioni non ancora connesse iniziano a leggere appena si connettono
+            sessionPool.setActive(true);
+            geigerPlayer.setEnabled(sessionPool.connectedCount() > 0);
+        }
+        if (locationProvider != null && !locationProvider.start(geoTagger)) {
+            Log.w(TAG, "Location unavailable, readings will not be geo-tagged");
+        }
+        enterForeground();
+        notifyStatusChanged();
+        return true;
+    }
+
+    public void stopCounter() {
+        isActive = false;
+        if (sessionPool != null) {
+            sessionPool.setActive(false);
+        }
+        if (advertisementScanner != null) {
+            advertisementScanner.stop();
+        }
+        processingHandler.removeMessages(MSG_FIELD_TICK);
+        geigerPlayer.setEnabled(false);
+        doseAccumulator.onStopped();
+        if (locationProvider != null) {
+            locationProvider.stop();
+            geoTagger.reset();
+            GeoReadingIndex index = geoTagger.getIndex();
+            Log.d(TAG, "Geo-tagged readings: " + index.getReadings() + " in " + index.cellCount()
+                    + " cells, " + geoTagger.getUntagged() + " without location");
+        }
+        if (metrics.isEnabled()) {
+            dumpMetrics();
+        }
+        Log.d(TAG, "Reading bus:\n" + readingBus.toText());
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        stopSelf();
+        notifyStatusChanged();
+    }
+
+    /**
+     * false quando nessuna activity mostra le letture: passa alla modalità a basso consumo
+     */
+    public void setInteractive(boolean interactive) {
+        this.interactive = interactive;
+        geigerPlayer.setLowPower(!interactive);
+        if (sessionPool != null) {
+            sessionPool.setBatchSize(interactive ? 1 : BACKGROUND_BATCH_SIZE);
+            sessionPool.setInteractive(interactive);
+        }
+        Log.d(TAG, (interactive ? "Interactive" : "Low-power") + " mode, previous window: " + wakeupMeter);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public ReadingChannel getReadingChannel() {
+        return readingChannel;
+    }
+
+    public boolean isActive() {
+        return isActive;
+    }
+
+    public boolean isPassiveMode() {
+        return passiveMode;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public WakeupMeter getWakeupMeter() {
+        return wakeupMeter;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Indice spaziale delle letture della sessione, o null senza GEO_TAG
+     */
+    public GeoReadingIndex getGeoIndex() {
+        GeoTagger tagger = geoTagger;
+        return tagger != null ? tagger.getIndex() : null;
+    }
+
+    /**
+     * Dose e conteggi al minuto della sessione; interrogabile da qualsiasi thread
+     */
+    public DoseAccumulator getDoseAccumulator() {
+        return doseAccumulator;
+    }
+
+    /**
+     * Bus delle letture, con sequenza, backlog e perdite di ogni consumatore
+     */
+    public ReadingBus getReadingBus() {
+        return readingBus;
+    }
+
+    /**
+     * Scrive le metriche in files/metrics come testo e come istantanea binaria;
+     * ritorna il file binario, o null se non è stato possibile
+     */
+    public File dumpMetrics() {
+        File directory = new File(getFilesDir(), "metrics");
+        if (!directory.isDirectory() && !directory.mkdirs()) return null;
+        String name = String.valueOf(System.currentTimeMillis());
+        File binary = new File(directory, name + ".bin");
+        String text = metrics.toText();
+        try (FileOutputStream out = new FileOutputStream(binary);
+             FileOutputStream textOut = new FileOutputStream(new File(directory, name + ".txt"))) {
+            out.write(metrics.toBytes());
+            textOut.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot dump metrics", e);
+            return null;
+        }
+        Log.d(TAG, "Pipeline metrics:\n" + text);
+        return binary;
+    }
+
+    private void setStatus(Status status) {
+        this.status = status;
+        notifyStatusChanged();
+    }
+
+    private void notifyStatusChanged() {
+        Listener listener = this.listener;
+        if (listener != null) listener.onStatusChanged();
+    }
+
+    private boolean hasConnectPermission() {
+        return ContextCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Il servizio si avvia da solo e resta in primo piano finché il contatore è attivo
+     */
+    private void enterForeground() {
+        ContextCompat.startForegroundService(this, new Intent(this, GeigerCounterService.class));
+
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            manager.createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID, "Contatore Geiger", NotificationManager.IMPORTANCE_LOW));
+        }
+
+        PendingIntent open = PendingIntent.getActivity(this, 0,
+                new Intent(this, DetectorActivity.class).setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP),
+                PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stop = PendingIntent.getService(this, 0,
+                new Intent(this, GeigerCounterService.class).setAction(ACTION_STOP),
+                PendingIntent.FLAG_IMMUTABLE);
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle("Contatore attivo")
+                .setContentText(passiveMode ? "Modalità passiva"
+                        : sourceAddresses.size() == 1 ? sourceAddresses.get(0) : sourceAddresses.size() + " dispositivi")
+                .setContentIntent(open)
+                .addAction(0, "Ferma", stop)
+                .setOngoing(true)
+                .build();
+
+        int type = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            type = ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE;
+            // Il GPS a schermo spento richiede anche il tipo location
+            if (locationProvider != null && locationProvider.hasPermission()) {
+                type |= ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION;
+            }
+        }
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, notification, type);
+    }
+
+    /**
+     * Chiamato sul thread di elaborazione per ogni messaggio
+     */
+    private boolean handleProcessingMessage(Message msg) {
+        wakeupMeter.record(WakeupMeter.Source.PROCESSING);
+        switch (msg.what) {
+            case MSG_RSSI:
+                GattSessionPool pool = sessionPool;
+                if (pool == null) return true;
+                long start = metrics.start();
+                metrics.count(PipelineMetrics.Counter.READS);
+                if (pool.size() == 1) {
+                    radiationCalculator.updateRssi(msg.arg1);
+                    updateRadiationLevel();
+                } else if (isActive) {
+                    // Più dispositivi: ogni sessione è una sorgente del campo, già filtrata dal pool
+                    int session = msg.arg2;
+                    int[] slots = sessionSlots;
+                    // Lettura rimasta in coda da un pool precedente
+                    if (session >= slots.length) return true;
+                    radiationField.update(slots[session], msg.arg1);
+                    publishRadiation(radiationField.strongestRssi(), radiationField.calculateRadiation());
+                }
+                metrics.record(PipelineMetrics.Stage.CALCULATION, start);
+                return true;
+            case MSG_FIELD_TICK:
+                if (isActive) {
+                    long tickStart = metrics.start();
+                    publishRadiation(radiationField.strongestRssi(), radiationField.calculateRadiation());
+                    metrics.record(PipelineMetrics.Stage.CALCULATION, tickStart);
+                }
+                processingHandler.sendEmptyMessageDelayed(MSG_FIELD_TICK,
+                        interactive ? FIELD_TICK_MS : BACKGROUND_FIELD_TICK_MS);
+                return true;
+            case MSG_METER_SAMPLE:
+                wakeupMeter.sample(Process.getElapsedCpuTime());
+                Log.d(TAG, (interactive ? "Interactive: " : "Low-power: ") + wakeupMeter);
+                processingHandler.sendEmptyMessageDelayed(MSG_METER_SAMPLE, METER_SAMPLE_MS);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Chiamato sul thread di elaborazione: calcola il livello e lo pubblica
+     */
+    private void updateRadiationLevel() {
+        if (!isActive) return;
+
+        publishRadiation(radiationCalculator.getCurrentRssi(), radiationCalculator.calculateRadiation());
+    }
+
+    /**
+     * Pubblica la lettura sul bus e la passa subito ai consumatori veloci: prima
+     * l'audio, poi dose e UI. Registrazione e geolocalizzazione la leggono dai
+     * propri thread; un nuovo consumatore si aggiunge al bus, non qui.
+     */
+    private void publishRadiation(int rssi, int radiation) {
+        long now = System.nanoTime();
+        if (timeToFirstReadingMillis < 0 && launchNanos != 0) {
+            timeToFirstReadingMillis = (now - launchNanos) / 1_000_000;
+            Log.d(TAG, "Time to first reading: " + timeToFirstReadingMillis + " ms ("
+                    + (launchedFromCache ? "known device" : "scan") + ")");
+        }
+        readingBus.publish(rssi, radiation, now);
+        audioConsumer.poll();
+        doseConsumer.poll();
+        uiConsumer.poll();
+    }
+
+    /**
+     * Consumatore del bus su un thread a bassa priorità, fermato in onDestroy
+     */
+    private void startConsumerThread(String name, ReadingBus.Handler handler, ReadingBus.WaitStrategy wait) {
+        ReadingBus.Consumer consumer = readingBus.addConsumer(name, handler, wait);
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            consumer.run();
+        }, "ReadingBus-" + name);
+        threadedConsumers.add(consumer);
+        consumerThreads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Ferma i consumatori con thread proprio dopo il thread di elaborazione,
+     * quando hanno smaltito le ultime letture pubblicate
+     */
+    private void stopConsumerThreads() {
+        try {
+            processingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        haltConsumerThreads();
+    }
+
+    /**
+     * Ferma i consumatori con thread proprio e li toglie dal bus
+     */
+    private void haltConsumerThreads() {
+        for (ReadingBus.Consumer consumer : threadedConsumers) {
+            consumer.halt();
+        }
+        try {
+            for (Thread thread : consumerThreads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ReadingBus.Consumer consumer : threadedConsumers) {
+            readingBus.removeConsumer(consumer);
+        }
+        threadedConsumers.clear();
+        consumerThreads.clear();
+    }
+
+    private void startSessionRecording() {
+        File directory = new File(getFilesDir(), "sessions/" + System.currentTimeMillis());
+        try {
+            sessionRecorder = new SessionRecorder(directory, MonotonicClock.SYSTEM);
+            geigerPlayer.setRecorder(sessionRecorder);
+        } catch (IOException e) {
+            Log.e(TAG, "Session recording unavailable", e);
+        }
+    }
+
+    /**
+     * Chiude la registrazione dopo aver fermato i suoi scrittori: il consumatore
+     * del bus e l'audio
+     */
+    private void closeSessionRecording() {
+        if (sessionRecorder == null) return;
+        geigerPlayer.setRecorder(null);
+        try {
+            Log.d(TAG, "Session recorded: " + sessionRecorder.length() + " bytes");
+            sessionRecorder.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close session recording", e);
+        }
+        sessionRecorder = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        isActive = false;
+        if (advertisementScanner != null) {
+            advertisementScanner.stop();
+        }
+        processingThread.quitSafely();
+        geigerPlayer.release();
+        stopConsumerThreads();
+        closeSessionRecording();
+        Log.d(TAG, "Last window: " + wakeupMeter);
+
+        if (sessionPool != null) {
+            for (int i = 0; i < sessionPool.size(); i++) {
+                GattConnectionManager manager = sessionPool.managerOf(i);
+                Log.d(TAG, "GATT " + sessionPool.addressOf(i) + ": "
+                        + sessionPool.getReadsPerMinute(i) + " reads/min, read latency "
+                        + sessionPool.getMeanReadLatency(i) / 1_000_000 + " ms, queue wait "
+                        + sessionPool.getMeanQueueWait(i) / 1_000_000 + " ms, "
+                        + manager.getReconnects() + " reconnects, connect latency "
+                        + manager.getMeanConnectLatency() / 1_000_000 + " ms");
+            }
+            if (hasConnectPermission()) {
+                sessionPool.stop();
+            }
+            sessionPool = null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.fakegeigercounter;
+
+import android.Manifest;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import androidx.core.app.ActivityCompat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Scanner basato su BluetoothLeScanner: il filtro sugli indirizzi viene fatto dal
+ * controller Bluetooth, quindi gli altri dispositivi non svegliano l'app
+ */
+public class LeAdvertisementScanner implements AdvertisementScanner {
+    private static final String TAG = "LeAdvertisementScanner";
+
+    private final Context context;
+    private final BluetoothAdapter bluetoothAdapter;
+    private BluetoothLeScanner scanner;
+    private ScanCallback scanCallback;
+
+    public LeAdvertisementScanner(Context context, BluetoothAdapter bluetoothAdapter) {
+        this.context = context.getApplicationContext();
+        this.bluetoothAdapter = bluetoothAdapter;
+    }
+
+    @Override
+    public boolean start(Collection<String> addresses, Listener listener) {
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN)
+                != PackageManager.PERMISSION_GRANTED) {
+            return false;
+        }
+        scanner = bluetoothAdapter.getBluetoothLeScanner();
+        if (scanner == null) return false;
+
+        List<ScanFilter> filters = new ArrayList<>();
+        for (String address : addresses) {
+            filters.add(new ScanFilter.Builder().setDeviceAddress(address).build());
+        }
+        ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+                .build();
+
+        scanCallback = new ScanCallback() {
+            @Override
+            public void onScanResult(int callbackType, ScanResult result) {
+                listener.onAdvertisement(result.getDevice().getAddress(), result.getRssi());
+            }
+
+            @Override
+            public void onBatchScanResults(List<ScanResult> results) {
+                for (ScanResult result : results) {
+                    listener.onAdvertisement(result.getDevice().getAddress(), result.getRssi());
+                }
+            }
+
+            @Override
+            public void onScanFailed(int errorCode) {
+                Log.e(TAG, "Scan failed with error: " + errorCode);
+            }
+        };
+        scanner.startScan(filters, settings, scanCallback);
+        return true;
+    }
+
+    @Override
+    public void stop() {
+        if (scanner == null || scanCallback == null) return;
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN)
+                == PackageManager.PERMISSION_GRANTED) {
+            scanner.stopScan(scanCallback);
+        }
+        scanCallback = null;
+    }
+}
@@ -7,6 +7,7 @@ import android.bluetooth.BluetoothManager;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
 import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.ScanResult;
 import android.bluetooth.le.ScanSettings;
 import android.content.Context;
@@ -14,12 +15,15 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.ParcelUuid;
 import android.util.Log;
 import android.widget.Button;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import android.content.Intent;
@@ -38,9 +42,30 @@ public class MainActivity extends AppCompatActivity {
     private BluetoothLeScanner bluetoothLeScanner;
     private boolean scanning;
     private Handler handler = new Handler();
+    private final DelayedExecutor mainExecutor = new DelayedExecutor() {
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            handler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            handler.removeCallbacks(task);
+        }
+    };
 
-    // Timeout scansione (10 secondi)
-    private static final long SCAN_PERIOD = 10000;
+    // Filtri, report in blocchi e ciclo di lavoro della scansione
+    private ScanProfile scanProfile;
+    private ScanDutyCycle dutyCycle;
+    private ScanMeter scanMeter;
+    private final Runnable scanTimeout = this::stopScan;
+
+    // Dispositivi già usati: all'avvio ci si ricollega subito mentre la scansione aggiorna la lista
+    private static final long AUTO_SELECT_WINDOW = 300; // ms di scansione prima della scelta automatica
+    private KnownDeviceCache knownDevices;
+    private long launchNanos;
+    private long scanStartMillis;
+    private final Runnable autoSelectTask = this::autoSelectKnownDevice;
     private static final int REQUEST_LOCATION_PERMISSION = 1;
     private static final int REQUEST_PERMISSIONS = 2;
     private static final int REQUEST_ENABLE_BT = 3;
@@ -49,7 +74,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        launchNanos = System.nanoTime();
         setContentView(R.layout.activity_main);
+        scanProfile = readScanProfile(getIntent());
 
         // Verifica permessi
         checkPermissions();
@@ -61,15 +88,18 @@ public class MainActivity extends AppCompatActivity {
         // Setup RecyclerView
         devicesRecyclerView = findViewById(R.id.devicesRecyclerView);
         devicesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new BluetoothDeviceAdapter(this, device -> {
+        adapter = new BluetoothDeviceAdapter(this, address -> {
             // Click su dispositivo
-            Intent intent = new Intent(MainActivity.this, DetectorActivity.class);
-            intent.putExtra("DEVICE_ADDRESS", device.getAddress());
-            startActivity(intent);
+            knownDevices.remember(address, adapter.cachedName(address), adapter.rssiOf(address),
+                    System.currentTimeMillis());
+            openDetector(address, false);
             stopScan();
         });
         devicesRecyclerView.setAdapter(adapter);
 
+        knownDevices = new KnownDeviceCache(new File(getFilesDir(), "known_devices.bin"));
+        knownDevices.load();
+
         // Ottieni BluetoothAdapter
         final BluetoothManager bluetoothManager = (BluetoothManager) getSystemService(Context.BLUETOOTH_SERVICE);
         bluetoothAdapter = bluetoothManager.getAdapter();
@@ -89,6 +119,87 @@ public class MainActivity extends AppCompatActivity {
                 });
 
         checkBluetoothStatus();
+
+        if (savedInstanceState == null && bluetoothAdapter != null) {
+            if (definesSources(getIntent())) {
+                // Sorgenti date all'avvio (es. da adb): niente da scegliere nella lista
+                openDetector(null, false);
+            } else {
+                connectToKnownDevice(getIntent());
+            }
+        }
+    }
+
+    /**
+     * true se l'intent di avvio indica già le sorgenti: più dispositivi o modalità passiva
+     */
+    private static boolean definesSources(Intent intent) {
+        return intent.hasExtra(SessionConfig.SOURCE_ADDRESSES) || intent.hasExtra(SessionConfig.PASSIVE_MODE);
+    }
+
+    /**
+     * Al primo avvio si collega al dispositivo usato più di recente senza aspettare la
+     * scansione, che prosegue in background per aggiornare la lista. Con AUTO_SELECT
+     * sceglie invece il dispositivo noto più forte visto nei primi AUTO_SELECT_WINDOW ms.
+     */
+    private void connectToKnownDevice(Intent intent) {
+        if (!intent.getBooleanExtra("AUTO_CONNECT", true) || knownDevices.size() == 0) return;
+
+        startScan();
+        if (intent.getBooleanExtra("AUTO_SELECT", false) && scanning) {
+            handler.postDelayed(autoSelectTask, AUTO_SELECT_WINDOW);
+        } else {
+            openDetector(knownDevices.mostRecent().address, true);
+        }
+    }
+
+    private void autoSelectKnownDevice() {
+        KnownDeviceCache.Entry entry = knownDevices.strongestSince(scanStartMillis);
+        if (entry == null) {
+            // Nessun dispositivo noto in vista: si prova comunque l'ultimo usato
+            entry = knownDevices.mostRecent();
+        }
+        Log.d("Bluetooth", "Selezione automatica: " + entry.name + " (" + entry.rssi + " dBm)");
+        openDetector(entry.address, true);
+    }
+
+    /**
+     * Dai dispositivi in cache ci si collega e basta: il contatore (e l'audio) parte da
+     * solo solo se l'intent di avvio lo chiede con AUTO_START. LAUNCH_NANOS permette
+     * al servizio di misurare il tempo dall'avvio alla prima lettura. Senza indirizzo
+     * usa le sorgenti dell'intent di avvio (SOURCE_ADDRESSES, PASSIVE_MODE):
+     * DetectorActivity non è esportata e non si può aprire da fuori.
+     */
+    private void openDetector(String address, boolean fromCache) {
+        handler.removeCallbacks(autoSelectTask);
+        Intent intent = new Intent(MainActivity.this, DetectorActivity.class);
+        Intent launch = getIntent();
+        if (address != null) {
+            intent.putExtra("DEVICE_ADDRESS", address);
+        } else {
+            intent.putExtra(SessionConfig.SOURCE_ADDRESSES, launch.getStringArrayExtra(SessionConfig.SOURCE_ADDRESSES));
+            intent.putExtra(SessionConfig.PASSIVE_MODE, launch.getBooleanExtra(SessionConfig.PASSIVE_MODE, false));
+        }
+        forwardSessionOptions(launch, intent);
+        intent.putExtra("LAUNCH_NANOS", launchNanos);
+        intent.putExtra("FROM_CACHE", fromCache);
+        intent.putExtra("AUTO_START", fromCache && launch.getBooleanExtra("AUTO_START", false));
+        startActivity(intent);
+    }
+
+    /**
+     * Opzioni di sessione dell'intent di avvio (filtro, curva, registrazione, metriche,
+     * geolocalizzazione, attesa del bus), valide per ogni rilevatore aperto da qui
+     */
+    private static void forwardSessionOptions(Intent launch, Intent detector) {
+        for (String name : SessionConfig.STRING_EXTRAS) {
+            if (name.equals(SessionConfig.DEVICE_ADDRESS) || !launch.hasExtra(name)) continue;
+            detector.putExtra(name, launch.getStringExtra(name));
+        }
+        for (String name : SessionConfig.BOOLEAN_EXTRAS) {
+            if (name.equals(SessionConfig.PASSIVE_MODE) || !launch.hasExtra(name)) continue;
+            detector.putExtra(name, launch.getBooleanExtra(name, false));
+        }
     }
 
     private void checkBluetoothStatus() {
@@ -113,47 +224,202 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Profilo di scansione dagli extra dell'intent (es. da adb); senza extra la
+     * scansione è continua, senza filtri hardware e senza ritardo dei report
+     */
+    private static ScanProfile readScanProfile(Intent intent) {
+        ScanProfile profile = new ScanProfile();
+        profile.setMode(ScanProfile.Mode.fromName(intent.getStringExtra("SCAN_MODE"), ScanProfile.Mode.LOW_LATENCY));
+        profile.setServiceUuid(intent.getStringExtra("SCAN_SERVICE_UUID"));
+        profile.setNamePrefix(intent.getStringExtra("SCAN_NAME_PREFIX"));
+        int manufacturerId = intent.getIntExtra("SCAN_MANUFACTURER_ID", ScanProfile.NO_MANUFACTURER);
+        if (manufacturerId != ScanProfile.NO_MANUFACTURER) {
+            byte[] data = ScanProfile.parseHex(intent.getStringExtra("SCAN_MANUFACTURER_DATA"));
+            byte[] mask = ScanProfile.parseHex(intent.getStringExtra("SCAN_MANUFACTURER_MASK"));
+            if (data == null || (mask != null && mask.length != data.length)) mask = null;
+            profile.setManufacturerData(manufacturerId, data, mask);
+        }
+        profile.setReportDelayMillis(intent.getLongExtra("SCAN_REPORT_DELAY", 0));
+        profile.setDutyCycle(intent.getLongExtra("SCAN_DUTY_ON", 0), intent.getLongExtra("SCAN_DUTY_OFF", 0));
+        profile.setTimeoutMillis(intent.getLongExtra("SCAN_TIMEOUT", ScanProfile.DEFAULT_TIMEOUT));
+        return profile;
+    }
+
     private void startScan() {
-        handler.postDelayed(() -> stopScan(), SCAN_PERIOD);
-        scanning = true;
+        bluetoothLeScanner = bluetoothAdapter.getBluetoothLeScanner();
+        if (bluetoothLeScanner == null) return;
         adapter.clearDevices();
+        // I dispositivi noti compaiono subito, con l'ultimo RSSI visto
+        for (KnownDeviceCache.Entry entry : knownDevices.entries()) {
+            adapter.onScanResult(entry.address, entry.name, entry.rssi);
+        }
+        scanMeter = new ScanMeter(MonotonicClock.SYSTEM);
+        scanStartMillis = System.currentTimeMillis();
 
-        bluetoothLeScanner = bluetoothAdapter.getBluetoothLeScanner();
-        ScanSettings settings = new ScanSettings.Builder()
-                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
-                .build();
+        long onMillis = scanProfile.isDutyCycled() ? scanProfile.getDutyOnMillis() : 0;
+        dutyCycle = new ScanDutyCycle(mainExecutor, scanWindow, onMillis, scanProfile.getDutyOffMillis());
+        if (!dutyCycle.start()) {
+            dutyCycle = null;
+            return;
+        }
+        scanning = true;
+        handler.postDelayed(scanTimeout, scanProfile.getTimeoutMillis());
+        Log.d("Bluetooth", "Scansione avviata: " + scanProfile);
+    }
 
+    private void stopScan() {
+        handler.removeCallbacks(scanTimeout);
+        handler.removeCallbacks(autoSelectTask);
+        if (dutyCycle != null) {
+            dutyCycle.stop();
+            dutyCycle = null;
+            Log.d("Bluetooth", scanMeter.toString());
+        }
+        scanning = false;
+        saveKnownDevices();
+    }
+
+    /**
+     * Poche centinaia di byte: il salvataggio sul main thread è trascurabile
+     */
+    private void saveKnownDevices() {
+        try {
+            knownDevices.save();
+        } catch (IOException e) {
+            Log.e("Bluetooth", "Cannot save known devices", e);
+        }
+    }
+
+    /**
+     * Una finestra del ciclo di lavoro: i filtri vanno al controller, che sveglia
+     * l'app solo per i dispositivi che passano e, se supportato, a blocchi
+     */
+    private final ScanDutyCycle.Window scanWindow = new ScanDutyCycle.Window() {
+        @Override
+        public boolean open() {
+            if (ActivityCompat.checkSelfPermission(MainActivity.this, Manifest.permission.BLUETOOTH_SCAN)
+                    != PackageManager.PERMISSION_GRANTED) {
+                return false;
+            }
+            bluetoothLeScanner.startScan(buildScanFilters(), buildScanSettings(), scanCallback);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (ActivityCompat.checkSelfPermission(MainActivity.this, Manifest.permission.BLUETOOTH_SCAN)
+                    != PackageManager.PERMISSION_GRANTED) {
+                return;
+            }
+            // I risultati ancora accumulati nel controller andrebbero persi con stopScan
+            if (scanProfile.getReportDelayMillis() > 0) {
+                bluetoothLeScanner.flushPendingScanResults(scanCallback);
+            }
+            bluetoothLeScanner.stopScan(scanCallback);
+        }
+    };
+
+    private List<ScanFilter> buildScanFilters() {
         List<ScanFilter> filters = new ArrayList<>();
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED) {
-            bluetoothLeScanner.startScan(filters, settings, scanCallback);
+        if (!scanProfile.hasHardwareFilter()) return filters;
+        if (!bluetoothAdapter.isOffloadedFilteringSupported()) {
+            Log.d("Bluetooth", "Filtri hardware non supportati, filtra lo stack Bluetooth");
+        }
+
+        ScanFilter.Builder builder = new ScanFilter.Builder();
+        if (scanProfile.getServiceUuid() != null) {
+            try {
+                builder.setServiceUuid(ParcelUuid.fromString(scanProfile.getServiceUuid()));
+            } catch (IllegalArgumentException e) {
+                Log.e("Bluetooth", "UUID di servizio non valido: " + scanProfile.getServiceUuid());
+            }
         }
+        if (scanProfile.getManufacturerId() != ScanProfile.NO_MANUFACTURER) {
+            byte[] data = scanProfile.getManufacturerData();
+            if (data == null) {
+                builder.setManufacturerData(scanProfile.getManufacturerId(), new byte[0]);
+            } else if (scanProfile.getManufacturerMask() == null) {
+                builder.setManufacturerData(scanProfile.getManufacturerId(), data);
+            } else {
+                builder.setManufacturerData(scanProfile.getManufacturerId(), data, scanProfile.getManufacturerMask());
+            }
+        }
+        filters.add(builder.build());
+        return filters;
     }
 
-    private void stopScan() {
-        if (bluetoothLeScanner != null) {
-            if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED) {
-                bluetoothLeScanner.stopScan(scanCallback);
+    private ScanSettings buildScanSettings() {
+        int mode;
+        switch (scanProfile.getMode()) {
+            case LOW_POWER:
+                mode = ScanSettings.SCAN_MODE_LOW_POWER;
+                break;
+            case BALANCED:
+                mode = ScanSettings.SCAN_MODE_BALANCED;
+                break;
+            default:
+                mode = ScanSettings.SCAN_MODE_LOW_LATENCY;
+                break;
+        }
+        ScanSettings.Builder builder = new ScanSettings.Builder().setScanMode(mode);
+        if (scanProfile.getReportDelayMillis() > 0) {
+            if (bluetoothAdapter.isOffloadedScanBatchingSupported()) {
+                builder.setReportDelay(scanProfile.getReportDelayMillis());
+            } else {
+                Log.d("Bluetooth", "Report in blocchi non supportati, risultati uno alla volta");
             }
         }
-        scanning = false;
+        return builder.build();
     }
 
     private ScanCallback scanCallback = new ScanCallback() {
         @Override
         public void onScanResult(int callbackType, ScanResult result) {
-            super.onScanResult(callbackType, result);
-            runOnUiThread(() -> {
-                BluetoothDevice device = result.getDevice();
-                if (ActivityCompat.checkSelfPermission(MainActivity.this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-                    checkPermissions();
-                }
-                if (device != null && device.getName() != null) {
-                    adapter.addDevice(device);
-                }
-            });
+            scanMeter.recordCallback(1);
+            handleScanResult(result);
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            scanMeter.recordCallback(results.size());
+            for (ScanResult result : results) {
+                handleScanResult(result);
+            }
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            Log.e("Bluetooth", "Scan failed with error: " + errorCode);
         }
     };
 
+    /**
+     * Sul thread dello scanner: l'adapter accumula e aggiorna la lista una volta per frame
+     */
+    private void handleScanResult(ScanResult result) {
+        BluetoothDevice device = result.getDevice();
+        if (device == null) return;
+        String address = device.getAddress();
+        knownDevices.refresh(address, result.getRssi(), System.currentTimeMillis());
+        String name = adapter.cachedName(address);
+        if (name == null) {
+            // Prima il nome nell'advertisement, poi quello noto al sistema (richiede il permesso)
+            ScanRecord record = result.getScanRecord();
+            name = record != null ? record.getDeviceName() : null;
+            if (name == null && ActivityCompat.checkSelfPermission(MainActivity.this,
+                    Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
+                name = device.getName();
+            }
+        }
+        // Il prefisso del nome non si può filtrare in hardware
+        if (!scanProfile.matchesName(name)) {
+            scanMeter.recordRejected();
+            return;
+        }
+        adapter.onScanResult(address, name, result.getRssi());
+    }
+
     private void checkPermissions() {
         List<String> permissionsNeeded = new ArrayList<>();
 
@@ -0,0 +1,35 @@
+package com.example.fakegeigercounter;
+
+import android.content.Context;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Colori di sfondo delle fasce di RadiationBands, stesso ordine
+ */
+public final class RadiationBandColors {
+    private static final int[] COLOR_RES = {
+            R.color.radiation_background_normal,
+            R.color.radiation_background_light,
+            R.color.radiation_background_moderate,
+            R.color.radiation_background_high,
+            R.color.radiation_background_danger,
+            R.color.radiation_background_emergency,
+            R.color.radiation_background_critical,
+            R.color.radiation_background_lethal
+    };
+
+    private RadiationBandColors() {
+    }
+
+    /**
+     * Risolve una volta sola i colori ARGB di tutte le fasce
+     */
+    public static int[] resolve(Context context) {
+        int[] colors = new int[RadiationBands.COUNT];
+        for (int band = 0; band < colors.length; band++) {
+            colors[band] = ContextCompat.getColor(context, COLOR_RES[band]);
+        }
+        return colors;
+    }
+}
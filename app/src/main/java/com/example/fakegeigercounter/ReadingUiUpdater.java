@@ -0,0 +1,137 @@
+package com.example.fakegeigercounter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Porta le letture pubblicate sul ReadingChannel alla UI al massimo una volta per
+ * frame, e solo se il valore o la fascia mostrati cambiano davvero.
+ * Va creato sul main thread; onReadingPublished può essere chiamato da qualsiasi thread.
+ */
+public class ReadingUiUpdater implements Choreographer.FrameCallback {
+    public interface Display {
+        void show(int radiation, int band);
+    }
+
+    private static final int NOTHING_SHOWN = -1;
+
+    private final ReadingChannel channel;
+    private final Display display;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    private final Runnable requestFrame = () -> choreographer.postFrameCallback(this);
+    private volatile PipelineMetrics metrics;
+    // Pubblicazione che ha chiesto il frame in attesa, per UI_POST
+    private volatile long pendingSince;
+
+    // Solo main thread
+    private int shownRadiation = NOTHING_SHOWN;
+    private int shownBand = NOTHING_SHOWN;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+
+    public ReadingUiUpdater(ReadingChannel channel, Display display) {
+        this.channel = channel;
+        this.display = display;
+    }
+
+    /**
+     * Misura il tempo dalla pubblicazione alla fine del frame che la mostra
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Segnala una nuova lettura: chiede un frame solo se non ce n'è già uno in attesa
+     */
+    public void onReadingPublished() {
+        published.incrementAndGet();
+        if (framePending.compareAndSet(false, true)) {
+            PipelineMetrics metrics = this.metrics;
+            pendingSince = metrics != null ? metrics.start() : 0;
+            mainHandler.post(requestFrame);
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        long since = pendingSince;
+        framePending.set(false);
+
+        long reading = channel.read();
+        if (reading == ReadingChannel.EMPTY) return;
+
+        int radiation = ReadingChannel.radLevel(reading);
+        int band = ReadingChannel.band(reading);
+        if (radiation == shownRadiation && band == shownBand) {
+            unchanged.incrementAndGet();
+        } else {
+            shownRadiation = radiation;
+            shownBand = band;
+            display.show(radiation, band);
+            applied.incrementAndGet();
+        }
+
+        // Anche i frame senza cambiamenti: il passaggio alla UI costa comunque
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) metrics.record(PipelineMetrics.Stage.UI_POST, since);
+    }
+
+    /**
+     * La UI è stata modificata da fuori (es. reset): la prossima lettura va ridisegnata
+     */
+    public void invalidate() {
+        shownRadiation = NOTHING_SHOWN;
+        shownBand = NOTHING_SHOWN;
+    }
+
+    /**
+     * Ridisegna l'ultima lettura pubblicata senza aspettarne una nuova (es. activity ricreata)
+     */
+    public void refresh() {
+        invalidate();
+        if (framePending.compareAndSet(false, true)) {
+            pendingSince = 0;
+            mainHandler.post(requestFrame);
+        }
+    }
+
+    public void cancel() {
+        mainHandler.removeCallbacks(requestFrame);
+        choreographer.removeFrameCallback(this);
+        framePending.set(false);
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * Letture arrivate mentre un frame era già in attesa, quindi fuse con altre
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Frame in cui la lettura non cambiava nulla di visibile
+     */
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    public long getApplied() {
+        return applied.get();
+    }
+}
@@ -0,0 +1,29 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    jmh(project(":core"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    // gc riporta gc.alloc.rate.norm, i byte allocati per operazione
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("s")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+}
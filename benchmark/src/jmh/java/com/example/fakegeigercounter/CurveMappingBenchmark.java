@@ -0,0 +1,74 @@
+package com.example.fakegeigercounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tabelle precompilate contro il calcolo diretto delle curve (Math.pow/log)
+ * e contro una mappa RSSI → radiazioni. Una operazione = una conversione.
+ */
+@State(Scope.Thread)
+public class CurveMappingBenchmark {
+    private static final int TRACE_LENGTH = 4096;
+
+    private final RadiationCurve curve = RadiationCurveType.LOG_DISTANCE.create();
+    private CurveTables tables;
+    private Map<Integer, Integer> map;
+    private int[] trace;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        tables = CurveTables.compile(curve);
+        map = new HashMap<>();
+        for (int rssi = CurveTables.MIN_RSSI; rssi <= CurveTables.MAX_RSSI; rssi++) {
+            map.put(rssi, tables.radiationFor(rssi));
+        }
+        trace = RssiWorkload.NOISY.generate(TRACE_LENGTH, 3);
+    }
+
+    private int nextRssi() {
+        int rssi = trace[index];
+        index = (index + 1) & (TRACE_LENGTH - 1);
+        return rssi;
+    }
+
+    @Benchmark
+    public int table() {
+        return tables.radiationFor(nextRssi());
+    }
+
+    @Benchmark
+    public int direct() {
+        return Math.max(0, Math.min(CurveTables.MAX_RAD, (int) curve.radiation(nextRssi())));
+    }
+
+    @Benchmark
+    public int hashMap() {
+        return map.get(nextRssi());
+    }
+
+    /**
+     * Livello di radiazioni 0-1000 derivato dalla traccia, per le curve della frequenza
+     */
+    private int nextRadLevel() {
+        return Math.min(CurveTables.MAX_RAD, (nextRssi() - CurveTables.MIN_RSSI) * 7);
+    }
+
+    @Benchmark
+    public float frequencyTable() {
+        return CurveTables.frequencyFor(nextRadLevel());
+    }
+
+    @Benchmark
+    public float frequencyPow() {
+        float normalized = nextRadLevel() / (float) CurveTables.MAX_RAD;
+        return CurveTables.MIN_FREQ
+                + (CurveTables.MAX_FREQ - CurveTables.MIN_FREQ) * (float) Math.pow(normalized, 2.5);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.fakegeigercounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Campo con più sorgenti: ogni advertisement aggiorna un beacon e il livello
+ * viene ricalcolato sul totale. Una operazione = un advertisement.
+ */
+@State(Scope.Thread)
+public class MultiBeaconBenchmark {
+    private static final int TRACE_LENGTH = 4096;
+
+    @Param({"4", "32", "256"})
+    public int beacons;
+
+    private final VirtualClock clock = new VirtualClock();
+    private RadiationField field;
+    private String[] addresses;
+    private int[] trace;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        field = new RadiationField(clock, beacons);
+        addresses = new String[beacons];
+        for (int i = 0; i < beacons; i++) {
+            addresses[i] = String.format("AA:BB:CC:00:%02X:%02X", i >> 8, i & 0xFF);
+            field.register(addresses[i], 1f);
+        }
+        trace = RssiWorkload.WALKING.generate(TRACE_LENGTH, 7);
+    }
+
+    @Benchmark
+    public int advertisement() {
+        clock.advance(1_000_000L);
+        field.update(addresses[index % beacons], trace[index]);
+        index = (index + 1) & (TRACE_LENGTH - 1);
+        return field.calculateRadiation();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.fakegeigercounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Costo delle metriche sul percorso caldo: una misura completa (start + record)
+ * con le metriche accese e spente, e la registrazione contesa da più thread.
+ */
+@State(Scope.Benchmark)
+public class PipelineMetricsBenchmark {
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private PipelineMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        metrics = new PipelineMetrics(MonotonicClock.SYSTEM);
+        metrics.setEnabled(enabled);
+    }
+
+    @Benchmark
+    public void measure() {
+        long start = metrics.start();
+        metrics.record(PipelineMetrics.Stage.CALCULATION, start);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void measureContended() {
+        long start = metrics.start();
+        metrics.record(PipelineMetrics.Stage.CALCULATION, start);
+        metrics.count(PipelineMetrics.Counter.READS);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.fakegeigercounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Costo di una pubblicazione sul bus per il thread di elaborazione: publish più
+ * il poll dei consumatori veloci, con altri consumatori registrati che non
+ * leggono mai (fermi, quindi continuamente superati dal produttore).
+ */
+@State(Scope.Benchmark)
+public class ReadingBusBenchmark {
+    @Param({"0", "2"})
+    public int stalledConsumers;
+
+    private ReadingBus bus;
+    private ReadingBus.Consumer audio;
+    private ReadingBus.Consumer ui;
+    private long sequence;
+    private long sink;
+
+    @Setup
+    public void setUp() {
+        bus = new ReadingBus();
+        audio = bus.addConsumer("audio", (rssi, radLevel, nanos) -> sink += radLevel,
+                ReadingBus.WaitStrategy.BLOCKING);
+        ui = bus.addConsumer("ui", (rssi, radLevel, nanos) -> sink += rssi,
+                ReadingBus.WaitStrategy.BLOCKING);
+        for (int i = 0; i < stalledConsumers; i++) {
+            bus.addConsumer("stalled" + i, (rssi, radLevel, nanos) -> { }, ReadingBus.WaitStrategy.BLOCKING);
+        }
+    }
+
+    @Benchmark
+    public long publishAndPoll() {
+        long n = sequence++;
+        bus.publish(-(int) (n & 127), (int) (n % 1001), n);
+        audio.poll();
+        ui.poll();
+        return sink;
+    }
+}
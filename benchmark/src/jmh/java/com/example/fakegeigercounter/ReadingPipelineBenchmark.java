@@ -0,0 +1,55 @@
+package com.example.fakegeigercounter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Percorso completo di una lettura: filtro, curva, decisione dell'impulso e
+ * aggiornamento della frequenza dei click. Una operazione = una lettura RSSI.
+ */
+@State(Scope.Thread)
+public class ReadingPipelineBenchmark {
+    private static final int TRACE_LENGTH = 4096;
+    private static final long READING_INTERVAL = 100_000_000L; // 10 letture al secondo
+
+    @Param({"STATIC", "WALKING", "NOISY"})
+    public RssiWorkload workload;
+
+    @Param({"NONE", "MEDIAN", "KALMAN"})
+    public RssiFilterType filter;
+
+    @Param({"LINEAR", "LOG_DISTANCE"})
+    public RadiationCurveType curve;
+
+    private int[] trace;
+    private int index;
+    private VirtualClock clock;
+    private RadiationCalculator calculator;
+    private ClickSynthesizer synthesizer;
+    private int pulses;
+
+    @Setup
+    public void setUp() {
+        trace = workload.generate(TRACE_LENGTH, 42);
+        clock = new VirtualClock();
+        calculator = new RadiationCalculator(clock, new PulseEngine(1));
+        calculator.setRssiFilter(filter.create());
+        calculator.setCurve(curve.create());
+        synthesizer = new ClickSynthesizer(new PcmClip(new short[64], 44100), 64, 256, new PulseEngine(2));
+    }
+
+    @Benchmark
+    public int reading() {
+        clock.advance(READING_INTERVAL);
+        calculator.updateRssi(trace[index]);
+        index = (index + 1) & (TRACE_LENGTH - 1);
+
+        int radiation = calculator.calculateRadiation();
+        synthesizer.setRate(radiation > 0 ? CurveTables.frequencyFor(radiation) : 0);
+        if (calculator.shouldTriggerPulse()) pulses++;
+        return pulses;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Tracce RSSI sintetiche e riproducibili per i benchmark
+ */
+public enum RssiWorkload {
+    /** Sorgente ferma a distanza costante, con il rumore tipico di ±2 dB */
+    STATIC {
+        @Override
+        int sample(int i, int length, PulseEngine random) {
+            return -65 + random.nextInt(5) - 2;
+        }
+    },
+    /** Avvicinamento a passo d'uomo da -95 a -35 dBm, poi di nuovo lontano */
+    WALKING {
+        @Override
+        int sample(int i, int length, PulseEngine random) {
+            double phase = Math.abs(2.0 * i / length - 1.0);
+            return (int) (-35 - 60 * phase) + random.nextInt(5) - 2;
+        }
+    },
+    /** Multipath e interferenze: ±12 dB con picchi isolati */
+    NOISY {
+        @Override
+        int sample(int i, int length, PulseEngine random) {
+            int rssi = -70 + random.nextInt(25) - 12;
+            return random.nextInt(20) == 0 ? rssi + 25 : rssi;
+        }
+    };
+
+    abstract int sample(int i, int length, PulseEngine random);
+
+    public int[] generate(int length, long seed) {
+        PulseEngine random = new PulseEngine(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = sample(i, length, random);
+        }
+        return trace;
+    }
+}
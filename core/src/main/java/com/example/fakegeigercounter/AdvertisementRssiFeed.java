@@ -0,0 +1,44 @@
+package com.example.fakegeigercounter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Porta gli RSSI degli advertisement delle sorgenti scelte nel RadiationField,
+ * scartando quelli di altri dispositivi
+ */
+public class AdvertisementRssiFeed implements AdvertisementScanner.Listener {
+    // Costruita una volta e poi solo letta, quindi sicura da più thread
+    private final Map<String, Integer> slotByAddress = new HashMap<>();
+    private final RadiationField field;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+
+    public AdvertisementRssiFeed(Collection<String> addresses, RadiationField field) {
+        this.field = field;
+        for (String address : addresses) {
+            slotByAddress.put(address, field.register(address, 1f));
+        }
+    }
+
+    @Override
+    public void onAdvertisement(String address, int rssi) {
+        Integer slot = slotByAddress.get(address);
+        if (slot == null) {
+            ignored.incrementAndGet();
+            return;
+        }
+        field.update(slot, rssi);
+        accepted.incrementAndGet();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getIgnored() {
+        return ignored.get();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.fakegeigercounter;
+
+import java.util.Collection;
+
+/**
+ * Sorgente di RSSI dagli advertisement BLE, senza connessione GATT
+ */
+public interface AdvertisementScanner {
+    interface Listener {
+        /**
+         * Chiamato dal thread dello scanner per ogni advertisement ricevuto
+         */
+        void onAdvertisement(String address, int rssi);
+    }
+
+    /**
+     * Avvia la scansione continua limitata agli indirizzi dati; ritorna false se non è possibile
+     */
+    boolean start(Collection<String> addresses, Listener listener);
+
+    void stop();
+}
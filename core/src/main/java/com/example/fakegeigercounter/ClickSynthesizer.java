@@ -0,0 +1,202 @@
+package com.example.fakegeigercounter;
+
+import java.io.IOException;
+
+/**
+ * Sintetizza i click mixandoli direttamente in buffer PCM alla posizione esatta
+ * in campioni. Gli istanti seguono un processo di Poisson (PulseEngine) e le voci
+ * sovrapposte vengono sommate, quindi anche migliaia di click al secondo restano
+ * precisi. Il rendering non alloca: tutti i buffer sono creati nel costruttore.
+ * Se è disponibile un ClickVariantBank ogni click usa una variante pre-renderizzata
+ * scelta a caso, altrimenti il campione base con un guadagno casuale.
+ */
+public class ClickSynthesizer {
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final int UNITY_GAIN = 1 << 15;
+    private static final float VOLUME_VARIATION = 0.15f; // ±15% variazione volume
+
+    /**
+     * Notificato sul thread di rendering per ogni click, con la posizione in campioni
+     */
+    public interface PulseListener {
+        void onPulse(long samplePosition);
+    }
+
+    private final short[] click;
+    private final int sampleRate;
+    private final PulseEngine pulses;
+    private final int[] mix;
+
+    // Voci attive: campione, posizione nel campione, offset di partenza nel buffer corrente e guadagno Q15
+    private final short[][] voiceSamples;
+    private final int[] voicePosition;
+    private final int[] voiceOffset;
+    private final int[] voiceGain;
+    private final boolean[] voiceActive;
+
+    private volatile ClickVariantBank variantBank;
+    private volatile PulseListener pulseListener;
+    private volatile float targetRate = 0;
+    private float appliedRate = 0;
+    private long position = 0;
+    private long nextClickSample = NEVER;
+    private long clicks = 0;
+    private long stolenVoices = 0;
+
+    public ClickSynthesizer(PcmClip click, int maxVoices, int maxFrames, PulseEngine pulses) {
+        this.click = click.getSamples();
+        this.sampleRate = click.getSampleRate();
+        this.pulses = pulses;
+        this.mix = new int[maxFrames];
+        this.voiceSamples = new short[maxVoices][];
+        this.voicePosition = new int[maxVoices];
+        this.voiceOffset = new int[maxVoices];
+        this.voiceGain = new int[maxVoices];
+        this.voiceActive = new boolean[maxVoices];
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Usa le varianti pre-renderizzate per i click successivi; può essere chiamato da qualsiasi thread
+     */
+    public void setVariantBank(ClickVariantBank bank) {
+        if (bank.getSampleRate() != sampleRate) throw new IllegalArgumentException("sample rate mismatch");
+        this.variantBank = bank;
+    }
+
+    /**
+     * Riceve ogni click generato; null per rimuoverlo
+     */
+    public void setPulseListener(PulseListener listener) {
+        this.pulseListener = listener;
+    }
+
+    /**
+     * Imposta i click medi al secondo; può essere chiamato da qualsiasi thread
+     */
+    public void setRate(float clicksPerSecond) {
+        targetRate = Math.max(0, clicksPerSecond);
+    }
+
+    /**
+     * Riempie out con i prossimi frames campioni
+     */
+    public void render(short[] out, int frames) {
+        if (frames > mix.length) throw new IllegalArgumentException("frames > maxFrames");
+
+        float rate = targetRate;
+        if (rate != appliedRate) {
+            // Il processo è senza memoria: al cambio di rate basta estrarre un nuovo intervallo
+            appliedRate = rate;
+            pulses.setRate(rate);
+            nextClickSample = rate > 0 ? position + nextIntervalSamples() : NEVER;
+        }
+
+        long end = position + frames;
+        while (nextClickSample < end) {
+            startVoice((int) (nextClickSample - position));
+            nextClickSample += nextIntervalSamples();
+        }
+
+        for (int i = 0; i < frames; i++) {
+            mix[i] = 0;
+        }
+        for (int v = 0; v < voiceActive.length; v++) {
+            if (voiceActive[v]) mixVoice(v, frames);
+        }
+        for (int i = 0; i < frames; i++) {
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+        }
+        position = end;
+    }
+
+    /**
+     * Renderizza frames campioni in blocchi di buffer.length e li scrive sul sink
+     */
+    public void renderTo(PcmSink sink, short[] buffer, long frames) throws IOException {
+        int block = Math.min(buffer.length, mix.length);
+        while (frames > 0) {
+            int n = (int) Math.min(block, frames);
+            render(buffer, n);
+            sink.write(buffer, n);
+            frames -= n;
+        }
+    }
+
+    private void mixVoice(int v, int frames) {
+        short[] samples = voiceSamples[v];
+        int start = voiceOffset[v];
+        int from = voicePosition[v];
+        int n = Math.min(frames - start, samples.length - from);
+        int gain = voiceGain[v];
+        for (int i = 0; i < n; i++) {
+            mix[start + i] += (samples[from + i] * gain) >> 15;
+        }
+        voicePosition[v] = from + n;
+        voiceOffset[v] = 0;
+        if (voicePosition[v] >= samples.length) {
+            voiceActive[v] = false;
+        }
+    }
+
+    private void startVoice(int offset) {
+        // Usa una voce libera, altrimenti ruba quella più avanti nel click (la meno udibile)
+        int voice = -1;
+        int furthest = -1;
+        for (int v = 0; v < voiceActive.length; v++) {
+            if (!voiceActive[v]) {
+                voice = v;
+                break;
+            }
+            if (voicePosition[v] > furthest) {
+                furthest = voicePosition[v];
+                voice = v;
+            }
+        }
+        if (voiceActive[voice]) stolenVoices++;
+
+        ClickVariantBank bank = variantBank;
+        if (bank != null) {
+            voiceSamples[voice] = bank.variant(pulses.nextInt(bank.size()));
+            voiceGain[voice] = UNITY_GAIN;
+        } else {
+            voiceSamples[voice] = click;
+            voiceGain[voice] = (int) (UNITY_GAIN * (1.0 - pulses.nextDouble() * VOLUME_VARIATION));
+        }
+        voiceActive[voice] = true;
+        voicePosition[voice] = 0;
+        voiceOffset[voice] = offset;
+        clicks++;
+
+        PulseListener listener = pulseListener;
+        if (listener != null) listener.onPulse(position + offset);
+    }
+
+    private long nextIntervalSamples() {
+        long nanos = pulses.nextIntervalNanos();
+        if (nanos == Long.MAX_VALUE) return NEVER;
+        // Almeno un campione tra due click, così il ciclo di render termina sempre
+        return Math.max(1, (long) (nanos * (sampleRate / 1e9)));
+    }
+
+    /**
+     * Posizione corrente in campioni dall'inizio del rendering
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    /**
+     * Click che hanno dovuto interrompere una voce ancora in riproduzione
+     */
+    public long getStolenVoices() {
+        return stolenVoices;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.fakegeigercounter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Varianti del click pre-renderizzate con pitch e volume diversi, così durante
+ * la riproduzione basta scegliere un indice a caso invece di ricampionare.
+ * Il banco viene salvato su file e riletto agli avvii successivi.
+ */
+public class ClickVariantBank {
+    public static final int PITCH_STEPS = 32;
+    public static final int GAIN_STEPS = 4;
+    private static final float PITCH_VARIATION = 0.2f;   // ±20% variazione pitch
+    private static final float VOLUME_VARIATION = 0.15f; // fino a -15% di volume
+    private static final int MAGIC = 0x434c4b42;        // "CLKB"
+    private static final int VERSION = 1;
+
+    private final short[][] variants;
+    private final int sampleRate;
+
+    private ClickVariantBank(short[][] variants, int sampleRate) {
+        this.variants = variants;
+        this.sampleRate = sampleRate;
+    }
+
+    public static ClickVariantBank build(PcmClip click) {
+        short[] source = click.getSamples();
+        short[][] variants = new short[PITCH_STEPS * GAIN_STEPS][];
+        for (int p = 0; p < PITCH_STEPS; p++) {
+            float pitch = 1 - PITCH_VARIATION + 2 * PITCH_VARIATION * p / (PITCH_STEPS - 1);
+            for (int g = 0; g < GAIN_STEPS; g++) {
+                float gain = 1 - VOLUME_VARIATION * g / (GAIN_STEPS - 1);
+                variants[p * GAIN_STEPS + g] = resample(source, pitch, gain);
+            }
+        }
+        return new ClickVariantBank(variants, click.getSampleRate());
+    }
+
+    /**
+     * Ricampionamento con interpolazione lineare: pitch > 1 accorcia e alza il suono
+     */
+    private static short[] resample(short[] source, float pitch, float gain) {
+        int length = (int) ((source.length - 1) / pitch) + 1;
+        short[] out = new short[length];
+        for (int i = 0; i < length; i++) {
+            float position = i * pitch;
+            int index = (int) position;
+            float fraction = position - index;
+            float a = source[index];
+            float b = index + 1 < source.length ? source[index + 1] : 0;
+            out[i] = (short) Math.round((a + (b - a) * fraction) * gain);
+        }
+        return out;
+    }
+
+    /**
+     * Legge il banco dalla cache se è stato generato dallo stesso click, altrimenti
+     * lo genera e aggiorna la cache
+     */
+    public static ClickVariantBank loadOrBuild(PcmClip click, File cacheFile) {
+        int sourceHash = Arrays.hashCode(click.getSamples());
+        if (cacheFile.exists()) {
+            try {
+                ClickVariantBank cached = read(cacheFile, sourceHash, click.getSampleRate());
+                if (cached != null) return cached;
+            } catch (IOException e) {
+                // Cache corrotta o di una versione precedente: si rigenera
+            }
+        }
+
+        ClickVariantBank bank = build(click);
+        try {
+            bank.write(cacheFile, sourceHash);
+        } catch (IOException e) {
+            cacheFile.delete();
+        }
+        return bank;
+    }
+
+    private static ClickVariantBank read(File file, int sourceHash, int sampleRate) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readInt() != sourceHash || in.readInt() != sampleRate
+                    || in.readInt() != PITCH_STEPS || in.readInt() != GAIN_STEPS) {
+                return null;
+            }
+            short[][] variants = new short[PITCH_STEPS * GAIN_STEPS][];
+            for (int v = 0; v < variants.length; v++) {
+                short[] samples = new short[in.readInt()];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = in.readShort();
+                }
+                variants[v] = samples;
+            }
+            return new ClickVariantBank(variants, sampleRate);
+        }
+    }
+
+    private void write(File file, int sourceHash) throws IOException {
+        // Scrive su un file temporaneo e lo rinomina, così un avvio interrotto non lascia cache parziali
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sourceHash);
+            out.writeInt(sampleRate);
+            out.writeInt(PITCH_STEPS);
+            out.writeInt(GAIN_STEPS);
+            for (short[] samples : variants) {
+                out.writeInt(samples.length);
+                for (short sample : samples) {
+                    out.writeShort(sample);
+                }
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot rename " + tmp);
+        }
+    }
+
+    public int size() {
+        return variants.length;
+    }
+
+    public short[] variant(int index) {
+        return variants[index];
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Priorità della connessione GATT (intervallo di connessione richiesto al controller)
+ */
+public enum ConnectionPriority {
+    BALANCED,   // 30-50 ms
+    HIGH,       // 7.5-15 ms, letture RSSI più rapide
+    LOW_POWER   // 100-125 ms
+}
@@ -0,0 +1,63 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Tabelle precompilate delle curve RSSI → radiazioni e radiazioni → frequenza dei click.
+ * Sono immutabili: per cambiare curva se ne compila una nuova e si sostituisce il riferimento.
+ */
+public final class CurveTables {
+    public static final int MIN_RSSI = -127;
+    public static final int MAX_RSSI = 20;
+    public static final int MAX_RAD = 1000;
+
+    // Parametri della curva dei click
+    public static final float MIN_FREQ = 0.2f;    // 1 click ogni 5 secondi
+    public static final float MAX_FREQ = 13f;     // 13 click al secondo
+    private static final float[] FREQUENCY_BY_RAD = compileFrequencies();
+
+    private final RadiationCurve curve;
+    private final int[] radiationByRssi;
+
+    private CurveTables(RadiationCurve curve, int[] radiationByRssi) {
+        this.curve = curve;
+        this.radiationByRssi = radiationByRssi;
+    }
+
+    public static CurveTables compile(RadiationCurve curve) {
+        int[] table = new int[MAX_RSSI - MIN_RSSI + 1];
+        for (int rssi = MIN_RSSI; rssi <= MAX_RSSI; rssi++) {
+            int radVal = (int) curve.radiation(rssi);
+            table[rssi - MIN_RSSI] = Math.max(0, Math.min(MAX_RAD, radVal));
+        }
+        return new CurveTables(curve, table);
+    }
+
+    private static float[] compileFrequencies() {
+        float[] table = new float[MAX_RAD + 1];
+        for (int rad = 0; rad <= MAX_RAD; rad++) {
+            // Curva esponenziale: pochi click a livelli bassi, crescita rapida verso il massimo
+            float normalized = rad / (float) MAX_RAD;
+            table[rad] = MIN_FREQ + (MAX_FREQ - MIN_FREQ) * (float) Math.pow(normalized, 2.5);
+        }
+        return table;
+    }
+
+    public RadiationCurve getCurve() {
+        return curve;
+    }
+
+    /**
+     * Radiazioni (0-1000) per l'RSSI dato; gli RSSI fuori scala vengono limitati
+     */
+    public int radiationFor(int rssi) {
+        int clamped = Math.max(MIN_RSSI, Math.min(MAX_RSSI, rssi));
+        return radiationByRssi[clamped - MIN_RSSI];
+    }
+
+    /**
+     * Click al secondo per il livello di radiazioni dato
+     */
+    public static float frequencyFor(int radLevel) {
+        int clamped = Math.max(0, Math.min(MAX_RAD, radLevel));
+        return FREQUENCY_BY_RAD[clamped];
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Esegue task ritardati su un unico thread; su Android è un Handler
+ */
+public interface DelayedExecutor {
+    void postDelayed(Runnable task, long delayMillis);
+
+    void removeCallbacks(Runnable task);
+}
@@ -0,0 +1,170 @@
+package com.example.fakegeigercounter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elenco dei dispositivi trovati dalla scansione. I risultati arrivano dal thread
+ * dello scanner con offer e vengono accumulati (l'ultimo RSSI per indirizzo);
+ * apply, sul main thread, li applica tutti insieme e notifica un'unica differenza:
+ * inserimenti in coda in un blocco e righe cambiate raggruppate in intervalli.
+ * Un nome arrivato dopo l'inserimento aggiorna la riga e la notifica a parte.
+ */
+public class DeviceList {
+    public interface Observer {
+        void onInserted(int from, int count);
+
+        void onRssiChanged(int from, int count);
+
+        /**
+         * La riga ha ricevuto il nome dopo essere stata inserita
+         */
+        void onNameChanged(int position);
+    }
+
+    // Lato scanner: aggiornamenti in attesa del prossimo frame
+    private final Object lock = new Object();
+    // In ordine di arrivo, così le righe nuove compaiono nell'ordine in cui sono state viste
+    private LinkedHashMap<String, Integer> pending = new LinkedHashMap<>();
+    private LinkedHashMap<String, Integer> draining = new LinkedHashMap<>();
+    private final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<>();
+
+    // Lato main thread
+    private final HashMap<String, Integer> indexByAddress = new HashMap<>();
+    private final ArrayList<String> addresses = new ArrayList<>();
+    private final ArrayList<String> rowNames = new ArrayList<>();
+    private int[] rssi = new int[64];
+    private boolean[] changed = new boolean[64];
+    private boolean[] renamed = new boolean[64];
+
+    /**
+     * Nome già noto per l'indirizzo, per evitare di richiederlo di nuovo al sistema
+     */
+    public String cachedName(String address) {
+        return names.get(address);
+    }
+
+    /**
+     * Registra un risultato di scansione; thread-safe. Ritorna true se è il primo
+     * aggiornamento dall'ultimo apply, cioè se va programmato un frame.
+     */
+    public boolean offer(String address, String name, int rssi) {
+        if (name != null) names.putIfAbsent(address, name);
+        synchronized (lock) {
+            boolean first = pending.isEmpty();
+            pending.put(address, rssi);
+            return first;
+        }
+    }
+
+    /**
+     * Applica gli aggiornamenti accumulati; da chiamare sul main thread, una volta per frame
+     */
+    public void apply(Observer observer) {
+        LinkedHashMap<String, Integer> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = draining;
+            draining = batch;
+        }
+
+        int firstNew = addresses.size();
+        int minChanged = Integer.MAX_VALUE, maxChanged = -1;
+        int minRenamed = Integer.MAX_VALUE, maxRenamed = -1;
+        for (Map.Entry<String, Integer> update : batch.entrySet()) {
+            String address = update.getKey();
+            int value = update.getValue();
+            Integer index = indexByAddress.get(address);
+            if (index == null) {
+                int position = addresses.size();
+                ensureCapacity(position + 1);
+                indexByAddress.put(address, position);
+                addresses.add(address);
+                rowNames.add(names.get(address));
+                rssi[position] = value;
+            } else {
+                if (rssi[index] != value) {
+                    rssi[index] = value;
+                    changed[index] = true;
+                    minChanged = Math.min(minChanged, index);
+                    maxChanged = Math.max(maxChanged, index);
+                }
+                String name = names.get(address);
+                if (name != null && !name.equals(rowNames.get(index))) {
+                    rowNames.set(index, name);
+                    renamed[index] = true;
+                    minRenamed = Math.min(minRenamed, index);
+                    maxRenamed = Math.max(maxRenamed, index);
+                }
+            }
+        }
+        batch.clear();
+
+        if (addresses.size() > firstNew) {
+            observer.onInserted(firstNew, addresses.size() - firstNew);
+        }
+        for (int i = minRenamed; i <= maxRenamed; i++) {
+            if (!renamed[i]) continue;
+            renamed[i] = false;
+            observer.onNameChanged(i);
+        }
+        // Intervalli contigui di righe con un nuovo RSSI
+        int runStart = -1;
+        for (int i = minChanged; i <= maxChanged + 1 && maxChanged >= 0; i++) {
+            boolean dirty = i <= maxChanged && changed[i];
+            if (dirty) {
+                changed[i] = false;
+                if (runStart < 0) runStart = i;
+            } else if (runStart >= 0) {
+                observer.onRssiChanged(runStart, i - runStart);
+                runStart = -1;
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= rssi.length) return;
+        int capacity = Math.max(size, rssi.length * 2);
+        rssi = Arrays.copyOf(rssi, capacity);
+        changed = Arrays.copyOf(changed, capacity);
+        renamed = Arrays.copyOf(renamed, capacity);
+    }
+
+    /**
+     * Svuota l'elenco, scartando anche gli aggiornamenti in attesa; main thread
+     */
+    public void clear() {
+        synchronized (lock) {
+            pending.clear();
+        }
+        indexByAddress.clear();
+        addresses.clear();
+        rowNames.clear();
+    }
+
+    public int size() {
+        return addresses.size();
+    }
+
+    public String address(int position) {
+        return addresses.get(position);
+    }
+
+    public String name(int position) {
+        return rowNames.get(position);
+    }
+
+    public int rssi(int position) {
+        return rssi[position];
+    }
+
+    public int indexOf(String address) {
+        Integer index = indexByAddress.get(address);
+        return index == null ? -1 : index;
+    }
+}
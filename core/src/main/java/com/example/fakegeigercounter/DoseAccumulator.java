@@ -0,0 +1,284 @@
+package com.example.fakegeigercounter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dose accumulata e conteggi al minuto su più finestre, aggiornati in streaming da
+ * ogni impulso e ogni lettura. Ogni finestra è un anello fisso di bucket con la
+ * somma corrente, quindi un evento e una domanda costano O(1) qualunque sia la
+ * durata della sessione, senza allocare e senza crescere.
+ *
+ * Il livello 0-1000 mostrato è trattato come μSv/h: la dose è l'integrale del
+ * livello nel tempo, con il livello di ogni lettura valido fino alla successiva.
+ * Gli impulsi arrivano dal thread audio, che non deve mai aspettare: onPulse scrive
+ * l'istante in un anello con un unico scrittore e lo svuota nelle finestre solo se
+ * nessun altro le sta usando. Gli altri metodi (letture dal thread di elaborazione,
+ * domande dalla UI) sono sincronizzati tra loro, aspettano al più uno svuotamento
+ * del thread audio e svuotano l'anello prima di usare le finestre.
+ */
+public class DoseAccumulator {
+    private static final long SECOND = 1_000_000_000L;
+    private static final double NANOS_PER_HOUR = 3600.0 * SECOND;
+    // Impulsi accumulabili mentre le finestre sono occupate da un altro thread
+    private static final int PULSE_CAPACITY = 4096;
+
+    public enum Window {
+        SECOND(1, 10),
+        TEN_SECONDS(10, 10),
+        MINUTE(60, 12),
+        TEN_MINUTES(600, 60);
+
+        final long nanos;
+        final int buckets;
+
+        Window(int seconds, int buckets) {
+            this.nanos = seconds * DoseAccumulator.SECOND;
+            this.buckets = buckets;
+        }
+    }
+
+    private static final Window[] WINDOWS = Window.values();
+
+    /**
+     * Anello di bucket contigui nel tempo; head è il numero assoluto dell'ultimo bucket
+     */
+    private static final class Ring {
+        final long width;
+        final long[] counts;
+        final long[] dose;
+        long head = Long.MIN_VALUE;
+        long countSum;
+        long doseSum;
+
+        Ring(Window window) {
+            width = window.nanos / window.buckets;
+            counts = new long[window.buckets];
+            dose = new long[window.buckets];
+        }
+
+        /**
+         * Porta l'anello al bucket dato svuotando quelli usciti dalla finestra
+         */
+        void advance(long bucket) {
+            if (bucket <= head) return;
+            int length = counts.length;
+            if (head == Long.MIN_VALUE || bucket - head >= length) {
+                Arrays.fill(counts, 0);
+                Arrays.fill(dose, 0);
+                countSum = 0;
+                doseSum = 0;
+            } else {
+                for (long b = head + 1; b <= bucket; b++) {
+                    int slot = (int) Math.floorMod(b, (long) length);
+                    countSum -= counts[slot];
+                    doseSum -= dose[slot];
+                    counts[slot] = 0;
+                    dose[slot] = 0;
+                }
+            }
+            head = bucket;
+        }
+
+        void add(long nanos, long count, long doseArea) {
+            long bucket = Math.floorDiv(nanos, width);
+            advance(bucket);
+            // Più vecchio della finestra (es. un impulso in ritardo): già uscito
+            if (bucket <= head - counts.length) return;
+            int slot = (int) Math.floorMod(bucket, (long) counts.length);
+            counts[slot] += count;
+            dose[slot] += doseArea;
+            countSum += count;
+            doseSum += doseArea;
+        }
+
+        /**
+         * Inizio del bucket più vecchio ancora nella finestra
+         */
+        long oldestStart() {
+            return (head - counts.length + 1) * width;
+        }
+    }
+
+    private final MonotonicClock clock;
+    private final Ring[] rings = new Ring[WINDOWS.length];
+    // Chi usa le finestre: il thread audio non aspetta mai, gli altri al più uno svuotamento
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    // Impulsi in attesa: scritti solo dal thread audio, letti con le finestre prese
+    private final long[] pulses = new long[PULSE_CAPACITY];
+    private volatile long pulsesWritten = 0;
+    private long pulsesRead = 0;
+
+    private long startTime;
+    private long totalPulses = 0;
+    private long totalDoseArea = 0; // livello × ns
+    private long lastReadingTime = -1;
+    private int lastLevel = 0;
+
+    public DoseAccumulator(MonotonicClock clock) {
+        this.clock = clock;
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new Ring(WINDOWS[i]);
+        }
+        this.startTime = clock.nanoTime();
+    }
+
+    /**
+     * Un click all'istante dato (anche leggermente nel futuro, l'audio è renderizzato in anticipo).
+     * Solo da un thread alla volta; non aspetta mai e non alloca
+     */
+    public void onPulse(long nanos) {
+        long next = pulsesWritten;
+        pulses[(int) (next % PULSE_CAPACITY)] = nanos;
+        pulsesWritten = next + 1;
+        // Finestre occupate: l'impulso resta nell'anello per chi le sta usando
+        if (!busy.compareAndSet(false, true)) return;
+        try {
+            drainPulses();
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Prende le finestre dal thread audio; da chiamare già sincronizzati
+     */
+    private void acquire() {
+        while (!busy.compareAndSet(false, true)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Porta nelle finestre gli impulsi scritti da onPulse; solo con le finestre prese
+     */
+    private void drainPulses() {
+        long written = pulsesWritten;
+        // Tutti contano nel totale, anche quelli sovrascritti prima di essere letti
+        totalPulses += written - pulsesRead;
+        for (long seq = Math.max(pulsesRead, written - PULSE_CAPACITY); seq < written; seq++) {
+            long nanos = pulses[(int) (seq % PULSE_CAPACITY)];
+            // Sovrascritto (o in scrittura) mentre lo leggevamo: l'istante non è più quello dell'impulso
+            if (pulsesWritten - seq >= PULSE_CAPACITY) continue;
+            for (Ring ring : rings) {
+                ring.add(nanos, 1, 0);
+            }
+        }
+        pulsesRead = written;
+    }
+
+    /**
+     * Una lettura pubblicata: chiude l'intervallo dalla lettura precedente
+     * col livello di quella, e lo attribuisce al bucket del suo punto medio
+     */
+    public synchronized void onReading(int level, long nanos) {
+        acquire();
+        try {
+            drainPulses();
+            if (lastReadingTime >= 0 && nanos > lastReadingTime) {
+                long area = (long) lastLevel * (nanos - lastReadingTime);
+                totalDoseArea += area;
+                long middle = lastReadingTime + (nanos - lastReadingTime) / 2;
+                for (Ring ring : rings) {
+                    ring.add(middle, 0, area);
+                }
+            }
+            lastReadingTime = nanos;
+            lastLevel = Math.max(0, level);
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Il contatore si è fermato: la pausa non conta nella dose
+     */
+    public synchronized void onStopped() {
+        acquire();
+        try {
+            lastReadingTime = -1;
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    public synchronized void reset() {
+        acquire();
+        try {
+            // Gli impulsi in attesa appartengono alla sessione precedente
+            pulsesRead = pulsesWritten;
+            for (Ring ring : rings) {
+                ring.head = Long.MIN_VALUE; // svuotato al prossimo advance
+            }
+            startTime = clock.nanoTime();
+            totalPulses = 0;
+            totalDoseArea = 0;
+            lastReadingTime = -1;
+            lastLevel = 0;
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    public synchronized long getTotalPulses() {
+        acquire();
+        try {
+            drainPulses();
+            return totalPulses;
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Dose totale della sessione in μSv
+     */
+    public synchronized double getTotalDose() {
+        acquire();
+        try {
+            return totalDoseArea / NANOS_PER_HOUR;
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Durata coperta dai bucket della finestra, più corta all'inizio della sessione
+     */
+    private long span(Ring ring, long now) {
+        drainPulses();
+        ring.advance(Math.floorDiv(now, ring.width));
+        return now - Math.max(startTime, ring.oldestStart());
+    }
+
+    /**
+     * Impulsi al minuto nella finestra, con la precisione di un bucket
+     */
+    public synchronized float cpm(Window window) {
+        acquire();
+        try {
+            long now = clock.nanoTime();
+            Ring ring = rings[window.ordinal()];
+            long span = span(ring, now);
+            return span <= 0 ? 0 : ring.countSum * 60f * SECOND / span;
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Livello medio (μSv/h) nella finestra
+     */
+    public synchronized float meanRate(Window window) {
+        acquire();
+        try {
+            long now = clock.nanoTime();
+            Ring ring = rings[window.ordinal()];
+            long span = span(ring, now);
+            return span <= 0 ? 0 : (float) ring.doseSum / span;
+        } finally {
+            busy.set(false);
+        }
+    }
+}
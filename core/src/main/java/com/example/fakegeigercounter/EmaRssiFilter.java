@@ -0,0 +1,31 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Media mobile esponenziale: reattiva ma sensibile ai picchi isolati
+ */
+public class EmaRssiFilter implements RssiFilter {
+    private final float alpha;
+    private float value;
+    private boolean initialized = false;
+
+    public EmaRssiFilter(float alpha) {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in (0, 1]");
+        this.alpha = alpha;
+    }
+
+    @Override
+    public int filter(int rssi) {
+        if (!initialized) {
+            value = rssi;
+            initialized = true;
+        } else {
+            value += alpha * (rssi - value);
+        }
+        return Math.round(value);
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Mantiene la connessione GATT: si riconnette da solo con backoff esponenziale
+ * e jitter, e adatta la priorità della connessione allo stato del contatore
+ * (alta mentre conta in primo piano, bilanciata in background, minima in pausa).
+ *
+ * Tutti i metodi vanno chiamati dal thread dell'executor, tranne readRssi
+ * e i contatori.
+ */
+public class GattConnectionManager {
+    public static final long DEFAULT_BASE_BACKOFF = 500;   // ms
+    public static final long DEFAULT_MAX_BACKOFF = 30_000; // ms
+    private static final long CONNECT_TIMEOUT = 10_000;    // ms, connessione senza risposta
+
+    public interface Listener {
+        void onConnected();
+
+        /**
+         * La connessione è caduta o non è riuscita; il gestore riprova da solo
+         */
+        void onDisconnected();
+
+        /**
+         * Può arrivare su qualsiasi thread
+         */
+        void onRssiRead(int rssi, boolean success);
+    }
+
+    public enum State {
+        IDLE,
+        CONNECTING,
+        CONNECTED,
+        BACKOFF
+    }
+
+    private final GattLink link;
+    private final DelayedExecutor executor;
+    private final MonotonicClock clock;
+    private final PulseEngine random;
+    private final long baseBackoff;
+    private final long maxBackoff;
+    private Listener listener;
+
+    private volatile State state = State.IDLE;
+    private boolean wanted = false;
+    private boolean active = false;
+    private boolean interactive = true;
+    private ConnectionPriority appliedPriority;
+    private int attempts = 0;
+    private boolean everConnected = false;
+    private long connectStart;
+
+    private volatile long connects = 0;
+    private volatile long reconnects = 0;
+    private volatile long failures = 0;
+    private volatile long lastLatency = 0;
+    private volatile long maxLatency = 0;
+    private volatile long totalLatency = 0;
+
+    private final Runnable reconnectTask = this::connectNow;
+    private final Runnable timeoutTask = this::onConnectTimeout;
+
+    private final GattLink.Callback callback = new GattLink.Callback() {
+        @Override
+        public void onConnected() {
+            handleConnected();
+        }
+
+        @Override
+        public void onDisconnected() {
+            handleDisconnected();
+        }
+
+        @Override
+        public void onRssiRead(int rssi, boolean success) {
+            Listener listener = GattConnectionManager.this.listener;
+            if (listener != null) listener.onRssiRead(rssi, success);
+        }
+    };
+
+    public GattConnectionManager(GattLink link, DelayedExecutor executor, MonotonicClock clock) {
+        this(link, executor, clock, new PulseEngine(), DEFAULT_BASE_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    public GattConnectionManager(GattLink link, DelayedExecutor executor, MonotonicClock clock,
+                                 PulseEngine random, long baseBackoff, long maxBackoff) {
+        this.link = link;
+        this.executor = executor;
+        this.clock = clock;
+        this.random = random;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Apre la connessione e la mantiene finché non viene chiamato stop
+     */
+    public void start() {
+        if (wanted) return;
+        wanted = true;
+        attempts = 0;
+        connectNow();
+    }
+
+    public void stop() {
+        wanted = false;
+        executor.removeCallbacks(reconnectTask);
+        executor.removeCallbacks(timeoutTask);
+        if (state != State.IDLE) {
+            link.disconnect();
+            link.close();
+        }
+        state = State.IDLE;
+    }
+
+    /**
+     * Il contatore sta leggendo: serve la priorità alta
+     */
+    public void setActive(boolean active) {
+        this.active = active;
+        applyPriority();
+    }
+
+    /**
+     * false quando nessuno guarda lo schermo: basta la priorità bilanciata
+     */
+    public void setInteractive(boolean interactive) {
+        this.interactive = interactive;
+        applyPriority();
+    }
+
+    /**
+     * Avvia una lettura RSSI se la connessione è aperta; thread-safe
+     */
+    public boolean readRssi() {
+        return state == State.CONNECTED && link.readRssi();
+    }
+
+    private void connectNow() {
+        if (!wanted) return;
+        state = State.CONNECTING;
+        connectStart = clock.nanoTime();
+        executor.postDelayed(timeoutTask, CONNECT_TIMEOUT);
+        if (!link.connect(callback)) {
+            executor.removeCallbacks(timeoutTask);
+            failures++;
+            scheduleReconnect();
+        }
+    }
+
+    private void handleConnected() {
+        if (!wanted || state != State.CONNECTING) return;
+        executor.removeCallbacks(timeoutTask);
+        state = State.CONNECTED;
+
+        long latency = clock.nanoTime() - connectStart;
+        lastLatency = latency;
+        maxLatency = Math.max(maxLatency, latency);
+        totalLatency += latency;
+        connects++;
+        if (everConnected) reconnects++;
+        everConnected = true;
+        attempts = 0;
+
+        // La priorità non sopravvive alla connessione precedente
+        appliedPriority = null;
+        applyPriority();
+        if (listener != null) listener.onConnected();
+    }
+
+    private void handleDisconnected() {
+        if (!wanted || state == State.BACKOFF) return;
+        executor.removeCallbacks(timeoutTask);
+        if (state == State.CONNECTING) failures++;
+        link.close();
+        scheduleReconnect();
+        if (listener != null) listener.onDisconnected();
+    }
+
+    private void onConnectTimeout() {
+        if (state != State.CONNECTING) return;
+        failures++;
+        link.disconnect();
+        link.close();
+        scheduleReconnect();
+        if (listener != null) listener.onDisconnected();
+    }
+
+    private void scheduleReconnect() {
+        state = State.BACKOFF;
+        executor.postDelayed(reconnectTask, backoffDelay(attempts++));
+    }
+
+    /**
+     * Attesa prima del tentativo n: metà fissa e metà casuale del limite
+     * esponenziale, così più dispositivi non si riconnettono in sincronia
+     */
+    long backoffDelay(int attempt) {
+        long cap = Math.min(maxBackoff, baseBackoff << Math.min(attempt, 16));
+        long half = cap / 2;
+        return half + random.nextInt((int) (cap - half) + 1);
+    }
+
+    private void applyPriority() {
+        if (state != State.CONNECTED) return;
+        ConnectionPriority priority = !active ? ConnectionPriority.LOW_POWER
+                : interactive ? ConnectionPriority.HIGH : ConnectionPriority.BALANCED;
+        if (priority != appliedPriority && link.requestPriority(priority)) {
+            appliedPriority = priority;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public ConnectionPriority getAppliedPriority() {
+        return appliedPriority;
+    }
+
+    public long getConnects() {
+        return connects;
+    }
+
+    public long getReconnects() {
+        return reconnects;
+    }
+
+    /**
+     * Tentativi falliti: connessione rifiutata, caduta prima di aprirsi o scaduta
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Latenza dell'ultima connessione riuscita, in nanosecondi
+     */
+    public long getLastConnectLatency() {
+        return lastLatency;
+    }
+
+    public long getMaxConnectLatency() {
+        return maxLatency;
+    }
+
+    public long getMeanConnectLatency() {
+        long count = connects;
+        return count == 0 ? 0 : totalLatency / count;
+    }
+}
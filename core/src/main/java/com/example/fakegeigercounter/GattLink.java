@@ -0,0 +1,35 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Connessione GATT verso un singolo dispositivo. Gli eventi di connessione
+ * arrivano sul thread del DelayedExecutor del gestore, le letture RSSI su
+ * qualsiasi thread.
+ */
+public interface GattLink {
+    interface Callback {
+        void onConnected();
+
+        void onDisconnected();
+
+        void onRssiRead(int rssi, boolean success);
+    }
+
+    /**
+     * Avvia una connessione asincrona; false se non è nemmeno partita
+     */
+    boolean connect(Callback callback);
+
+    void disconnect();
+
+    /**
+     * Libera le risorse della connessione; connect può essere richiamato dopo
+     */
+    void close();
+
+    boolean requestPriority(ConnectionPriority priority);
+
+    /**
+     * Avvia una lettura RSSI asincrona; false se non è partita
+     */
+    boolean readRssi();
+}
@@ -0,0 +1,361 @@
+package com.example.fakegeigercounter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Più connessioni GATT aperte insieme, ognuna con la propria frequenza di lettura
+ * RSSI adattiva. Android esegue le operazioni GATT una alla volta, quindi le letture
+ * dovute entrano in un'unica coda FIFO e ne partono al massimo maxInFlight insieme:
+ * ogni sessione aspetta il proprio turno, nessuna monopolizza il controller.
+ *
+ * Ogni sessione filtra le proprie letture: il Listener e la frequenza adattiva
+ * ricevono l'RSSI filtrato, e la frequenza anche il livello che ne risulta.
+ *
+ * Tutti i metodi vanno chiamati dal thread dell'executor; le letture arrivano
+ * al Listener direttamente dal thread che le riceve.
+ */
+public class GattSessionPool {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1;
+    private static final long READ_TIMEOUT = 2000; // ms
+
+    public interface Listener {
+        /**
+         * Sul thread dell'executor
+         */
+        void onSessionStateChanged(int session, boolean connected);
+
+        /**
+         * Flusso unico delle letture di tutte le sessioni, già filtrate; su qualsiasi thread
+         */
+        void onReading(int session, int rssi);
+    }
+
+    private final class Session implements GattConnectionManager.Listener {
+        final int id;
+        final String address;
+        final GattConnectionManager manager;
+        final RssiPollScheduler scheduler;
+        // Usato solo dal thread che riceve le letture della sessione
+        volatile RssiFilter filter;
+
+        boolean connected = false;
+        boolean queued = false;
+        boolean reading = false;
+        long read = RssiPollScheduler.NO_READ;
+        long dueTime;
+        long issueTime;
+        long nextDue;
+        volatile int lastRssi;
+        volatile boolean lastSuccess;
+
+        // Statistiche
+        long activeSince;
+        volatile long completed = 0;
+        volatile long failed = 0;
+        volatile long totalLatency = 0;
+        volatile long maxLatency = 0;
+        volatile long totalWait = 0;
+
+        final Runnable dueTask = () -> {
+            WakeupMeter meter = wakeupMeter;
+            if (meter != null) meter.record(WakeupMeter.Source.POLL);
+            enqueue(this);
+        };
+        final Runnable completeTask = () -> complete(this, lastSuccess);
+        final Runnable timeoutTask = () -> complete(this, false);
+
+        Session(int id, String address, GattLink link) {
+            this.id = id;
+            this.address = address;
+            this.manager = new GattConnectionManager(link, executor, clock);
+            this.scheduler = new RssiPollScheduler(clock);
+            this.filter = filterType.create();
+            manager.setListener(this);
+        }
+
+        @Override
+        public void onConnected() {
+            connected = true;
+            // Nessuna lettura in corso da disconnessi: i campioni vecchi non valgono più
+            filter = filterType.create();
+            scheduler.reset();
+            if (active) enqueue(this);
+            if (listener != null) listener.onSessionStateChanged(id, true);
+        }
+
+        @Override
+        public void onDisconnected() {
+            connected = false;
+            executor.removeCallbacks(dueTask);
+            if (reading) complete(this, false);
+            if (listener != null) listener.onSessionStateChanged(id, false);
+        }
+
+        @Override
+        public void onRssiRead(int rssi, boolean success) {
+            if (success) {
+                rssi = filter.filter(rssi);
+                lastRssi = rssi;
+            }
+            lastSuccess = success;
+            if (success && listener != null) listener.onReading(id, rssi);
+            executor.postDelayed(completeTask, 0);
+        }
+    }
+
+    private final DelayedExecutor executor;
+    private final MonotonicClock clock;
+    private final int maxInFlight;
+    private final List<Session> sessions = new ArrayList<>();
+    private final ArrayDeque<Session> ready = new ArrayDeque<>();
+    private volatile Listener listener;
+    private volatile WakeupMeter wakeupMeter;
+    private volatile PipelineMetrics metrics;
+    private RssiFilterType filterType = RssiFilterType.NONE;
+    private volatile CurveTables curveTables = CurveTables.compile(RadiationCurveType.LINEAR.create());
+    private boolean active = false;
+    private int inFlight = 0;
+    private int maxObservedInFlight = 0;
+
+    public GattSessionPool(DelayedExecutor executor, MonotonicClock clock) {
+        this(executor, clock, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public GattSessionPool(DelayedExecutor executor, MonotonicClock clock, int maxInFlight) {
+        this.executor = executor;
+        this.clock = clock;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Conta un risveglio POLL per ogni timer di lettura scaduto
+     */
+    public void setWakeupMeter(WakeupMeter meter) {
+        this.wakeupMeter = meter;
+    }
+
+    /**
+     * Registra la durata di ogni lettura riuscita in BLE_READ
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Filtro delle letture di ogni sessione; vale per le sessioni aggiunte dopo
+     */
+    public void setRssiFilter(RssiFilterType type) {
+        this.filterType = type;
+    }
+
+    /**
+     * Curva con cui la frequenza adattiva calcola il livello di ogni sessione
+     */
+    public void setCurve(RadiationCurve curve) {
+        this.curveTables = CurveTables.compile(curve);
+    }
+
+    /**
+     * Aggiunge una sessione e ne apre subito la connessione; ritorna il suo indice
+     */
+    public int addSession(String address, GattLink link) {
+        Session session = new Session(sessions.size(), address, link);
+        sessions.add(session);
+        session.manager.setActive(active);
+        session.manager.start();
+        return session.id;
+    }
+
+    public void stop() {
+        setActive(false);
+        for (Session session : sessions) {
+            session.manager.stop();
+            session.connected = false;
+        }
+    }
+
+    /**
+     * Avvia o sospende le letture di tutte le sessioni connesse
+     */
+    public void setActive(boolean active) {
+        this.active = active;
+        long now = clock.nanoTime();
+        for (Session session : sessions) {
+            session.manager.setActive(active);
+            if (active) {
+                session.activeSince = now;
+                session.completed = 0;
+                session.failed = 0;
+                session.totalLatency = 0;
+                session.maxLatency = 0;
+                session.totalWait = 0;
+                session.scheduler.reset();
+                if (session.connected) enqueue(session);
+            } else {
+                executor.removeCallbacks(session.dueTask);
+            }
+        }
+        if (!active) {
+            for (Session session : ready) session.queued = false;
+            ready.clear();
+        }
+    }
+
+    public void setInteractive(boolean interactive) {
+        for (Session session : sessions) {
+            session.manager.setInteractive(interactive);
+        }
+    }
+
+    /**
+     * Letture per gruppo di ogni sessione (vedi RssiPollScheduler.setBatchSize)
+     */
+    public void setBatchSize(int size) {
+        for (Session session : sessions) {
+            session.scheduler.setBatchSize(size);
+        }
+    }
+
+    private void enqueue(Session session) {
+        if (session.queued || session.reading || !active || !session.connected) return;
+        session.queued = true;
+        session.dueTime = clock.nanoTime();
+        ready.add(session);
+        pump();
+    }
+
+    /**
+     * Avvia le letture in coda finché c'è posto
+     */
+    private void pump() {
+        Session session;
+        while (inFlight < maxInFlight && (session = ready.poll()) != null) {
+            session.queued = false;
+            if (!session.connected) continue;
+            long read = session.scheduler.tryIssue();
+            if (read == RssiPollScheduler.NO_READ) continue;
+
+            long now = clock.nanoTime();
+            session.totalWait += now - session.dueTime;
+            session.issueTime = now;
+            session.read = read;
+            session.reading = true;
+            inFlight++;
+            maxObservedInFlight = Math.max(maxObservedInFlight, inFlight);
+            executor.postDelayed(session.timeoutTask, READ_TIMEOUT);
+            if (!session.manager.readRssi()) {
+                complete(session, false);
+            }
+        }
+    }
+
+    private void complete(Session session, boolean success) {
+        if (!session.reading) return;
+        executor.removeCallbacks(session.timeoutTask);
+        executor.removeCallbacks(session.completeTask);
+        session.reading = false;
+        inFlight--;
+
+        long now = clock.nanoTime();
+        if (success) {
+            long latency = now - session.issueTime;
+            session.completed++;
+            session.totalLatency += latency;
+            session.maxLatency = Math.max(session.maxLatency, latency);
+            PipelineMetrics metrics = this.metrics;
+            if (metrics != null) metrics.recordLatency(PipelineMetrics.Stage.BLE_READ, latency);
+            int rssi = session.lastRssi;
+            session.scheduler.onReadCompleted(session.read, rssi, curveTables.radiationFor(rssi));
+        } else {
+            session.failed++;
+            session.scheduler.onReadFailed(session.read);
+        }
+
+        // L'attesa tiene conto dell'intervallo appena adattato alla lettura
+        session.nextDue = session.issueTime + session.scheduler.nextDelayMillis() * 1_000_000;
+        if (active && session.connected) {
+            if (success && session.scheduler.continueBatch()) {
+                enqueue(session);
+            } else {
+                executor.postDelayed(session.dueTask, Math.max(0, (session.nextDue - now) / 1_000_000));
+            }
+        }
+        pump();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public String addressOf(int session) {
+        return sessions.get(session).address;
+    }
+
+    public boolean isConnected(int session) {
+        return sessions.get(session).connected;
+    }
+
+    public int connectedCount() {
+        int count = 0;
+        for (Session session : sessions) {
+            if (session.connected) count++;
+        }
+        return count;
+    }
+
+    public GattConnectionManager managerOf(int session) {
+        return sessions.get(session).manager;
+    }
+
+    public long getCompleted(int session) {
+        return sessions.get(session).completed;
+    }
+
+    public long getFailed(int session) {
+        return sessions.get(session).failed;
+    }
+
+    /**
+     * Letture completate al minuto dall'ultima attivazione
+     */
+    public float getReadsPerMinute(int session) {
+        Session s = sessions.get(session);
+        long elapsed = clock.nanoTime() - s.activeSince;
+        return elapsed <= 0 ? 0 : s.completed * 60e9f / elapsed;
+    }
+
+    /**
+     * Tempo medio tra l'avvio della lettura e la risposta, in nanosecondi
+     */
+    public long getMeanReadLatency(int session) {
+        Session s = sessions.get(session);
+        long count = s.completed;
+        return count == 0 ? 0 : s.totalLatency / count;
+    }
+
+    public long getMaxReadLatency(int session) {
+        return sessions.get(session).maxLatency;
+    }
+
+    /**
+     * Attesa media in coda prima che la lettura parta, in nanosecondi
+     */
+    public long getMeanQueueWait(int session) {
+        Session s = sessions.get(session);
+        long count = s.completed + s.failed;
+        return count == 0 ? 0 : s.totalWait / count;
+    }
+
+    /**
+     * Massimo numero di letture contemporanee osservato, mai oltre maxInFlight
+     */
+    public int getMaxObservedInFlight() {
+        return maxObservedInFlight;
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.fakegeigercounter;
+
+import java.util.Arrays;
+
+/**
+ * Indice spaziale delle letture geolocalizzate. Le letture non vengono conservate:
+ * ognuna aggiorna conteggio, somma e massimo della sua cella (una tile web mercator
+ * al livello CELL_ZOOM, circa 19 m all'equatore) e della tile di heatmap che la
+ * contiene (16 x 16 celle, livello TILE_ZOOM). La memoria dipende quindi dall'area
+ * coperta e non dal numero di letture, ed è limitata da maxCells: le letture in
+ * celle nuove oltre il limite vengono scartate e contate.
+ *
+ * Le chiavi delle celle sono x e y della tile intercalati come in un geohash.
+ * I metodi sono sincronizzati: le letture arrivano dal thread di elaborazione,
+ * le domande dalla UI.
+ */
+public class GeoReadingIndex {
+    public static final int CELL_ZOOM = 21;
+    public static final int TILE_SHIFT = 4;
+    public static final int TILE_ZOOM = CELL_ZOOM - TILE_SHIFT;
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+    public static final int DEFAULT_MAX_CELLS = 1 << 16;
+
+    private static final double EARTH_CIRCUMFERENCE = 40_075_016.686; // m all'equatore
+    private static final double EARTH_RADIUS = 6_371_008.8;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    /**
+     * Tabella ad indirizzamento aperto chiave → statistiche, su array primitivi
+     */
+    static final class CellTable {
+        private static final long EMPTY = -1;
+
+        final long[] keys;
+        final int[] counts;
+        final long[] sums;
+        final short[] max;
+        final int mask;
+        final int limit;
+        int size = 0;
+
+        CellTable(int maxEntries) {
+            int capacity = Integer.highestOneBit(Math.max(16, maxEntries * 4 / 3)) << 1;
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            counts = new int[capacity];
+            sums = new long[capacity];
+            max = new short[capacity];
+            mask = capacity - 1;
+            limit = maxEntries;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /**
+         * Indice della chiave, o -1 se non c'è
+         */
+        int find(long key) {
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) return i;
+                if (keys[i] == EMPTY) return -1;
+            }
+        }
+
+        /**
+         * false se la chiave è nuova e la tabella è piena
+         */
+        boolean add(long key, int level) {
+            int i = hash(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    if (size >= limit) return false;
+                    keys[i] = key;
+                    size++;
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            counts[i]++;
+            sums[i] += level;
+            if (level > max[i]) max[i] = (short) level;
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(counts, 0);
+            Arrays.fill(sums, 0);
+            Arrays.fill(max, (short) 0);
+            size = 0;
+        }
+    }
+
+    private final CellTable cells;
+    private final CellTable tiles;
+    private long readings = 0;
+    private long dropped = 0;
+
+    public GeoReadingIndex() {
+        this(DEFAULT_MAX_CELLS);
+    }
+
+    public GeoReadingIndex(int maxCells) {
+        cells = new CellTable(maxCells);
+        // Ogni tile contiene almeno una cella, quindi non ne servono di più
+        tiles = new CellTable(maxCells);
+    }
+
+    static int tileX(double longitude, int zoom) {
+        int n = 1 << zoom;
+        int x = (int) Math.floor((longitude + 180) / 360 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    static int tileY(double latitude, int zoom) {
+        int n = 1 << zoom;
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        int y = (int) Math.floor((1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    /**
+     * Latitudine del centro della riga di tile y
+     */
+    static double latitudeOf(double y, int zoom) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / (1 << zoom)))));
+    }
+
+    static double longitudeOf(double x, int zoom) {
+        return x / (1 << zoom) * 360 - 180;
+    }
+
+    /**
+     * Intercala i bit di x e y, così celle vicine hanno chiavi vicine
+     */
+    static long key(int x, int y) {
+        return spread(x) | spread(y) << 1;
+    }
+
+    private static long spread(int value) {
+        long v = value & 0xFFFFFFFFL;
+        v = (v | v << 16) & 0x0000FFFF0000FFFFL;
+        v = (v | v << 8) & 0x00FF00FF00FF00FFL;
+        v = (v | v << 4) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | v << 2) & 0x3333333333333333L;
+        v = (v | v << 1) & 0x5555555555555555L;
+        return v;
+    }
+
+    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        // Equirettangolare: esatta a meno dello 0.1% entro qualche km
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS;
+    }
+
+    /**
+     * Aggiunge una lettura (livello 0-1000) nella posizione data; false se scartata
+     */
+    public synchronized boolean add(double latitude, double longitude, int level) {
+        int x = tileX(longitude, CELL_ZOOM);
+        int y = tileY(latitude, CELL_ZOOM);
+        level = Math.max(0, Math.min(CurveTables.MAX_RAD, level));
+        if (!cells.add(key(x, y), level)) {
+            dropped++;
+            return false;
+        }
+        tiles.add(key(x >>> TILE_SHIFT, y >>> TILE_SHIFT), level);
+        readings++;
+        return true;
+    }
+
+    /**
+     * Visita le celle con il centro entro il raggio; ritorna {conteggio, somma, massimo}
+     */
+    private long[] within(double latitude, double longitude, double radiusMeters, long[] out) {
+        out[0] = 0;
+        out[1] = 0;
+        out[2] = -1;
+        int cx = tileX(longitude, CELL_ZOOM);
+        int cy = tileY(latitude, CELL_ZOOM);
+        double cellMeters = EARTH_CIRCUMFERENCE * Math.cos(Math.toRadians(latitude)) / (1 << CELL_ZOOM);
+        int reach = (int) Math.ceil(radiusMeters / cellMeters) + 1;
+        int last = (1 << CELL_ZOOM) - 1;
+        for (int y = Math.max(0, cy - reach); y <= Math.min(last, cy + reach); y++) {
+            double cellLat = latitudeOf(y + 0.5, CELL_ZOOM);
+            for (int x = Math.max(0, cx - reach); x <= Math.min(last, cx + reach); x++) {
+                int i = cells.find(key(x, y));
+                if (i < 0) continue;
+                if (distanceMeters(latitude, longitude, cellLat, longitudeOf(x + 0.5, CELL_ZOOM)) > radiusMeters) {
+                    continue;
+                }
+                out[0] += cells.counts[i];
+                out[1] += cells.sums[i];
+                out[2] = Math.max(out[2], cells.max[i]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Livello massimo registrato entro il raggio, o -1 se non ci sono letture
+     */
+    public synchronized int maxWithin(double latitude, double longitude, double radiusMeters) {
+        return (int) within(latitude, longitude, radiusMeters, new long[3])[2];
+    }
+
+    /**
+     * Livello medio delle letture entro il raggio, o -1 se non ce ne sono
+     */
+    public synchronized float meanWithin(double latitude, double longitude, double radiusMeters) {
+        long[] stats = within(latitude, longitude, radiusMeters, new long[3]);
+        return stats[0] == 0 ? -1 : (float) stats[1] / stats[0];
+    }
+
+    public synchronized int tileCount(int tileX, int tileY) {
+        int i = tiles.find(key(tileX, tileY));
+        return i < 0 ? 0 : tiles.counts[i];
+    }
+
+    /**
+     * Livello massimo nella tile di heatmap (coordinate al livello TILE_ZOOM), o -1 se vuota
+     */
+    public synchronized int tileMax(int tileX, int tileY) {
+        int i = tiles.find(key(tileX, tileY));
+        return i < 0 ? -1 : tiles.max[i];
+    }
+
+    public synchronized float tileMean(int tileX, int tileY) {
+        int i = tiles.find(key(tileX, tileY));
+        return i < 0 ? -1 : (float) tiles.sums[i] / tiles.counts[i];
+    }
+
+    /**
+     * Riempie out (TILE_SIZE * TILE_SIZE, per righe) con la media di ogni cella
+     * della tile, -1 per le celle senza letture
+     */
+    public synchronized void heatmap(int tileX, int tileY, float[] out) {
+        int baseX = tileX << TILE_SHIFT;
+        int baseY = tileY << TILE_SHIFT;
+        for (int dy = 0; dy < TILE_SIZE; dy++) {
+            for (int dx = 0; dx < TILE_SIZE; dx++) {
+                int i = cells.find(key(baseX + dx, baseY + dy));
+                out[dy * TILE_SIZE + dx] = i < 0 ? -1 : (float) cells.sums[i] / cells.counts[i];
+            }
+        }
+    }
+
+    public static int tileXOf(double longitude) {
+        return tileX(longitude, TILE_ZOOM);
+    }
+
+    public static int tileYOf(double latitude) {
+        return tileY(latitude, TILE_ZOOM);
+    }
+
+    public synchronized long getReadings() {
+        return readings;
+    }
+
+    /**
+     * Letture scartate perché cadevano in celle nuove a indice pieno
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized int cellCount() {
+        return cells.size;
+    }
+
+    public synchronized void clear() {
+        cells.clear();
+        tiles.clear();
+        readings = 0;
+        dropped = 0;
+    }
+}
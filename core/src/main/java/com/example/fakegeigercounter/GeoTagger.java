@@ -0,0 +1,89 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Associa ogni lettura all'ultima posizione nota e la aggiunge all'indice
+ * spaziale. Le letture arrivate senza una posizione abbastanza recente o
+ * abbastanza precisa non vengono geolocalizzate.
+ */
+public class GeoTagger implements LocationProvider.Listener {
+    public static final long DEFAULT_MAX_FIX_AGE = 5_000_000_000L; // ns
+    public static final float DEFAULT_MAX_ACCURACY = 50;           // m
+
+    /**
+     * Posizione immutabile, sostituita a ogni aggiornamento (al più qualche volta al secondo)
+     */
+    private static final class Fix {
+        final double latitude;
+        final double longitude;
+        final long nanos;
+
+        Fix(double latitude, double longitude, long nanos) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.nanos = nanos;
+        }
+    }
+
+    private final GeoReadingIndex index;
+    private final long maxFixAge;
+    private final float maxAccuracy;
+    private volatile Fix fix;
+    private volatile long untagged = 0;
+
+    public GeoTagger(GeoReadingIndex index) {
+        this(index, DEFAULT_MAX_FIX_AGE, DEFAULT_MAX_ACCURACY);
+    }
+
+    public GeoTagger(GeoReadingIndex index, long maxFixAgeNanos, float maxAccuracyMeters) {
+        this.index = index;
+        this.maxFixAge = maxFixAgeNanos;
+        this.maxAccuracy = maxAccuracyMeters;
+    }
+
+    @Override
+    public void onLocation(double latitude, double longitude, float accuracyMeters, long nanos) {
+        if (accuracyMeters > maxAccuracy) return;
+        fix = new Fix(latitude, longitude, nanos);
+    }
+
+    /**
+     * Chiamato da un solo thread per ogni lettura pubblicata; false se non geolocalizzata
+     */
+    public boolean onReading(int level, long nanos) {
+        Fix fix = this.fix;
+        if (fix == null || nanos - fix.nanos > maxFixAge || !index.add(fix.latitude, fix.longitude, level)) {
+            untagged++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Dimentica la posizione: dopo una pausa va riacquisita
+     */
+    public void reset() {
+        fix = null;
+    }
+
+    public GeoReadingIndex getIndex() {
+        return index;
+    }
+
+    public long getUntagged() {
+        return untagged;
+    }
+
+    public boolean hasFix() {
+        return fix != null;
+    }
+
+    public double getLatitude() {
+        Fix fix = this.fix;
+        return fix != null ? fix.latitude : Double.NaN;
+    }
+
+    public double getLongitude() {
+        Fix fix = this.fix;
+        return fix != null ? fix.longitude : Double.NaN;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Intensità proporzionale all'inverso del quadrato della distanza, come una
+ * sorgente puntiforme reale: massimo a referenceDistance.
+ */
+public class InverseSquareRadiationCurve implements RadiationCurve {
+    private final int txPower;
+    private final float pathLossExponent;
+    private final float referenceDistance;
+
+    public InverseSquareRadiationCurve(int txPower, float pathLossExponent, float referenceDistance) {
+        this.txPower = txPower;
+        this.pathLossExponent = pathLossExponent;
+        this.referenceDistance = referenceDistance;
+    }
+
+    @Override
+    public float radiation(int rssi) {
+        float d = LogDistanceRadiationCurve.distance(rssi, txPower, pathLossExponent);
+        float ratio = referenceDistance / d;
+        return CurveTables.MAX_RAD * ratio * ratio;
+    }
+}
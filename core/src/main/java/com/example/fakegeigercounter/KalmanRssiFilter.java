@@ -0,0 +1,42 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Filtro di Kalman monodimensionale con modello a valore costante
+ */
+public class KalmanRssiFilter implements RssiFilter {
+    private final float processNoise;
+    private final float measurementNoise;
+    private float estimate;
+    private float errorCovariance;
+    private boolean initialized = false;
+
+    public KalmanRssiFilter(float processNoise, float measurementNoise) {
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+    }
+
+    @Override
+    public int filter(int rssi) {
+        if (!initialized) {
+            estimate = rssi;
+            errorCovariance = measurementNoise;
+            initialized = true;
+            return rssi;
+        }
+
+        // Predizione
+        errorCovariance += processNoise;
+
+        // Correzione
+        float gain = errorCovariance / (errorCovariance + measurementNoise);
+        estimate += gain * (rssi - estimate);
+        errorCovariance *= (1 - gain);
+
+        return Math.round(estimate);
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.fakegeigercounter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Dispositivi a cui l'utente si è già collegato, salvati su disco per riconnettersi
+ * all'avvio senza aspettare la scansione. Le scansioni aggiornano solo RSSI e ultimo
+ * avvistamento dei dispositivi già noti.
+ *
+ * Il file contiene MAGIC, VERSION, il numero di voci e per ogni voce indirizzo,
+ * nome, RSSI e ultimo avvistamento (ms, ora di sistema). Viene riscritto su un file
+ * temporaneo e rinominato, così un salvataggio interrotto non perde la cache.
+ * I metodi sono thread-safe.
+ */
+public class KnownDeviceCache {
+    static final int MAGIC = 0x474B4443;  // "GKDC"
+    static final int VERSION = 1;
+    public static final int MAX_ENTRIES = 16;
+
+    public static final class Entry {
+        public final String address;
+        public final String name;
+        public final int rssi;
+        public final long lastSeenMillis;
+
+        Entry(String address, String name, int rssi, long lastSeenMillis) {
+            this.address = address;
+            this.name = name;
+            this.rssi = rssi;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+
+    private final File file;
+    // In ordine di ultimo avvistamento, il più vecchio per primo
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private boolean dirty = false;
+
+    public KnownDeviceCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Carica la cache dal disco; un file mancante o non valido dà una cache vuota
+     */
+    public synchronized void load() {
+        entries.clear();
+        dirty = false;
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            int count = Math.min(in.readInt(), MAX_ENTRIES);
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readInt(), in.readLong());
+                entries.put(entry.address, entry);
+            }
+        } catch (IOException e) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Scrive la cache se è cambiata dall'ultimo salvataggio
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeUTF(entry.address);
+                out.writeUTF(entry.name);
+                out.writeInt(entry.rssi);
+                out.writeLong(entry.lastSeenMillis);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Aggiunge o aggiorna un dispositivo usato dall'utente; oltre MAX_ENTRIES
+     * esce quello visto meno di recente
+     */
+    public synchronized void remember(String address, String name, int rssi, long nowMillis) {
+        entries.remove(address);
+        entries.put(address, new Entry(address, name, rssi, nowMillis));
+        if (entries.size() > MAX_ENTRIES) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+        dirty = true;
+    }
+
+    /**
+     * Aggiorna RSSI e ultimo avvistamento se il dispositivo è noto; false altrimenti.
+     * Chiamato dal thread dello scanner.
+     */
+    public synchronized boolean refresh(String address, int rssi, long nowMillis) {
+        Entry entry = entries.remove(address);
+        if (entry == null) return false;
+        entries.put(address, new Entry(address, entry.name, rssi, nowMillis));
+        dirty = true;
+        return true;
+    }
+
+    public synchronized Entry get(String address) {
+        return entries.get(address);
+    }
+
+    /**
+     * Il dispositivo visto più di recente, o null se la cache è vuota
+     */
+    public synchronized Entry mostRecent() {
+        Entry last = null;
+        for (Entry entry : entries.values()) {
+            last = entry;
+        }
+        return last;
+    }
+
+    /**
+     * Il dispositivo noto con l'RSSI più forte tra quelli visti da sinceMillis in poi
+     */
+    public synchronized Entry strongestSince(long sinceMillis) {
+        Entry best = null;
+        for (Entry entry : entries.values()) {
+            if (entry.lastSeenMillis >= sinceMillis && (best == null || entry.rssi > best.rssi)) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Le voci dalla più recente alla più vecchia
+     */
+    public synchronized List<Entry> entries() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        Collections.reverse(list);
+        return list;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
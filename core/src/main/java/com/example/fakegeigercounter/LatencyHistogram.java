@@ -0,0 +1,132 @@
+package com.example.fakegeigercounter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Istogramma di latenze in nanosecondi con bucket log-lineari: 8 bucket per ogni
+ * potenza di due, quindi ogni valore è approssimato entro il 12.5%. I bucket sono
+ * allocati una volta sola e record non blocca né alloca: può essere chiamato da
+ * più thread insieme.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40; // ~18 minuti, i valori oltre finiscono nell'ultimo bucket
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) Math.max(0, nanos);
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT && nanos >= 1L << (MAX_EXPONENT + 1)) return BUCKETS - 1;
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Il valore più alto che finisce nel bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            // un altro thread ha aggiornato il massimo, riprova
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Latenza sotto cui cade la frazione data dei valori (0..1), arrotondata al bucket
+     */
+    public long percentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return i == BUCKETS - 1 ? max.get() : Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Azzera i contatori; le registrazioni concorrenti possono finire a metà tra prima e dopo
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Scrive solo i bucket non vuoti: conteggio, somma, massimo, poi coppie (indice, conteggio)
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) used++;
+        }
+        out.writeLong(count.get());
+        out.writeLong(sum.get());
+        out.writeLong(max.get());
+        out.writeShort(used);
+        for (int i = 0; i < BUCKETS && used > 0; i++) {
+            long n = counts.get(i);
+            if (n == 0) continue;
+            out.writeShort(i);
+            out.writeLong(n);
+            used--;
+        }
+    }
+
+    public static LatencyHistogram readFrom(DataInput in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.count.set(in.readLong());
+        histogram.sum.set(in.readLong());
+        histogram.max.set(in.readLong());
+        int used = in.readShort();
+        for (int i = 0; i < used; i++) {
+            int bucket = in.readShort();
+            if (bucket < 0 || bucket >= BUCKETS) throw new IOException("Bad bucket " + bucket);
+            histogram.counts.set(bucket, in.readLong());
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Mappatura lineare come nell'originale Arduino
+ */
+public class LinearRadiationCurve implements RadiationCurve {
+    private final int minRssi;
+    private final int maxRssi;
+
+    public LinearRadiationCurve(int minRssi, int maxRssi) {
+        this.minRssi = minRssi;
+        this.maxRssi = maxRssi;
+    }
+
+    @Override
+    public float radiation(int rssi) {
+        return (rssi - minRssi) * (float) CurveTables.MAX_RAD / (maxRssi - minRssi);
+    }
+}
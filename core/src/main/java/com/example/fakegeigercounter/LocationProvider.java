@@ -0,0 +1,21 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Sorgente di posizioni per geolocalizzare le letture
+ */
+public interface LocationProvider {
+    interface Listener {
+        /**
+         * Nuova posizione (gradi WGS84) con la sua precisione in metri; nanos è
+         * sull'orologio monotono del contatore. Può arrivare su qualsiasi thread.
+         */
+        void onLocation(double latitude, double longitude, float accuracyMeters, long nanos);
+    }
+
+    /**
+     * Avvia gli aggiornamenti; false se non è possibile (permesso mancante, nessun provider)
+     */
+    boolean start(Listener listener);
+
+    void stop();
+}
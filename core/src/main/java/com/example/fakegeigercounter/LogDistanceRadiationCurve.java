@@ -0,0 +1,32 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Stima la distanza con il modello log-distance path loss e la mappa
+ * linearmente: massimo a minDistance, zero oltre maxDistance.
+ */
+public class LogDistanceRadiationCurve implements RadiationCurve {
+    private final int txPower;          // RSSI atteso a 1 metro
+    private final float pathLossExponent;
+    private final float minDistance;
+    private final float maxDistance;
+
+    public LogDistanceRadiationCurve(int txPower, float pathLossExponent, float minDistance, float maxDistance) {
+        this.txPower = txPower;
+        this.pathLossExponent = pathLossExponent;
+        this.minDistance = minDistance;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Distanza stimata in metri
+     */
+    static float distance(int rssi, int txPower, float pathLossExponent) {
+        return (float) Math.pow(10, (txPower - rssi) / (10 * pathLossExponent));
+    }
+
+    @Override
+    public float radiation(int rssi) {
+        float d = distance(rssi, txPower, pathLossExponent);
+        return (maxDistance - d) * CurveTables.MAX_RAD / (maxDistance - minDistance);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.fakegeigercounter;
+
+import java.util.Arrays;
+
+/**
+ * Mediana sugli ultimi N campioni: elimina i picchi isolati.
+ * Mantiene una copia ordinata della finestra, quindi ogni campione costa O(N)
+ * con N fisso e piccolo, senza allocazioni.
+ */
+public class MedianRssiFilter implements RssiFilter {
+    private final RssiRingBuffer window;
+    private final int[] sorted;
+
+    public MedianRssiFilter(int windowSize) {
+        window = new RssiRingBuffer(windowSize);
+        sorted = new int[windowSize];
+    }
+
+    @Override
+    public int filter(int rssi) {
+        int size = window.size();
+        if (window.isFull()) {
+            // Toglie dalla copia ordinata il valore che sta per uscire dalla finestra
+            int index = Arrays.binarySearch(sorted, 0, size, window.oldest());
+            System.arraycopy(sorted, index + 1, sorted, index, size - index - 1);
+            size--;
+        }
+        window.push(rssi);
+
+        int insert = Arrays.binarySearch(sorted, 0, size, rssi);
+        if (insert < 0) insert = -insert - 1;
+        System.arraycopy(sorted, insert, sorted, insert + 1, size - insert);
+        sorted[insert] = rssi;
+        size++;
+
+        return (size % 2 == 1)
+                ? sorted[size / 2]
+                : Math.round((sorted[size / 2 - 1] + sorted[size / 2]) / 2f);
+    }
+
+    @Override
+    public void reset() {
+        window.clear();
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Sorgente di tempo monotona in nanosecondi, non influenzata dalle correzioni NTP
+ */
+public interface MonotonicClock {
+    MonotonicClock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
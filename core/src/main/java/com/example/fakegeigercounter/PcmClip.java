@@ -0,0 +1,39 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Campione audio mono a 16 bit in memoria
+ */
+public class PcmClip {
+    private final short[] samples;
+    private final int sampleRate;
+
+    public PcmClip(short[] samples, int sampleRate) {
+        this.samples = samples;
+        this.sampleRate = sampleRate;
+    }
+
+    public short[] getSamples() {
+        return samples;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int length() {
+        return samples.length;
+    }
+
+    /**
+     * Copia senza il silenzio finale (campioni sotto la soglia in valore assoluto)
+     */
+    public PcmClip trimmed(int threshold) {
+        int end = samples.length;
+        while (end > 0 && Math.abs(samples[end - 1]) < threshold) {
+            end--;
+        }
+        short[] copy = new short[end];
+        System.arraycopy(samples, 0, copy, 0, end);
+        return new PcmClip(copy, sampleRate);
+    }
+}
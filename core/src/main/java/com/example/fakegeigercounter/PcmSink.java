@@ -0,0 +1,17 @@
+package com.example.fakegeigercounter;
+
+import java.io.IOException;
+
+/**
+ * Destinazione dei buffer PCM mono a 16 bit prodotti da ClickSynthesizer
+ */
+public interface PcmSink {
+    int getSampleRate();
+
+    /**
+     * Scrive i primi frames campioni del buffer; può bloccare finché c'è spazio
+     */
+    void write(short[] buffer, int frames) throws IOException;
+
+    void close() throws IOException;
+}
@@ -0,0 +1,184 @@
+package com.example.fakegeigercounter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latenze e frequenze del percorso lettura → calcolo → UI e audio. Spento per
+ * default: start ritorna 0 senza leggere l'orologio e record ignora gli 0, quindi
+ * sul percorso caldo resta solo la lettura di un volatile.
+ *
+ * record e count possono essere chiamati da qualsiasi thread; sample dal thread
+ * che mostra o scrive le statistiche.
+ */
+public class PipelineMetrics {
+    static final int MAGIC = 0x47504D53;  // "GPMS"
+    static final int VERSION = 1;
+
+    public enum Stage {
+        BLE_READ,    // richiesta RSSI → risposta del dispositivo
+        CALCULATION, // elaborazione di una lettura: filtro, curva e pubblicazione
+        UI_POST,     // lettura pubblicata → TextView aggiornata nel frame
+        CLICK_LAG    // click renderizzato dopo l'istante previsto sulla linea del tempo audio
+    }
+
+    public enum Counter {
+        READS,
+        CLICKS
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final MonotonicClock clock;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final AtomicLongArray counts = new AtomicLongArray(COUNTERS.length);
+    private final long[] lastCounts = new long[COUNTERS.length];
+    private final float[] perSecond = new float[COUNTERS.length];
+    private long lastSampleTime;
+    private volatile boolean enabled = false;
+
+    public PipelineMetrics(MonotonicClock clock) {
+        this.clock = clock;
+        this.lastSampleTime = clock.nanoTime();
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Istante di inizio di una misura, o 0 se le metriche sono spente
+     */
+    public long start() {
+        return enabled ? clock.nanoTime() : 0;
+    }
+
+    /**
+     * Chiude una misura aperta con start
+     */
+    public void record(Stage stage, long startNanos) {
+        if (startNanos == 0 || !enabled) return;
+        histograms[stage.ordinal()].record(clock.nanoTime() - startNanos);
+    }
+
+    /**
+     * Registra una latenza già misurata altrove
+     */
+    public void recordLatency(Stage stage, long nanos) {
+        if (!enabled) return;
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public void count(Counter counter) {
+        if (!enabled) return;
+        counts.incrementAndGet(counter.ordinal());
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public long getCount(Counter counter) {
+        return counts.get(counter.ordinal());
+    }
+
+    /**
+     * Chiude la finestra corrente e calcola le frequenze al secondo
+     */
+    public void sample() {
+        long now = clock.nanoTime();
+        float seconds = (now - lastSampleTime) / 1e9f;
+        if (seconds <= 0) return;
+        for (int i = 0; i < COUNTERS.length; i++) {
+            long count = counts.get(i);
+            perSecond[i] = (count - lastCounts[i]) / seconds;
+            lastCounts[i] = count;
+        }
+        lastSampleTime = now;
+    }
+
+    /**
+     * Eventi al secondo nell'ultima finestra chiusa da sample
+     */
+    public float perSecond(Counter counter) {
+        return perSecond[counter.ordinal()];
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Una riga per fase (conteggio, p50/p90/p99 e massimo in ms) più le frequenze
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder(320);
+        for (Stage stage : STAGES) {
+            LatencyHistogram h = histograms[stage.ordinal()];
+            text.append(String.format("%-11s n=%-6d p50=%6.2f p90=%6.2f p99=%6.2f max=%6.2f ms%n",
+                    stage, h.getCount(), h.percentile(0.5) / 1e6, h.percentile(0.9) / 1e6,
+                    h.percentile(0.99) / 1e6, h.getMax() / 1e6));
+        }
+        text.append(String.format("reads/s=%.1f clicks/s=%.1f",
+                perSecond[Counter.READS.ordinal()], perSecond[Counter.CLICKS.ordinal()]));
+        return text.toString();
+    }
+
+    /**
+     * Istantanea binaria: MAGIC, VERSION, i contatori e gli istogrammi in ordine di fase
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(COUNTERS.length);
+            for (int i = 0; i < COUNTERS.length; i++) {
+                out.writeLong(counts.get(i));
+            }
+            out.writeByte(STAGES.length);
+            for (LatencyHistogram histogram : histograms) {
+                histogram.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in memoria non succede
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rilegge un'istantanea scritta da toBytes, per confrontare sessioni
+     */
+    public static PipelineMetrics read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a metrics snapshot");
+        }
+        PipelineMetrics metrics = new PipelineMetrics(MonotonicClock.SYSTEM);
+        int counters = in.readUnsignedByte();
+        for (int i = 0; i < counters; i++) {
+            long count = in.readLong();
+            if (i < COUNTERS.length) metrics.counts.set(i, count);
+        }
+        int stages = in.readUnsignedByte();
+        for (int i = 0; i < stages; i++) {
+            LatencyHistogram histogram = LatencyHistogram.readFrom(in);
+            if (i < STAGES.length) metrics.histograms[i] = histogram;
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Generatore di impulsi come processo di Poisson: gli intervalli tra un impulso e
+ * il successivo seguono una distribuzione esponenziale con il rate impostato.
+ * Usa un unico PRNG (SplitMix64) riutilizzabile e con seed, quindi nessuna
+ * allocazione per ogni decisione.
+ */
+public class PulseEngine {
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private long state;
+    private double ratePerSecond = 0;
+
+    public PulseEngine() {
+        this(System.nanoTime());
+    }
+
+    public PulseEngine(long seed) {
+        setSeed(seed);
+    }
+
+    public void setSeed(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Imposta il numero medio di impulsi al secondo (0 = nessun impulso)
+     */
+    public void setRate(double pulsesPerSecond) {
+        this.ratePerSecond = Math.max(0, pulsesPerSecond);
+    }
+
+    public double getRate() {
+        return ratePerSecond;
+    }
+
+    private long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Valore uniforme in [0, 1)
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Valore uniforme in [0, bound), 0 se bound <= 0
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) return 0;
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Intervallo fino al prossimo impulso, in nanosecondi
+     */
+    public long nextIntervalNanos() {
+        if (ratePerSecond <= 0) return Long.MAX_VALUE;
+        // 1 - nextDouble() è in (0, 1], quindi il logaritmo è sempre finito
+        return (long) (-Math.log(1.0 - nextDouble()) / ratePerSecond * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Genera fino a count istanti di impulso successivi a fromNanos dentro out.
+     * Ritorna il numero di istanti scritti (0 se il rate è nullo).
+     */
+    public int fillTimestamps(long fromNanos, long[] out, int count) {
+        if (ratePerSecond <= 0) return 0;
+
+        int n = Math.min(count, out.length);
+        long t = fromNanos;
+        for (int i = 0; i < n; i++) {
+            t += nextIntervalNanos();
+            out[i] = t;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.fakegeigercounter;
+
+import java.util.Arrays;
+
+/**
+ * Fasce della scala di radiazioni mostrate dal contatore. Limiti, nomi e testi
+ * dei valori sono tabelle precalcolate, quindi classificare e mostrare una
+ * lettura non alloca nulla.
+ */
+public final class RadiationBands {
+    // Limite superiore (incluso) di ogni fascia tranne l'ultima
+    private static final int[] UPPER_BOUNDS = {50, 150, 300, 500, 700, 850, 950};
+    private static final String[] NAMES = {
+            "Aria Vault",
+            "Polvere Glow",
+            "Zona Gialla",
+            "Sangue Verde",
+            "Ghoul Ferale",
+            "Scorie Dirette",
+            "Cuore FEV",
+            "Liberty Prime"
+    };
+    public static final int COUNT = NAMES.length;
+
+    private static final String[] VALUE_TEXT = new String[CurveTables.MAX_RAD + 1];
+
+    static {
+        for (int i = 0; i < VALUE_TEXT.length; i++) {
+            VALUE_TEXT[i] = String.valueOf(i);
+        }
+    }
+
+    private RadiationBands() {
+    }
+
+    /**
+     * Indice della fascia (0 = Aria Vault, COUNT - 1 = Liberty Prime)
+     */
+    public static int bandOf(int radiation) {
+        int index = Arrays.binarySearch(UPPER_BOUNDS, radiation);
+        // Un valore uguale al limite appartiene alla fascia che quel limite chiude
+        return index >= 0 ? index : -index - 1;
+    }
+
+    public static String name(int band) {
+        return NAMES[band];
+    }
+
+    /**
+     * Testo del valore (0-1000) già convertito in stringa
+     */
+    public static String valueText(int radiation) {
+        return VALUE_TEXT[Math.max(0, Math.min(CurveTables.MAX_RAD, radiation))];
+    }
+}
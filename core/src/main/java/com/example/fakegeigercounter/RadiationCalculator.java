@@ -0,0 +1,93 @@
+package com.example.fakegeigercounter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RadiationCalculator {
+    static final int MIN_RSSI = -90;
+    private static final int MAX_DIST = MIN_RSSI * MIN_RSSI; // Valore approssimativo per distanza minima
+    private static final int MIN_THRESHOLD = 50;
+    private static final long MAX_DELAY = 5_000_000_000L; // 5 secondi
+    private final MonotonicClock clock;
+    private long lastDetectionTime = 0;
+    private boolean hasDetection = false;
+    private int currentRssi = -100;
+    private int detectionThreshold = MIN_THRESHOLD;
+    private final PulseEngine pulseEngine;
+    private RssiFilter rssiFilter = RssiFilterType.NONE.create();
+    private final AtomicReference<CurveTables> curveTables =
+            new AtomicReference<>(CurveTables.compile(RadiationCurveType.LINEAR.create()));
+
+    public RadiationCalculator() {
+        this(MonotonicClock.SYSTEM, new PulseEngine());
+    }
+
+    public RadiationCalculator(PulseEngine pulseEngine) {
+        this(MonotonicClock.SYSTEM, pulseEngine);
+    }
+
+    public RadiationCalculator(MonotonicClock clock, PulseEngine pulseEngine) {
+        this.clock = clock;
+        this.pulseEngine = pulseEngine;
+    }
+
+    /**
+     * Imposta il filtro applicato ai campioni RSSI in ingresso
+     */
+    public void setRssiFilter(RssiFilter rssiFilter) {
+        this.rssiFilter = rssiFilter;
+    }
+
+    /**
+     * Compila la curva e la sostituisce a quella attuale, anche durante una sessione
+     */
+    public void setCurve(RadiationCurve curve) {
+        curveTables.set(CurveTables.compile(curve));
+    }
+
+    public RadiationCurve getCurve() {
+        return curveTables.get().getCurve();
+    }
+
+    public void updateRssi(int rssi) {
+        long now = clock.nanoTime();
+        // Dopo una lunga assenza di segnale i vecchi campioni non sono più significativi
+        if (isStale(now)) {
+            rssiFilter.reset();
+        }
+        this.currentRssi = rssiFilter.filter(rssi);
+        this.lastDetectionTime = now;
+        this.hasDetection = true;
+    }
+
+    private boolean isStale(long now) {
+        return !hasDetection || (now - lastDetectionTime) > MAX_DELAY;
+    }
+
+    public int calculateRadiation() {
+        // Se non ci sono rilevazioni recenti, usa il valore minimo
+        if (isStale(clock.nanoTime())) {
+            currentRssi = MIN_RSSI;
+        }
+
+        // Legge il valore dalla tabella precompilata (già limitato a 0-1000)
+        int radVal = curveTables.get().radiationFor(currentRssi);
+
+        // Aggiorna la soglia di rilevamento
+        detectionThreshold = (radVal <= 6) ? MIN_THRESHOLD : 1000;
+
+        return radVal;
+    }
+
+    public boolean shouldTriggerPulse() {
+        // Simula il comportamento randomico dell'originale, senza allocare un Random ogni volta
+        return pulseEngine.nextInt(distance()) < detectionThreshold;
+    }
+
+    public int getCurrentRssi() {
+        return currentRssi;
+    }
+
+    private int distance() {
+        return currentRssi * currentRssi;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Curva che converte un RSSI in un valore di radiazioni (0-1000).
+ * Viene valutata solo quando si compilano le CurveTables, mai per ogni lettura.
+ */
+public interface RadiationCurve {
+    /**
+     * Valore di radiazioni per l'RSSI dato, anche fuori scala (viene limitato dalle tabelle)
+     */
+    float radiation(int rssi);
+}
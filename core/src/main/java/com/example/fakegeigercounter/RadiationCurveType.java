@@ -0,0 +1,33 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Curve RSSI → radiazioni selezionabili per sessione
+ */
+public enum RadiationCurveType {
+    LINEAR,
+    LOG_DISTANCE,
+    INVERSE_SQUARE;
+
+    public RadiationCurve create() {
+        switch (this) {
+            case LOG_DISTANCE:
+                return new LogDistanceRadiationCurve(-59, 2f, 0.1f, 10f);
+            case INVERSE_SQUARE:
+                return new InverseSquareRadiationCurve(-59, 2f, 0.3f);
+            default:
+                return new LinearRadiationCurve(RadiationCalculator.MIN_RSSI, 10);
+        }
+    }
+
+    /**
+     * Come valueOf ma ritorna il valore di default se il nome non è valido
+     */
+    public static RadiationCurveType fromName(String name, RadiationCurveType fallback) {
+        if (name == null) return fallback;
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.fakegeigercounter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Campo di radiazioni generato da più sorgenti BLE contemporaneamente.
+ * Ogni sorgente ha uno slot con l'ultima lettura (istante + RSSI impacchettati
+ * in un long atomico), un peso e una propria finestra di validità, quindi gli
+ * aggiornamenti dai thread Bluetooth non usano lock e costano O(1).
+ * L'aggregazione somma i contributi delle sorgenti non scadute in O(N).
+ */
+public class RadiationField {
+    public static final int DEFAULT_CAPACITY = 512;
+    public static final long DEFAULT_MAX_DELAY = 5_000_000_000L; // 5 secondi, come RadiationCalculator
+    private static final long NO_READING = Long.MIN_VALUE;
+
+    private final MonotonicClock clock;
+    private final ConcurrentHashMap<String, Integer> slotByAddress = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> addresses;
+    private final AtomicLongArray readings;
+    private final AtomicIntegerArray weights;
+    private final AtomicLongArray maxDelays;
+    private final AtomicInteger emitterCount = new AtomicInteger();
+    private final AtomicReference<CurveTables> curveTables =
+            new AtomicReference<>(CurveTables.compile(RadiationCurveType.LINEAR.create()));
+
+    public RadiationField() {
+        this(MonotonicClock.SYSTEM, DEFAULT_CAPACITY);
+    }
+
+    public RadiationField(MonotonicClock clock, int capacity) {
+        this.clock = clock;
+        this.addresses = new AtomicReferenceArray<>(capacity);
+        this.readings = new AtomicLongArray(capacity);
+        this.weights = new AtomicIntegerArray(capacity);
+        this.maxDelays = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            readings.set(i, NO_READING);
+        }
+    }
+
+    public void setCurve(RadiationCurve curve) {
+        curveTables.set(CurveTables.compile(curve));
+    }
+
+    /**
+     * Registra una sorgente con la validità di default (o ne aggiorna il peso) e ritorna il suo slot
+     */
+    public int register(String address, float weight) {
+        return register(address, weight, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * Registra una sorgente (o ne aggiorna peso e validità) e ritorna il suo slot;
+     * le sue letture più vecchie di maxDelayNanos non contano più
+     */
+    public int register(String address, float weight, long maxDelayNanos) {
+        int bits = Float.floatToIntBits(weight);
+        int slot = slotByAddress.computeIfAbsent(address, key -> {
+            // Uno slot appena allocato non ha letture, quindi è ignorato dall'aggregazione
+            // finché il primo update non lo riempie
+            int index = emitterCount.getAndIncrement();
+            if (index >= readings.length()) {
+                emitterCount.decrementAndGet();
+                throw new IllegalStateException("Too many emitters, capacity is " + readings.length());
+            }
+            // Peso e validità prima che lo slot sia visibile: un update da un altro
+            // thread non può riempirlo mentre ha ancora peso 0
+            weights.set(index, bits);
+            maxDelays.set(index, maxDelayNanos);
+            addresses.set(index, key);
+            return index;
+        });
+        // Sorgente già registrata: aggiorna peso e validità
+        weights.set(slot, bits);
+        maxDelays.set(slot, maxDelayNanos);
+        return slot;
+    }
+
+    /**
+     * Aggiorna la lettura di una sorgente, registrandola con peso 1 se è nuova
+     */
+    public void update(String address, int rssi) {
+        Integer slot = slotByAddress.get(address);
+        update(slot != null ? slot : register(address, 1f), rssi);
+    }
+
+    /**
+     * Aggiorna la lettura di uno slot già registrato
+     */
+    public void update(int slot, int rssi) {
+        readings.set(slot, pack(clock.nanoTime(), rssi));
+    }
+
+    /**
+     * Somma dei contributi delle sorgenti con letture recenti, limitata a 0-1000
+     */
+    public int calculateRadiation() {
+        CurveTables tables = curveTables.get();
+        long now = clock.nanoTime();
+        int count = emitterCount();
+
+        float total = 0;
+        for (int i = 0; i < count; i++) {
+            long reading = readings.get(i);
+            if (!isFresh(i, reading, now)) continue;
+            total += tables.radiationFor(unpackRssi(reading)) * Float.intBitsToFloat(weights.get(i));
+        }
+        return Math.max(0, Math.min(CurveTables.MAX_RAD, (int) total));
+    }
+
+    /**
+     * Numero di sorgenti con letture non scadute
+     */
+    public int activeEmitters() {
+        long now = clock.nanoTime();
+        int count = emitterCount();
+        int active = 0;
+        for (int i = 0; i < count; i++) {
+            long reading = readings.get(i);
+            if (isFresh(i, reading, now)) active++;
+        }
+        return active;
+    }
+
+    /**
+     * RSSI più forte tra le sorgenti con letture recenti, MIN_RSSI di RadiationCalculator se nessuna
+     */
+    public int strongestRssi() {
+        long now = clock.nanoTime();
+        int count = emitterCount();
+        int strongest = RadiationCalculator.MIN_RSSI;
+        for (int i = 0; i < count; i++) {
+            long reading = readings.get(i);
+            if (isFresh(i, reading, now)) {
+                strongest = Math.max(strongest, unpackRssi(reading));
+            }
+        }
+        return strongest;
+    }
+
+    private boolean isFresh(int slot, long reading, long now) {
+        return reading != NO_READING && now - unpackTime(reading) <= maxDelays.get(slot);
+    }
+
+    public int emitterCount() {
+        return Math.min(emitterCount.get(), readings.length());
+    }
+
+    public String addressOf(int slot) {
+        return addresses.get(slot);
+    }
+
+    /**
+     * L'istante è salvato in millisecondi nei 56 bit alti, l'RSSI (con segno) negli 8 bassi
+     */
+    private static long pack(long nanos, int rssi) {
+        return ((nanos / 1_000_000) << 8) | (rssi & 0xFF);
+    }
+
+    private static long unpackTime(long reading) {
+        return (reading >> 8) * 1_000_000;
+    }
+
+    private static int unpackRssi(long reading) {
+        return (byte) reading;
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.fakegeigercounter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Distribuisce ogni lettura a più consumatori indipendenti attraverso un anello
+ * preallocato, sullo schema del Disruptor: un solo produttore avanza il cursore,
+ * ogni consumatore ha la propria sequenza e legge al proprio ritmo.
+ *
+ * A differenza del Disruptor il produttore non aspetta mai il consumatore più
+ * lento: se un consumatore resta indietro di più di un anello le letture più
+ * vecchie vengono sovrascritte e lui le salta, contandole come perse. Così un
+ * consumatore lento (disco, rete) non rallenta mai il thread di elaborazione e
+ * quindi l'audio. Pubblicare e consumare non allocano.
+ *
+ * Ogni slot è [sequenza, RSSI e livello, istante]; il consumatore rilegge la
+ * sequenza dopo i dati, quindi non usa mai uno slot sovrascritto a metà.
+ */
+public class ReadingBus {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int SLOT_SIZE = 3;
+    private static final long WRITING = -1;
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = 100_000;
+
+    public interface Handler {
+        /**
+         * Sul thread del consumatore, in ordine di pubblicazione
+         */
+        void onReading(int rssi, int radLevel, long nanos);
+    }
+
+    /**
+     * Come aspetta un consumatore sul proprio thread quando non ci sono letture nuove
+     */
+    public enum WaitStrategy {
+        /** Gira a vuoto: latenza minima, un core occupato */
+        BUSY_SPIN,
+        /** Gira un po', poi cede il core ad altri thread */
+        YIELDING,
+        /** Gira, cede, poi dorme 0,1 ms alla volta */
+        SLEEPING,
+        /** Si sospende finché il produttore non lo sveglia: nessun consumo a vuoto */
+        BLOCKING;
+
+        /**
+         * Come valueOf ma ritorna il valore di default se il nome non è valido
+         */
+        public static WaitStrategy fromName(String name, WaitStrategy fallback) {
+            if (name == null) return fallback;
+            try {
+                return valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return fallback;
+            }
+        }
+    }
+
+    /**
+     * Un consumatore: si usa o chiamando poll da un thread esistente o eseguendolo
+     * (run) su un thread dedicato, mai tutte e due insieme
+     */
+    public final class Consumer implements Runnable {
+        private final String name;
+        private final Handler handler;
+        private final WaitStrategy waitStrategy;
+        // Ultima sequenza consumata
+        private volatile long sequence;
+        private volatile Thread waiter;
+        private volatile boolean running = true;
+
+        // Statistiche: backlog scritto solo dal produttore, il resto solo dal consumatore
+        private volatile long maxBacklog = 0;
+        private volatile long handled = 0;
+        private volatile long lost = 0;
+
+        Consumer(String name, Handler handler, WaitStrategy waitStrategy, long sequence) {
+            this.name = name;
+            this.handler = handler;
+            this.waitStrategy = waitStrategy;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Consuma tutte le letture disponibili senza aspettare; ritorna quante ne ha passate all'handler
+         */
+        public int poll() {
+            long available = cursor;
+            long next = sequence + 1;
+            int count = 0;
+            while (next <= available) {
+                // Rimasto indietro di più di un anello: le più vecchie non ci sono più
+                long oldest = cursor - mask;
+                if (next < oldest) {
+                    lost += oldest - next;
+                    next = oldest;
+                    sequence = next - 1;
+                }
+                int base = (int) (next & mask) * SLOT_SIZE;
+                long reading = slots.get(base + 1);
+                long nanos = slots.get(base + 2);
+                if (slots.get(base) != next) {
+                    // Sovrascritto mentre lo leggevamo: si riparte dalla più vecchia ancora presente
+                    continue;
+                }
+                handler.onReading((int) (reading >> 32), (int) reading, nanos);
+                sequence = next;
+                handled++;
+                count++;
+                next++;
+                if (next > available) available = cursor;
+            }
+            return count;
+        }
+
+        /**
+         * Ciclo del thread dedicato: consuma e aspetta secondo la strategia fino a halt,
+         * poi consuma quello che resta
+         */
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                if (poll() > 0) {
+                    idle = 0;
+                } else {
+                    idle(idle++);
+                }
+            }
+            poll();
+        }
+
+        private void idle(int tries) {
+            switch (waitStrategy) {
+                case BUSY_SPIN:
+                    break;
+                case YIELDING:
+                    if (tries >= SPIN_TRIES) Thread.yield();
+                    break;
+                case SLEEPING:
+                    if (tries >= 2 * SPIN_TRIES) {
+                        LockSupport.parkNanos(SLEEP_NANOS);
+                    } else if (tries >= SPIN_TRIES) {
+                        Thread.yield();
+                    }
+                    break;
+                default:
+                    // Ricontrolla dopo essersi registrato: un publish nel mezzo lo sveglia comunque
+                    waiter = Thread.currentThread();
+                    if (running && cursor == sequence) LockSupport.park(this);
+                    waiter = null;
+                    break;
+            }
+        }
+
+        /**
+         * Ferma il ciclo di run dopo aver consumato le letture già pubblicate
+         */
+        public void halt() {
+            running = false;
+            Thread thread = waiter;
+            if (thread != null) LockSupport.unpark(thread);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Letture pubblicate e non ancora consumate
+         */
+        public long getBacklog() {
+            return Math.min(cursor - sequence, capacity());
+        }
+
+        /**
+         * Backlog più alto visto dal produttore subito dopo una pubblicazione
+         */
+        public long getMaxBacklog() {
+            return maxBacklog;
+        }
+
+        public long getHandled() {
+            return handled;
+        }
+
+        /**
+         * Letture sovrascritte prima che il consumatore le raggiungesse
+         */
+        public long getLost() {
+            return lost;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + handled + " handled, backlog " + getBacklog() + " (max " + maxBacklog
+                    + "), " + lost + " lost";
+        }
+    }
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private volatile long cursor = -1;
+    // Sostituito solo in addConsumer, il produttore lo scorre senza allocare
+    private volatile Consumer[] consumers = new Consumer[0];
+
+    public ReadingBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * capacity deve essere una potenza di 2
+     */
+    public ReadingBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2");
+        }
+        mask = capacity - 1;
+        slots = new AtomicLongArray(capacity * SLOT_SIZE);
+        for (int i = 0; i < capacity; i++) {
+            slots.set(i * SLOT_SIZE, WRITING);
+        }
+    }
+
+    /**
+     * Aggiunge un consumatore; riceve solo le letture pubblicate da qui in poi
+     */
+    public synchronized Consumer addConsumer(String name, Handler handler, WaitStrategy waitStrategy) {
+        Consumer consumer = new Consumer(name, handler, waitStrategy, cursor);
+        Consumer[] current = consumers;
+        Consumer[] updated = new Consumer[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = consumer;
+        consumers = updated;
+        return consumer;
+    }
+
+    /**
+     * Toglie un consumatore, da fermare prima se gira su un thread proprio
+     */
+    public synchronized void removeConsumer(Consumer consumer) {
+        Consumer[] current = consumers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != consumer) continue;
+            Consumer[] updated = new Consumer[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, i);
+            System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+            consumers = updated;
+            return;
+        }
+    }
+
+    /**
+     * Solo dal thread produttore; non aspetta mai i consumatori
+     */
+    public void publish(int rssi, int radLevel, long nanos) {
+        long next = cursor + 1;
+        int base = (int) (next & mask) * SLOT_SIZE;
+        slots.set(base, WRITING);
+        slots.set(base + 1, ((long) rssi << 32) | (radLevel & 0xFFFFFFFFL));
+        slots.set(base + 2, nanos);
+        slots.set(base, next);
+        cursor = next;
+
+        for (Consumer consumer : consumers) {
+            long backlog = next - consumer.sequence;
+            if (backlog > consumer.maxBacklog) consumer.maxBacklog = backlog;
+            Thread waiter = consumer.waiter;
+            if (waiter != null) LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Sequenza dell'ultima lettura pubblicata, -1 se nessuna
+     */
+    public long getCursor() {
+        return cursor;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public Consumer[] getConsumers() {
+        return consumers.clone();
+    }
+
+    /**
+     * Una riga per consumatore, per i log
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Consumer consumer : consumers) {
+            if (text.length() > 0) text.append('\n');
+            text.append(consumer);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.fakegeigercounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passaggio dell'ultima lettura dal thread Bluetooth (unico scrittore) ai thread
+ * audio e UI. Istante, RSSI, livello e fascia sono impacchettati in un solo long
+ * atomico, quindi ogni lettore vede sempre una lettura coerente senza lock.
+ *
+ * Layout: 41 bit di millisecondi dalla creazione del canale | 4 bit fascia |
+ * 11 bit livello (0-1000) | 8 bit RSSI con segno.
+ */
+public class ReadingChannel {
+    public static final long EMPTY = -1L;
+
+    private static final int RSSI_BITS = 8;
+    private static final int RAD_BITS = 11;
+    private static final int BAND_BITS = 4;
+    private static final int RAD_SHIFT = RSSI_BITS;
+    private static final int BAND_SHIFT = RAD_SHIFT + RAD_BITS;
+    private static final int TIME_SHIFT = BAND_SHIFT + BAND_BITS;
+
+    private final MonotonicClock clock;
+    private final long epochNanos;
+    private final AtomicLong snapshot = new AtomicLong(EMPTY);
+
+    public ReadingChannel() {
+        this(MonotonicClock.SYSTEM);
+    }
+
+    public ReadingChannel(MonotonicClock clock) {
+        this.clock = clock;
+        this.epochNanos = clock.nanoTime();
+    }
+
+    /**
+     * Pubblica una nuova lettura con l'istante corrente
+     */
+    public void publish(int rssi, int radLevel, int band) {
+        long millis = (clock.nanoTime() - epochNanos) / 1_000_000;
+        snapshot.set((millis << TIME_SHIFT)
+                | ((long) (band & ((1 << BAND_BITS) - 1)) << BAND_SHIFT)
+                | ((long) (radLevel & ((1 << RAD_BITS) - 1)) << RAD_SHIFT)
+                | (rssi & 0xFF));
+    }
+
+    /**
+     * Ultima lettura pubblicata, oppure EMPTY
+     */
+    public long read() {
+        return snapshot.get();
+    }
+
+    /**
+     * Istante della lettura sullo stesso orologio del canale
+     */
+    public long timestampNanos(long snapshot) {
+        return epochNanos + (snapshot >>> TIME_SHIFT) * 1_000_000;
+    }
+
+    public static int rssi(long snapshot) {
+        return (byte) snapshot;
+    }
+
+    public static int radLevel(long snapshot) {
+        return (int) (snapshot >>> RAD_SHIFT) & ((1 << RAD_BITS) - 1);
+    }
+
+    public static int band(long snapshot) {
+        return (int) (snapshot >>> BAND_SHIFT) & ((1 << BAND_BITS) - 1);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Stadio di filtro applicato agli RSSI prima del calcolo delle radiazioni.
+ * Le implementazioni lavorano su stato a dimensione fissa e non allocano.
+ */
+public interface RssiFilter {
+    /**
+     * Aggiunge un campione e ritorna il valore filtrato
+     */
+    int filter(int rssi);
+
+    /**
+     * Dimentica i campioni precedenti (es. dopo una lunga assenza di segnale)
+     */
+    void reset();
+}
@@ -0,0 +1,45 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Filtri RSSI selezionabili per sessione
+ */
+public enum RssiFilterType {
+    NONE,
+    EMA,
+    MEDIAN,
+    KALMAN;
+
+    public RssiFilter create() {
+        switch (this) {
+            case EMA:
+                return new EmaRssiFilter(0.3f);
+            case MEDIAN:
+                return new MedianRssiFilter(5);
+            case KALMAN:
+                return new KalmanRssiFilter(2f, 16f);
+            default:
+                return new RssiFilter() {
+                    @Override
+                    public int filter(int rssi) {
+                        return rssi;
+                    }
+
+                    @Override
+                    public void reset() {
+                    }
+                };
+        }
+    }
+
+    /**
+     * Come valueOf ma ritorna il valore di default se il nome non è valido
+     */
+    public static RssiFilterType fromName(String name, RssiFilterType fallback) {
+        if (name == null) return fallback;
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.fakegeigercounter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decide ogni quanto leggere l'RSSI: accelera fino all'intervallo minimo quando il
+ * segnale cambia velocemente e rallenta fino al massimo quando è stabile o il livello
+ * è zero. Garantisce che ci sia al massimo una lettura in corso alla volta.
+ * In modalità a gruppi (setBatchSize) le letture partono a raffiche, una dopo
+ * l'altra, separate da un'attesa proporzionalmente più lunga: stessa frequenza
+ * media con meno risvegli.
+ *
+ * tryIssue viene chiamato dal thread che avvia le letture, onReadCompleted dal
+ * thread che le elabora e onReadFailed da uno qualsiasi dei due. Ogni lettura ha
+ * un numero progressivo: una risposta arrivata dopo il timeout, quando lo slot è
+ * già passato a un'altra lettura, viene ignorata.
+ */
+public class RssiPollScheduler {
+    public static final long DEFAULT_MIN_INTERVAL = 100;   // ms, sopra l'intervallo di connessione tipico
+    public static final long DEFAULT_BASE_INTERVAL = 1000; // ms, come il polling fisso precedente
+    public static final long DEFAULT_MAX_INTERVAL = 4000;  // ms
+    /** Ritornato da tryIssue quando la lettura non va avviata */
+    public static final long NO_READ = 0;
+    private static final long READ_TIMEOUT = 2_000_000_000L; // una lettura senza risposta oltre 2 s è persa
+    private static final long READ_TIMEOUT_MS = READ_TIMEOUT / 1_000_000;
+
+    private static final int WINDOW = 8;
+    private static final float HIGH_VARIANCE = 9f;   // dB², segnale in movimento
+    private static final float LOW_VARIANCE = 2.25f; // dB², segnale fermo
+    private static final float HIGH_SLOPE = 10f;     // dB/s
+    private static final float LOW_SLOPE = 2f;       // dB/s
+
+    private final MonotonicClock clock;
+    private final long minInterval;
+    private final long baseInterval;
+    private final long maxInterval;
+
+    // Stato del thread che elabora le letture
+    private final RssiRingBuffer window = new RssiRingBuffer(WINDOW);
+    private int lastRssi;
+    private long lastReadTime;
+    private boolean hasLastRead = false;
+
+    private volatile long interval;
+    // Numero della lettura in corso, NO_READ se nessuna
+    private final AtomicLong inFlight = new AtomicLong(NO_READ);
+    private long nextRead = NO_READ;
+    private volatile long issueTime;
+    private volatile int batchSize = 1;
+    private final AtomicInteger batchIssued = new AtomicInteger();
+
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+
+    public RssiPollScheduler(MonotonicClock clock) {
+        this(clock, DEFAULT_MIN_INTERVAL, DEFAULT_BASE_INTERVAL, DEFAULT_MAX_INTERVAL);
+    }
+
+    public RssiPollScheduler(MonotonicClock clock, long minInterval, long baseInterval, long maxInterval) {
+        this.clock = clock;
+        this.minInterval = minInterval;
+        this.baseInterval = baseInterval;
+        this.maxInterval = maxInterval;
+        this.interval = baseInterval;
+    }
+
+    /**
+     * Prenota una nuova lettura e ritorna il suo numero, da passare a onReadCompleted
+     * o onReadFailed; NO_READ se ce n'è già una in corso
+     */
+    public long tryIssue() {
+        long now = clock.nanoTime();
+        long current = inFlight.get();
+        if (current != NO_READ) {
+            if (now - issueTime < READ_TIMEOUT) return NO_READ;
+            // La risposta non arriverà più: libera lo slot
+            if (inFlight.compareAndSet(current, NO_READ)) timedOut.incrementAndGet();
+        }
+        long read = ++nextRead;
+        if (!inFlight.compareAndSet(NO_READ, read)) return NO_READ;
+        issueTime = now;
+        issued.incrementAndGet();
+        batchIssued.incrementAndGet();
+        return read;
+    }
+
+    /**
+     * Libera lo slot se read è ancora la lettura in corso; altrimenti la conta come tardiva
+     */
+    private boolean release(long read) {
+        if (read != NO_READ && inFlight.compareAndSet(read, NO_READ)) return true;
+        late.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Numero di letture per gruppo; 1 = letture singole
+     */
+    public void setBatchSize(int size) {
+        batchSize = Math.max(1, size);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * true se il gruppo in corso non è finito: la prossima lettura va avviata subito
+     */
+    public boolean continueBatch() {
+        int count = batchIssued.get();
+        return count > 0 && count < batchSize;
+    }
+
+    /**
+     * Lettura completata; rssi dovrebbe essere il valore già filtrato
+     */
+    public void onReadCompleted(long read, int rssi, int radLevel) {
+        if (!release(read)) return;
+        completed.incrementAndGet();
+
+        long now = clock.nanoTime();
+        float slope = 0;
+        // Le letture di uno stesso gruppo sono troppo vicine per stimare la pendenza
+        boolean spaced = !hasLastRead || now - lastReadTime >= minInterval * 1_000_000;
+        if (hasLastRead && spaced) {
+            slope = Math.abs(rssi - lastRssi) * 1e9f / (now - lastReadTime);
+        }
+        if (spaced) {
+            lastRssi = rssi;
+            lastReadTime = now;
+            hasLastRead = true;
+        }
+        window.push(rssi);
+
+        float variance = variance();
+        long current = interval;
+        long next;
+        if (variance >= HIGH_VARIANCE || slope >= HIGH_SLOPE) {
+            next = current / 2;
+        } else if (radLevel == 0 || (variance <= LOW_VARIANCE && slope <= LOW_SLOPE)) {
+            next = current + current / 2;
+        } else {
+            // Segnale né fermo né in movimento: torna gradualmente verso l'intervallo base
+            next = (current + baseInterval) / 2;
+        }
+        interval = Math.max(minInterval, Math.min(maxInterval, next));
+    }
+
+    /**
+     * La lettura non è partita o è terminata con errore
+     */
+    public void onReadFailed(long read) {
+        if (!release(read)) return;
+        failed.incrementAndGet();
+    }
+
+    /**
+     * Reimposta l'intervallo base e dimentica lo storico, es. alla ripartenza del contatore
+     */
+    public void reset() {
+        window.clear();
+        hasLastRead = false;
+        interval = baseInterval;
+        batchIssued.set(0);
+    }
+
+    private float variance() {
+        int n = window.size();
+        if (n < 2) return 0;
+        float sum = 0, sumSq = 0;
+        for (int i = 0; i < n; i++) {
+            int v = window.get(i);
+            sum += v;
+            sumSq += v * v;
+        }
+        float mean = sum / n;
+        return sumSq / n - mean * mean;
+    }
+
+    /**
+     * Attesa in millisecondi prima della prossima lettura
+     */
+    public long nextDelayMillis() {
+        int size = batchSize;
+        int count = batchIssued.get();
+        if (count > 0 && count < size) {
+            // La prossima del gruppo parte al completamento; questo è solo il ripiego
+            return READ_TIMEOUT_MS;
+        }
+        batchIssued.compareAndSet(count, 0);
+        return interval * size;
+    }
+
+    public long getIssued() {
+        return issued.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * Risposte arrivate dopo il timeout o per una lettura già chiusa, ignorate
+     */
+    public long getLate() {
+        return late.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get() != NO_READ ? 1 : 0;
+    }
+}
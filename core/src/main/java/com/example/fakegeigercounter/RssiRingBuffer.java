@@ -0,0 +1,55 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Buffer circolare di interi a dimensione fissa
+ */
+public class RssiRingBuffer {
+    private final int[] values;
+    private int head = 0;
+    private int size = 0;
+
+    public RssiRingBuffer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        values = new int[capacity];
+    }
+
+    /**
+     * Inserisce un valore sovrascrivendo il più vecchio quando il buffer è pieno
+     */
+    public void push(int value) {
+        values[head] = value;
+        head = (head + 1) % values.length;
+        if (size < values.length) size++;
+    }
+
+    /**
+     * Valore più vecchio, cioè quello che verrà sovrascritto dal prossimo push a buffer pieno
+     */
+    public int oldest() {
+        return values[(head - size + values.length) % values.length];
+    }
+
+    /**
+     * i-esimo valore partendo dal più vecchio
+     */
+    public int get(int i) {
+        return values[(head - size + i + values.length) % values.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isFull() {
+        return size == values.length;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Storico RSSI da riprodurre in tempo simulato
+ */
+public interface RssiSource {
+    /** Valore ritornato quando la lettura in quell'istante non è disponibile */
+    int NO_READING = Integer.MIN_VALUE;
+
+    int rssiAt(long nanos);
+}
@@ -0,0 +1,101 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Alterna finestre di scansione e di pausa sull'executor. Android blocca le app che
+ * avviano più di 5 scansioni in 30 secondi, quindi un ciclo dura almeno 6 secondi:
+ * se on + off è più corto la pausa viene allungata.
+ *
+ * Tutti i metodi vanno chiamati dal thread dell'executor.
+ */
+public class ScanDutyCycle {
+    public static final long MIN_CYCLE_MILLIS = 6_000;
+
+    public interface Window {
+        /**
+         * Apre una finestra di scansione; false se non è stato possibile
+         */
+        boolean open();
+
+        void close();
+    }
+
+    private final DelayedExecutor executor;
+    private final Window window;
+    private final long onMillis;
+    private final long offMillis;
+    private boolean running = false;
+    private boolean open = false;
+    private long windows = 0;
+
+    private final Runnable openTask = this::openWindow;
+    private final Runnable closeTask = this::closeWindow;
+
+    /**
+     * Con offMillis = 0 la finestra resta aperta fino a stop
+     */
+    public ScanDutyCycle(DelayedExecutor executor, Window window, long onMillis, long offMillis) {
+        this.executor = executor;
+        this.window = window;
+        this.onMillis = onMillis;
+        this.offMillis = offMillis > 0 ? Math.max(offMillis, MIN_CYCLE_MILLIS - onMillis) : 0;
+    }
+
+    public boolean start() {
+        if (running) return true;
+        running = true;
+        openWindow();
+        if (!open) {
+            running = false;
+            return false;
+        }
+        return true;
+    }
+
+    public void stop() {
+        running = false;
+        executor.removeCallbacks(openTask);
+        executor.removeCallbacks(closeTask);
+        if (open) {
+            open = false;
+            window.close();
+        }
+    }
+
+    private void openWindow() {
+        if (!running) return;
+        open = window.open();
+        if (!open) return;
+        windows++;
+        if (offMillis > 0) {
+            executor.postDelayed(closeTask, onMillis);
+        }
+    }
+
+    private void closeWindow() {
+        if (!open) return;
+        open = false;
+        window.close();
+        if (running) {
+            executor.postDelayed(openTask, offMillis);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Pausa effettiva tra due finestre, dopo l'eventuale allungamento
+     */
+    public long getOffMillis() {
+        return offMillis;
+    }
+
+    public long getWindows() {
+        return windows;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.fakegeigercounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conta le callback di scansione che svegliano l'app e i risultati che portano,
+ * per confrontare filtri hardware e report in blocchi con la scansione senza filtri.
+ * I record possono essere chiamati da qualsiasi thread.
+ */
+public class ScanMeter {
+    private final MonotonicClock clock;
+    private final AtomicLong callbacks = new AtomicLong();
+    private final AtomicLong results = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final long startTime;
+
+    public ScanMeter(MonotonicClock clock) {
+        this.clock = clock;
+        this.startTime = clock.nanoTime();
+    }
+
+    /**
+     * Una callback dello scanner con il numero di risultati consegnati
+     */
+    public void recordCallback(int resultCount) {
+        callbacks.incrementAndGet();
+        results.addAndGet(resultCount);
+    }
+
+    /**
+     * Un risultato scartato dal filtro software, cioè una sveglia che il controller poteva evitare
+     */
+    public void recordRejected() {
+        rejected.incrementAndGet();
+    }
+
+    public long getCallbacks() {
+        return callbacks.get();
+    }
+
+    public long getResults() {
+        return results.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Callback al minuto dall'avvio del contatore
+     */
+    public float callbacksPerMinute() {
+        float minutes = (clock.nanoTime() - startTime) / 60e9f;
+        return minutes > 0 ? callbacks.get() / minutes : 0;
+    }
+
+    public float resultsPerCallback() {
+        long count = callbacks.get();
+        return count > 0 ? (float) results.get() / count : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("scan callbacks=%d (%.0f/min) results=%d (%.1f/callback) rejected=%d",
+                getCallbacks(), callbacksPerMinute(), getResults(), resultsPerCallback(), getRejected());
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Configurazione della scansione dei dispositivi: filtri da passare al controller
+ * Bluetooth, ritardo dei report in blocchi e ciclo di lavoro.
+ *
+ * UUID di servizio e dati del produttore vengono filtrati dal controller (quando
+ * supporta l'offload), quindi gli altri dispositivi non svegliano l'app; il prefisso
+ * del nome non è supportato dai filtri hardware e resta un controllo software.
+ */
+public class ScanProfile {
+    public static final int NO_MANUFACTURER = -1;
+    public static final long DEFAULT_TIMEOUT = 10_000; // ms
+
+    public enum Mode {
+        LOW_POWER,
+        BALANCED,
+        LOW_LATENCY;
+
+        /**
+         * Come valueOf ma ritorna il valore di default se il nome non è valido
+         */
+        public static Mode fromName(String name, Mode fallback) {
+            if (name == null) return fallback;
+            try {
+                return valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return fallback;
+            }
+        }
+    }
+
+    private Mode mode = Mode.LOW_LATENCY;
+    private String serviceUuid;
+    private String namePrefix;
+    private int manufacturerId = NO_MANUFACTURER;
+    private byte[] manufacturerData;
+    private byte[] manufacturerMask;
+    private long reportDelayMillis = 0;
+    private long dutyOnMillis = 0;
+    private long dutyOffMillis = 0;
+    private long timeoutMillis = DEFAULT_TIMEOUT;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    /**
+     * UUID nel formato standard (es. 0000180f-0000-1000-8000-00805f9b34fb); null per nessun filtro
+     */
+    public void setServiceUuid(String serviceUuid) {
+        this.serviceUuid = serviceUuid;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public int getManufacturerId() {
+        return manufacturerId;
+    }
+
+    public byte[] getManufacturerData() {
+        return manufacturerData;
+    }
+
+    public byte[] getManufacturerMask() {
+        return manufacturerMask;
+    }
+
+    /**
+     * Accetta solo advertisement con questo id produttore; data e mask (della stessa
+     * lunghezza, mask può essere null) confrontano i primi byte del payload
+     */
+    public void setManufacturerData(int manufacturerId, byte[] data, byte[] mask) {
+        if (data != null && mask != null && mask.length != data.length) {
+            throw new IllegalArgumentException("mask length " + mask.length + " != data length " + data.length);
+        }
+        this.manufacturerId = manufacturerId;
+        this.manufacturerData = data;
+        this.manufacturerMask = mask;
+    }
+
+    public long getReportDelayMillis() {
+        return reportDelayMillis;
+    }
+
+    /**
+     * Con un ritardo > 0 il controller accumula i risultati e li consegna in blocchi
+     */
+    public void setReportDelayMillis(long reportDelayMillis) {
+        this.reportDelayMillis = Math.max(0, reportDelayMillis);
+    }
+
+    public long getDutyOnMillis() {
+        return dutyOnMillis;
+    }
+
+    public long getDutyOffMillis() {
+        return dutyOffMillis;
+    }
+
+    /**
+     * Alterna finestre di scansione e di pausa; con off = 0 la scansione è continua
+     */
+    public void setDutyCycle(long onMillis, long offMillis) {
+        this.dutyOnMillis = Math.max(0, onMillis);
+        this.dutyOffMillis = Math.max(0, offMillis);
+    }
+
+    public boolean isDutyCycled() {
+        return dutyOnMillis > 0 && dutyOffMillis > 0;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * true se almeno un filtro può essere applicato dal controller
+     */
+    public boolean hasHardwareFilter() {
+        return serviceUuid != null || manufacturerId != NO_MANUFACTURER;
+    }
+
+    /**
+     * Filtro software sul nome, applicato dopo quelli hardware
+     */
+    public boolean matchesName(String name) {
+        if (name == null) return false;
+        return namePrefix == null || name.startsWith(namePrefix);
+    }
+
+    /**
+     * Stesso confronto del filtro hardware, per i controller senza offload
+     * o per verificare i risultati simulati
+     */
+    public boolean matchesManufacturer(int id, byte[] payload) {
+        if (manufacturerId == NO_MANUFACTURER) return true;
+        if (id != manufacturerId) return false;
+        if (manufacturerData == null) return true;
+        if (payload == null || payload.length < manufacturerData.length) return false;
+        for (int i = 0; i < manufacturerData.length; i++) {
+            int mask = manufacturerMask != null ? manufacturerMask[i] : 0xFF;
+            if (((payload[i] ^ manufacturerData[i]) & mask) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Converte una stringa esadecimale (es. "02 15" o "0215") in byte; null se non valida
+     */
+    public static byte[] parseHex(String hex) {
+        if (hex == null) return null;
+        String digits = hex.replace(" ", "").replace(":", "");
+        if (digits.isEmpty() || digits.length() % 2 != 0) return null;
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(digits.charAt(2 * i), 16);
+            int low = Character.digit(digits.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) return null;
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s uuid=%s prefix=%s manufacturer=%d delay=%d ms duty=%d/%d ms",
+                mode, serviceUuid, namePrefix, manufacturerId, reportDelayMillis, dutyOnMillis, dutyOffMillis);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.fakegeigercounter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Configurazione di una sessione del contatore, letta dagli extra dell'intent che
+ * apre il rilevatore. Due configurazioni con gli stessi extra sono la stessa sessione.
+ * Gli extra dell'avvio (AUTO_START, LAUNCH_NANOS, FROM_CACHE) ne restano fuori.
+ */
+public final class SessionConfig {
+    public static final String DEVICE_ADDRESS = "DEVICE_ADDRESS";
+    public static final String PASSIVE_MODE = "PASSIVE_MODE";
+    public static final String SOURCE_ADDRESSES = "SOURCE_ADDRESSES";
+    public static final String RSSI_FILTER = "RSSI_FILTER";
+    public static final String RADIATION_CURVE = "RADIATION_CURVE";
+    public static final String BUS_WAIT = "BUS_WAIT";
+    public static final String RECORD_SESSION = "RECORD_SESSION";
+    public static final String INSTRUMENTATION = "INSTRUMENTATION";
+    public static final String DEBUG_OVERLAY = "DEBUG_OVERLAY";
+    public static final String GEO_TAG = "GEO_TAG";
+
+    /** Extra di sessione per tipo, per copiarli da un intent all'altro */
+    public static final String[] STRING_EXTRAS = {DEVICE_ADDRESS, RSSI_FILTER, RADIATION_CURVE, BUS_WAIT};
+    public static final String[] STRING_ARRAY_EXTRAS = {SOURCE_ADDRESSES};
+    public static final String[] BOOLEAN_EXTRAS = {PASSIVE_MODE, RECORD_SESSION, INSTRUMENTATION, DEBUG_OVERLAY, GEO_TAG};
+
+    /**
+     * Accesso agli extra dell'intent, così la configurazione non dipende da Android
+     */
+    public interface Extras {
+        boolean has(String name);
+
+        String getString(String name);
+
+        String[] getStringArray(String name);
+
+        boolean getBoolean(String name);
+    }
+
+    private final String deviceAddress;
+    private final boolean passiveMode;
+    private final List<String> sourceAddresses;
+    private final RssiFilterType rssiFilter;
+    private final RadiationCurveType radiationCurve;
+    private final ReadingBus.WaitStrategy busWait;
+    private final boolean recordSession;
+    private final boolean instrumentation;
+    private final boolean debugOverlay;
+    private final boolean geoTag;
+    private final String key;
+
+    private SessionConfig(Extras extras) {
+        deviceAddress = extras.getString(DEVICE_ADDRESS);
+        passiveMode = extras.getBoolean(PASSIVE_MODE);
+        String[] sources = extras.getStringArray(SOURCE_ADDRESSES);
+        if (sources != null) {
+            // Un indirizzo ripetuto aprirebbe due connessioni sullo stesso slot del campo
+            sourceAddresses = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(Arrays.asList(sources))));
+        } else if (deviceAddress != null) {
+            sourceAddresses = Collections.singletonList(deviceAddress);
+        } else {
+            sourceAddresses = null;
+        }
+        // Default: mediana (elimina i picchi isolati), curva lineare, consumatori sospesi
+        rssiFilter = RssiFilterType.fromName(extras.getString(RSSI_FILTER), RssiFilterType.MEDIAN);
+        radiationCurve = RadiationCurveType.fromName(extras.getString(RADIATION_CURVE), RadiationCurveType.LINEAR);
+        busWait = ReadingBus.WaitStrategy.fromName(extras.getString(BUS_WAIT), ReadingBus.WaitStrategy.BLOCKING);
+        recordSession = extras.getBoolean(RECORD_SESSION);
+        instrumentation = extras.getBoolean(INSTRUMENTATION);
+        debugOverlay = extras.getBoolean(DEBUG_OVERLAY);
+        geoTag = extras.getBoolean(GEO_TAG);
+        key = deviceAddress + '|' + passiveMode + '|' + sourceAddresses + '|' + rssiFilter + '|' + radiationCurve
+                + '|' + busWait + '|' + recordSession + '|' + instrumentation + '|' + debugOverlay + '|' + geoTag;
+    }
+
+    /**
+     * Configurazione dagli extra, o null se l'intent non ne porta nessuno di sessione
+     * (es. quello della notifica): in quel caso ci si aggancia alla sessione in corso
+     */
+    public static SessionConfig read(Extras extras) {
+        if (!hasAny(extras, STRING_EXTRAS) && !hasAny(extras, STRING_ARRAY_EXTRAS) && !hasAny(extras, BOOLEAN_EXTRAS)) {
+            return null;
+        }
+        return new SessionConfig(extras);
+    }
+
+    private static boolean hasAny(Extras extras, String[] names) {
+        for (String name : names) {
+            if (extras.has(name)) return true;
+        }
+        return false;
+    }
+
+    public String getDeviceAddress() {
+        return deviceAddress;
+    }
+
+    public boolean isPassiveMode() {
+        return passiveMode;
+    }
+
+    /**
+     * Sorgenti senza duplicati, nell'ordine dato; il solo DEVICE_ADDRESS se non ce ne sono
+     */
+    public List<String> getSourceAddresses() {
+        return sourceAddresses;
+    }
+
+    public RssiFilterType getRssiFilter() {
+        return rssiFilter;
+    }
+
+    public RadiationCurveType getRadiationCurve() {
+        return radiationCurve;
+    }
+
+    public ReadingBus.WaitStrategy getBusWait() {
+        return busWait;
+    }
+
+    public boolean isRecordSession() {
+        return recordSession;
+    }
+
+    public boolean isInstrumentation() {
+        return instrumentation;
+    }
+
+    public boolean isDebugOverlay() {
+        return debugOverlay;
+    }
+
+    public boolean isGeoTag() {
+        return geoTag;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SessionConfig && key.equals(((SessionConfig) other).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.fakegeigercounter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registra una sessione in due tracce, letture e impulsi, ognuna con un solo
+ * thread scrittore (elaborazione letture e audio). Il flush su disco avviene
+ * periodicamente su un thread a parte.
+ */
+public class SessionRecorder implements Closeable {
+    public static final String READINGS_FILE = "readings.trc";
+    public static final String PULSES_FILE = "pulses.trc";
+    private static final long FLUSH_INTERVAL = 5; // secondi
+
+    private final MonotonicClock clock;
+    private final TraceWriter readings;
+    private final TraceWriter pulses;
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public SessionRecorder(File directory, MonotonicClock clock) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.clock = clock;
+        long start = clock.nanoTime();
+        readings = new TraceWriter(new File(directory, READINGS_FILE), start);
+        pulses = new TraceWriter(new File(directory, PULSES_FILE), start);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "SessionRecorderFlush"));
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Chiamato dal thread che elabora le letture
+     */
+    public void onReading(int rssi, int radLevel) {
+        onReading(rssi, radLevel, clock.nanoTime());
+    }
+
+    /**
+     * Come sopra con l'istante di pubblicazione, per chi consuma le letture in ritardo
+     */
+    public void onReading(int rssi, int radLevel, long nanos) {
+        if (closed) return;
+        try {
+            readings.writeReading(nanos, rssi, radLevel);
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Chiamato dal thread audio con l'istante previsto dell'impulso
+     */
+    public void onPulse(long nanos) {
+        if (closed) return;
+        try {
+            pulses.writePulse(nanos);
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private void flush() {
+        readings.flush();
+        pulses.flush();
+    }
+
+    /**
+     * Byte registrati finora nelle due tracce
+     */
+    public long length() {
+        return readings.length() + pulses.length();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Da chiamare dopo aver fermato i thread scrittori
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        readings.close();
+        pulses.close();
+    }
+}
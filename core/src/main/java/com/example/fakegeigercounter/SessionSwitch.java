@@ -0,0 +1,53 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Decide cosa fare della sessione in corso quando il rilevatore viene aperto:
+ * con la stessa configurazione la tiene, con una diversa la chiude e apre la nuova,
+ * senza configurazione (notifica, activity riaperta dal sistema) si aggancia a
+ * quella in corso senza toccarla.
+ */
+public class SessionSwitch {
+    public enum Action {
+        /** Nessuna sessione prima: apre quella richiesta */
+        OPEN,
+        /** Stessa configurazione: la sessione resta com'è */
+        KEEP,
+        /** Nessuna configurazione richiesta: si usa la sessione in corso */
+        ATTACH,
+        /** Configurazione diversa: chiude la sessione in corso e apre la nuova */
+        REPLACE
+    }
+
+    public interface Target {
+        void closeSession();
+
+        void openSession(SessionConfig config);
+    }
+
+    private final Target target;
+    private SessionConfig current;
+
+    public SessionSwitch(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * requested è null se l'intent non porta extra di sessione
+     */
+    public Action apply(SessionConfig requested) {
+        if (requested == null) return Action.ATTACH;
+        if (requested.equals(current)) return Action.KEEP;
+        Action action = current == null ? Action.OPEN : Action.REPLACE;
+        if (current != null) target.closeSession();
+        current = requested;
+        target.openSession(requested);
+        return action;
+    }
+
+    /**
+     * Configurazione della sessione in corso, null se non ce n'è una
+     */
+    public SessionConfig current() {
+        return current;
+    }
+}
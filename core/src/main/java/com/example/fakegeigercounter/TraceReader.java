@@ -0,0 +1,125 @@
+package com.example.fakegeigercounter;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Legge in streaming una traccia scritta da TraceWriter, a blocchi, senza caricarla
+ * tutta in memoria. Uso: while (reader.next()) { reader.type() ... }
+ */
+public class TraceReader implements Closeable {
+    private static final int BLOCK_SIZE = 8192;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final long startNanos;
+    private boolean eof = false;
+
+    private long millis = 0;
+    private int type;
+    private int rssi;
+    private int radLevel;
+
+    public TraceReader(File input) throws IOException {
+        file = new RandomAccessFile(input, "r");
+        channel = file.getChannel();
+        block.limit(0);
+        if (!fill(TraceWriter.HEADER_SIZE)
+                || block.getInt() != TraceWriter.MAGIC || block.getInt() != TraceWriter.VERSION) {
+            file.close();
+            throw new IOException("Not a trace file: " + input);
+        }
+        startNanos = block.getLong();
+    }
+
+    /**
+     * Avanza al record successivo; false a fine traccia
+     */
+    public boolean next() throws IOException {
+        if (eof || !fill(1) || block.get(block.position()) == 0) {
+            eof = true;
+            return false;
+        }
+        try {
+            long head = getVarint();
+            millis += head >>> 2;
+            type = (int) (head & 3);
+            if (type == TraceWriter.TYPE_READING) {
+                int zigzag = (int) getVarint();
+                rssi = (zigzag >>> 1) ^ -(zigzag & 1);
+                radLevel = (int) getVarint();
+            }
+            return true;
+        } catch (EOFException e) {
+            // Record troncato a metà: la sessione non è stata chiusa
+            eof = true;
+            return false;
+        }
+    }
+
+    private long getVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!fill(1)) throw new EOFException();
+            byte b = block.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Garantisce almeno n byte nel blocco, leggendo dal file se necessario
+     */
+    private boolean fill(int n) throws IOException {
+        if (block.remaining() >= n) return true;
+        block.compact();
+        while (block.position() < n) {
+            if (channel.read(block) < 0) break;
+        }
+        block.flip();
+        return block.remaining() >= n;
+    }
+
+    public int type() {
+        return type;
+    }
+
+    public boolean isPulse() {
+        return type == TraceWriter.TYPE_PULSE;
+    }
+
+    /**
+     * Istante del record sull'orologio della sessione
+     */
+    public long timestampNanos() {
+        return startNanos + millis * 1_000_000;
+    }
+
+    /**
+     * Millisecondi dall'inizio della sessione
+     */
+    public long elapsedMillis() {
+        return millis;
+    }
+
+    public int rssi() {
+        return rssi;
+    }
+
+    public int radLevel() {
+        return radLevel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
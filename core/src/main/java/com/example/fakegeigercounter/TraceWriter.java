@@ -0,0 +1,121 @@
+package com.example.fakegeigercounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Scrive una traccia binaria append-only su un file mappato in memoria.
+ * Ogni record è un varint (delta in ms dal record precedente << 2 | tipo) seguito
+ * dai campi del tipo; i letture hanno RSSI (zigzag varint) e livello (varint),
+ * gli impulsi nessun campo. Un byte 0 indica la fine dei dati.
+ *
+ * Un solo thread scrive; flush può essere chiamato da un altro thread.
+ * La scrittura è una copia in memoria: l'I/O avviene nel flush o a carico del sistema.
+ */
+public class TraceWriter {
+    static final int MAGIC = 0x47545243;  // "GTRC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int TYPE_READING = 1;
+    static final int TYPE_PULSE = 2;
+
+    private static final long CHUNK_SIZE = 4L << 20; // 4 MB mappati alla volta
+    private static final int MAX_RECORD_SIZE = 10 + 5 + 5;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long startNanos;
+    private volatile MappedByteBuffer buffer;
+    private long chunkStart = 0;
+    private long lastMillis = 0;
+    private volatile long length = HEADER_SIZE;
+
+    public TraceWriter(File output, long startNanos) throws IOException {
+        this.file = new RandomAccessFile(output, "rw");
+        this.channel = file.getChannel();
+        this.startNanos = startNanos;
+        file.setLength(0);
+        buffer = map(0);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(startNanos);
+    }
+
+    private MappedByteBuffer map(long position) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, CHUNK_SIZE);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    public void writeReading(long nanos, int rssi, int radLevel) throws IOException {
+        MappedByteBuffer out = reserve();
+        putHeader(out, nanos, TYPE_READING);
+        putVarint(out, (rssi << 1) ^ (rssi >> 31));
+        putVarint(out, radLevel);
+        length = chunkStart + out.position();
+    }
+
+    public void writePulse(long nanos) throws IOException {
+        MappedByteBuffer out = reserve();
+        putHeader(out, nanos, TYPE_PULSE);
+        length = chunkStart + out.position();
+    }
+
+    /**
+     * Garantisce spazio per un record; mappa il blocco successivo quando serve (raro)
+     */
+    private MappedByteBuffer reserve() throws IOException {
+        MappedByteBuffer out = buffer;
+        if (out.remaining() < MAX_RECORD_SIZE) {
+            long position = chunkStart + out.position();
+            out.force();
+            out = map(position);
+            chunkStart = position;
+            buffer = out;
+        }
+        return out;
+    }
+
+    private void putHeader(MappedByteBuffer out, long nanos, int type) {
+        long millis = (nanos - startNanos) / 1_000_000;
+        long delta = Math.max(0, millis - lastMillis);
+        lastMillis = Math.max(lastMillis, millis);
+        putVarint(out, (delta << 2) | type);
+    }
+
+    private static void putVarint(MappedByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Scrive su disco le pagine modificate; da chiamare fuori dal percorso delle letture
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Byte scritti finora, header incluso
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Chiude il file troncandolo alla parte effettivamente scritta
+     */
+    public void close() throws IOException {
+        buffer.force();
+        buffer = null;
+        channel.truncate(length);
+        file.close();
+    }
+}
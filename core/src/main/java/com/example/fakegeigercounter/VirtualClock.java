@@ -0,0 +1,30 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Orologio simulato che avanza solo su richiesta
+ */
+public class VirtualClock implements MonotonicClock {
+    private long now;
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    public VirtualClock(long startNanos) {
+        this.now = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    public void advance(long nanos) {
+        if (nanos < 0) throw new IllegalArgumentException("time cannot go backwards");
+        now += nanos;
+    }
+
+    public void advanceTo(long nanos) {
+        advance(nanos - now);
+    }
+}
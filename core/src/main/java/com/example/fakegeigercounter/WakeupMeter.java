@@ -0,0 +1,86 @@
+package com.example.fakegeigercounter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Conta i risvegli dei thread del contatore e il tempo CPU, e li riporta al minuto
+ * per confrontare la modalità interattiva con quella a basso consumo.
+ * record può essere chiamato da qualsiasi thread.
+ */
+public class WakeupMeter {
+    public enum Source {
+        POLL,       // timer che avvia le letture RSSI
+        PROCESSING, // messaggi elaborati dal thread delle letture
+        AUDIO       // blocchi renderizzati dal thread audio
+    }
+
+    private static final Source[] SOURCES = Source.values();
+
+    private final MonotonicClock clock;
+    private final AtomicLongArray counts = new AtomicLongArray(SOURCES.length);
+    private final long[] lastCounts = new long[SOURCES.length];
+    private final float[] perMinute = new float[SOURCES.length];
+    private long lastSampleTime;
+    private long lastCpuMillis;
+    private float cpuPerMinute;
+
+    public WakeupMeter(MonotonicClock clock) {
+        this.clock = clock;
+        this.lastSampleTime = clock.nanoTime();
+    }
+
+    public void record(Source source) {
+        counts.incrementAndGet(source.ordinal());
+    }
+
+    public long getCount(Source source) {
+        return counts.get(source.ordinal());
+    }
+
+    /**
+     * Chiude la finestra corrente e calcola le frequenze al minuto;
+     * cpuMillis è il tempo CPU totale del processo
+     */
+    public void sample(long cpuMillis) {
+        long now = clock.nanoTime();
+        float minutes = (now - lastSampleTime) / 60e9f;
+        if (minutes <= 0) return;
+        for (int i = 0; i < SOURCES.length; i++) {
+            long count = counts.get(i);
+            perMinute[i] = (count - lastCounts[i]) / minutes;
+            lastCounts[i] = count;
+        }
+        cpuPerMinute = (cpuMillis - lastCpuMillis) / minutes;
+        lastCpuMillis = cpuMillis;
+        lastSampleTime = now;
+    }
+
+    /**
+     * Risvegli al minuto nell'ultima finestra chiusa da sample
+     */
+    public float perMinute(Source source) {
+        return perMinute[source.ordinal()];
+    }
+
+    public float totalPerMinute() {
+        float total = 0;
+        for (float rate : perMinute) {
+            total += rate;
+        }
+        return total;
+    }
+
+    /**
+     * Millisecondi di CPU al minuto nell'ultima finestra chiusa da sample
+     */
+    public float cpuMillisPerMinute() {
+        return cpuPerMinute;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("wakeups/min poll=%.0f processing=%.0f audio=%.0f total=%.0f, cpu=%.0f ms/min",
+                perMinute[Source.POLL.ordinal()], perMinute[Source.PROCESSING.ordinal()],
+                perMinute[Source.AUDIO.ordinal()], totalPerMinute(), cpuPerMinute);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.fakegeigercounter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodifica file WAV PCM a 16 bit in un PcmClip mono (i canali vengono mediati)
+ */
+public final class WavDecoder {
+    private WavDecoder() {
+    }
+
+    public static PcmClip decode(InputStream in) throws IOException {
+        ByteBuffer wav = ByteBuffer.wrap(readAll(in)).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.remaining() < 12 || wav.getInt(0) != 0x46464952 || wav.getInt(8) != 0x45564157) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+
+        int channels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        int position = 12;
+        while (position + 8 <= wav.limit()) {
+            int chunkId = wav.getInt(position);
+            int chunkSize = wav.getInt(position + 4);
+            int body = position + 8;
+
+            if (chunkId == 0x20746d66) { // "fmt "
+                int format = wav.getShort(body) & 0xFFFF;
+                channels = wav.getShort(body + 2);
+                sampleRate = wav.getInt(body + 4);
+                bitsPerSample = wav.getShort(body + 14);
+                if (format != 1 || bitsPerSample != 16) {
+                    throw new IOException("Only 16-bit PCM is supported");
+                }
+            } else if (chunkId == 0x61746164) { // "data"
+                if (channels == 0) throw new IOException("data chunk before fmt chunk");
+                int size = Math.min(chunkSize, wav.limit() - body);
+                int frames = size / (2 * channels);
+                short[] samples = new short[frames];
+                for (int i = 0; i < frames; i++) {
+                    int sum = 0;
+                    for (int c = 0; c < channels; c++) {
+                        sum += wav.getShort(body + (i * channels + c) * 2);
+                    }
+                    samples[i] = (short) (sum / channels);
+                }
+                return new PcmClip(samples, sampleRate);
+            }
+            // I chunk hanno dimensione pari
+            position = body + chunkSize + (chunkSize & 1);
+        }
+        throw new IOException("Missing data chunk");
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.fakegeigercounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Scrive il PCM in un file WAV mono a 16 bit; le dimensioni nell'header
+ * vengono aggiornate alla chiusura.
+ */
+public class WavPcmSink implements PcmSink {
+    private static final int HEADER_SIZE = 44;
+
+    private final RandomAccessFile file;
+    private final int sampleRate;
+    private ByteBuffer scratch;
+    private long dataBytes = 0;
+
+    public WavPcmSink(File output, int sampleRate, int maxFrames) throws IOException {
+        this.file = new RandomAccessFile(output, "rw");
+        this.sampleRate = sampleRate;
+        this.scratch = ByteBuffer.allocate(maxFrames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        file.setLength(0);
+        file.write(header(0));
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public void write(short[] buffer, int frames) throws IOException {
+        if (scratch.capacity() < frames * 2) {
+            scratch = ByteBuffer.allocate(frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        scratch.clear();
+        for (int i = 0; i < frames; i++) {
+            scratch.putShort(buffer[i]);
+        }
+        file.write(scratch.array(), 0, frames * 2);
+        dataBytes += frames * 2L;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.seek(0);
+        file.write(header((int) dataBytes));
+        file.close();
+    }
+
+    private byte[] header(int dataSize) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952);          // "RIFF"
+        header.putInt(36 + dataSize);
+        header.putInt(0x45564157);          // "WAVE"
+        header.putInt(0x20746d66);          // "fmt "
+        header.putInt(16);
+        header.putShort((short) 1);         // PCM
+        header.putShort((short) 1);         // mono
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * 2);      // byte al secondo
+        header.putShort((short) 2);         // byte per frame
+        header.putShort((short) 16);
+        header.putInt(0x61746164);          // "data"
+        header.putInt(dataSize);
+        return header.array();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class AdvertisementFeedLoadTest {
+    private static final int ADVERTISERS = 200;
+    private static final int SOURCES = 10;
+    private static final int RESULTS_PER_SECOND = 20_000;
+
+    @Test
+    public void feed_keepsUpWithThousandsOfResultsPerSecond() throws Exception {
+        String[] advertisers = new String[ADVERTISERS];
+        for (int i = 0; i < ADVERTISERS; i++) {
+            advertisers[i] = String.format("AA:BB:CC:DD:%02X:%02X", i / 256, i % 256);
+        }
+        List<String> sources = Arrays.asList(advertisers).subList(0, SOURCES);
+
+        RadiationField field = new RadiationField();
+        AdvertisementRssiFeed feed = new AdvertisementRssiFeed(sources, field);
+        FakeAdvertisementScanner scanner = new FakeAdvertisementScanner(advertisers, RESULTS_PER_SECOND, 17);
+
+        assertTrue(scanner.start(sources, feed));
+        Thread.sleep(500);
+        scanner.stop();
+
+        long emitted = scanner.getEmitted();
+        assertEquals(emitted, feed.getAccepted() + feed.getIgnored());
+        // Metà del carico previsto nel mezzo secondo, con ampio margine per CI lente
+        assertTrue("emitted " + emitted, emitted >= RESULTS_PER_SECOND / 4);
+        assertEquals(emitted * SOURCES / ADVERTISERS, feed.getAccepted(), SOURCES);
+        assertEquals(SOURCES, field.activeEmitters());
+
+        int radiation = field.calculateRadiation();
+        assertTrue(radiation >= 0 && radiation <= CurveTables.MAX_RAD);
+    }
+}
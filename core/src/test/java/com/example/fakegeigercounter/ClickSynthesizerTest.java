@@ -0,0 +1,109 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+
+public class ClickSynthesizerTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BUFFER_FRAMES = 256;
+
+    /**
+     * Click sintetico di 2 ms con decadimento lineare
+     */
+    private static PcmClip shortClick() {
+        short[] samples = new short[88];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (8000 * (samples.length - i) / samples.length);
+        }
+        return new PcmClip(samples, SAMPLE_RATE);
+    }
+
+    @Test
+    public void highRate_keepsEveryClick() throws Exception {
+        ClickSynthesizer synth = new ClickSynthesizer(shortClick(), 64, BUFFER_FRAMES, new PulseEngine(11));
+        synth.setRate(2000);
+
+        MemoryPcmSink sink = new MemoryPcmSink(SAMPLE_RATE, SAMPLE_RATE);
+        synth.renderTo(sink, new short[BUFFER_FRAMES], 10L * SAMPLE_RATE);
+
+        assertEquals(10L * SAMPLE_RATE, sink.getFramesWritten());
+        assertEquals(1.0, synth.getClicks() / 20000.0, 0.03);
+        assertEquals(0, synth.getStolenVoices());
+    }
+
+    @Test
+    public void click_startsAtExactSampleOffset() {
+        PulseEngine reference = new PulseEngine(5);
+        reference.setRate(3);
+        long firstNanos = reference.nextIntervalNanos();
+        int expectedOffset = (int) (firstNanos * (SAMPLE_RATE / 1e9));
+
+        ClickSynthesizer synth = new ClickSynthesizer(shortClick(), 4, BUFFER_FRAMES, new PulseEngine(5));
+        synth.setRate(3);
+        short[] buffer = new short[BUFFER_FRAMES];
+        int firstNonZero = -1;
+        for (int block = 0; firstNonZero < 0 && block < 10 * SAMPLE_RATE / BUFFER_FRAMES; block++) {
+            synth.render(buffer, BUFFER_FRAMES);
+            for (int i = 0; i < BUFFER_FRAMES; i++) {
+                if (buffer[i] != 0) {
+                    firstNonZero = block * BUFFER_FRAMES + i;
+                    break;
+                }
+            }
+        }
+        assertEquals(expectedOffset, firstNonZero);
+    }
+
+    @Test
+    public void zeroRate_isSilent() {
+        ClickSynthesizer synth = new ClickSynthesizer(shortClick(), 4, BUFFER_FRAMES, new PulseEngine(1));
+        short[] buffer = new short[BUFFER_FRAMES];
+        for (int block = 0; block < 100; block++) {
+            synth.render(buffer, BUFFER_FRAMES);
+            for (short sample : buffer) assertEquals(0, sample);
+        }
+        assertEquals(0, synth.getClicks());
+    }
+
+    @Test
+    public void wavSink_roundTripsThroughDecoder() throws Exception {
+        File wav = File.createTempFile("clicks", ".wav");
+        wav.deleteOnExit();
+
+        ClickSynthesizer synth = new ClickSynthesizer(shortClick(), 16, BUFFER_FRAMES, new PulseEngine(2));
+        synth.setRate(50);
+        WavPcmSink sink = new WavPcmSink(wav, SAMPLE_RATE, BUFFER_FRAMES);
+        synth.renderTo(sink, new short[BUFFER_FRAMES], SAMPLE_RATE);
+        sink.close();
+
+        try (InputStream in = new FileInputStream(wav)) {
+            PcmClip decoded = WavDecoder.decode(in);
+            assertEquals(SAMPLE_RATE, decoded.getSampleRate());
+            assertEquals(SAMPLE_RATE, decoded.length());
+        }
+    }
+
+    @Test
+    public void render_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ClickSynthesizer synth = new ClickSynthesizer(shortClick(), 64, BUFFER_FRAMES, new PulseEngine(3));
+        synth.setRate(1000);
+        short[] buffer = new short[BUFFER_FRAMES];
+
+        for (int i = 0; i < 20_000; i++) synth.render(buffer, BUFFER_FRAMES);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20_000; i++) synth.render(buffer, BUFFER_FRAMES);
+        assertEquals(0, threads.getThreadAllocatedBytes(threadId) - before);
+        assertTrue(synth.getClicks() > 0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+public class ClickVariantBankTest {
+    private static PcmClip click() {
+        short[] samples = new short[500];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (Math.sin(i * 0.3) * 10000 * (samples.length - i) / samples.length);
+        }
+        return new PcmClip(samples, 44100);
+    }
+
+    @Test
+    public void build_coversPitchAndGainRange() {
+        ClickVariantBank bank = ClickVariantBank.build(click());
+
+        assertEquals(ClickVariantBank.PITCH_STEPS * ClickVariantBank.GAIN_STEPS, bank.size());
+        // Pitch più basso = campione più lungo, pitch più alto = più corto
+        assertTrue(bank.variant(0).length > click().length());
+        assertTrue(bank.variant(bank.size() - 1).length < click().length());
+    }
+
+    @Test
+    public void cache_isReusedAndMatchesFreshBuild() throws Exception {
+        File cache = File.createTempFile("variants", ".bin");
+        cache.delete();
+        cache.deleteOnExit();
+
+        ClickVariantBank built = ClickVariantBank.loadOrBuild(click(), cache);
+        assertTrue(cache.exists());
+        long modified = cache.lastModified();
+
+        ClickVariantBank loaded = ClickVariantBank.loadOrBuild(click(), cache);
+        assertEquals(modified, cache.lastModified());
+        for (int v = 0; v < built.size(); v++) {
+            assertArrayEquals(toBytes(built.variant(v)), toBytes(loaded.variant(v)));
+        }
+    }
+
+    @Test
+    public void corruptCache_isRebuilt() throws Exception {
+        File cache = File.createTempFile("variants", ".bin");
+        cache.deleteOnExit();
+        Files.write(cache.toPath(), new byte[]{1, 2, 3});
+
+        ClickVariantBank bank = ClickVariantBank.loadOrBuild(click(), cache);
+        assertEquals(ClickVariantBank.PITCH_STEPS * ClickVariantBank.GAIN_STEPS, bank.size());
+        assertTrue(cache.length() > 3);
+    }
+
+    private static byte[] toBytes(short[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asShortBuffer().put(samples);
+        return buffer.array();
+    }
+}
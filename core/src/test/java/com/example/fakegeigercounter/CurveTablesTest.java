@@ -0,0 +1,61 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CurveTablesTest {
+    /**
+     * Funzione map originale di RadiationCalculator, simile a quella di Arduino
+     */
+    private static float legacyMap(float x, float inMin, float inMax, float outMin, float outMax) {
+        return (x - inMin) * (outMax - outMin) / (inMax - inMin) + outMin;
+    }
+
+    /**
+     * Calcolo originale: map da [-90, 10] a [0, 1000] in float, troncato e limitato
+     */
+    private static int legacyRadiation(int rssi) {
+        int radVal = (int) legacyMap(rssi, -90, 10, 0, 1000);
+        return Math.max(0, Math.min(1000, radVal));
+    }
+
+    @Test
+    public void linearTable_matchesTheOriginalFloatMapping() {
+        CurveTables tables = CurveTables.compile(RadiationCurveType.LINEAR.create());
+        for (int rssi = CurveTables.MIN_RSSI; rssi <= CurveTables.MAX_RSSI; rssi++) {
+            assertEquals(legacyRadiation(rssi), tables.radiationFor(rssi));
+        }
+        // Fuori scala: il valore del bordo della tabella
+        assertEquals(tables.radiationFor(CurveTables.MIN_RSSI), tables.radiationFor(-200));
+        assertEquals(tables.radiationFor(CurveTables.MAX_RSSI), tables.radiationFor(127));
+    }
+
+    @Test
+    public void distanceCurves_areMonotonicAndInRange() {
+        for (RadiationCurveType type : new RadiationCurveType[]{RadiationCurveType.LOG_DISTANCE, RadiationCurveType.INVERSE_SQUARE}) {
+            CurveTables tables = CurveTables.compile(type.create());
+            int previous = 0;
+            for (int rssi = CurveTables.MIN_RSSI; rssi <= CurveTables.MAX_RSSI; rssi++) {
+                int radiation = tables.radiationFor(rssi);
+                assertTrue(radiation >= 0 && radiation <= CurveTables.MAX_RAD);
+                // Segnale più forte, sorgente più vicina: mai meno radiazioni
+                assertTrue(radiation >= previous);
+                previous = radiation;
+            }
+            // Lontanissimo non si sente niente, attaccati alla sorgente si arriva al massimo
+            assertEquals(0, tables.radiationFor(CurveTables.MIN_RSSI));
+            assertEquals(CurveTables.MAX_RAD, tables.radiationFor(CurveTables.MAX_RSSI));
+        }
+    }
+
+    @Test
+    public void frequencies_growFromMinToMax() {
+        assertEquals(CurveTables.MIN_FREQ, CurveTables.frequencyFor(0), 0f);
+        assertEquals(CurveTables.MAX_FREQ, CurveTables.frequencyFor(CurveTables.MAX_RAD), 1e-4f);
+        for (int rad = 1; rad <= CurveTables.MAX_RAD; rad++) {
+            assertTrue(CurveTables.frequencyFor(rad) >= CurveTables.frequencyFor(rad - 1));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DeviceListTest {
+
+    /**
+     * Registra le notifiche come stringhe "insert from+count" e "rssi from+count"
+     */
+    private static class Recorder implements DeviceList.Observer {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onInserted(int from, int count) {
+            events.add("insert " + from + "+" + count);
+        }
+
+        @Override
+        public void onRssiChanged(int from, int count) {
+            events.add("rssi " + from + "+" + count);
+        }
+
+        @Override
+        public void onNameChanged(int position) {
+            events.add("name " + position);
+        }
+    }
+
+    private static String address(int i) {
+        return String.format("AA:BB:CC:DD:%02X:%02X", i >> 8, i & 0xFF);
+    }
+
+    @Test
+    public void burstOfResults_becomesOneInsert() {
+        DeviceList list = new DeviceList();
+        assertTrue(list.offer(address(0), "zero", -50));
+        for (int repeat = 0; repeat < 10; repeat++) {
+            for (int i = 0; i < 300; i++) {
+                assertFalse(list.offer(address(i), "dev" + i, -60 - repeat));
+            }
+        }
+        Recorder recorder = new Recorder();
+        list.apply(recorder);
+
+        assertEquals(1, recorder.events.size());
+        assertEquals("insert 0+300", recorder.events.get(0));
+        assertEquals(300, list.size());
+        int row = list.indexOf(address(42));
+        assertEquals("dev42", list.name(row));
+        assertEquals(-69, list.rssi(row));
+    }
+
+    @Test
+    public void rssiUpdates_areCoalescedIntoRanges() {
+        DeviceList list = new DeviceList();
+        for (int i = 0; i < 10; i++) list.offer(address(i), "dev" + i, -70);
+        list.apply(new Recorder());
+
+        list.offer(address(2), null, -60);
+        list.offer(address(3), null, -61);
+        list.offer(address(4), null, -62);
+        list.offer(address(7), null, -70); // invariato
+        list.offer(address(8), null, -50);
+        list.offer(address(10), "new", -80);
+        Recorder recorder = new Recorder();
+        list.apply(recorder);
+
+        assertEquals("[insert 10+1, rssi 2+3, rssi 8+1]", recorder.events.toString());
+        assertEquals(-62, list.rssi(4));
+
+        // Nessun aggiornamento: nessuna notifica
+        Recorder idle = new Recorder();
+        list.apply(idle);
+        assertTrue(idle.events.isEmpty());
+    }
+
+    @Test
+    public void cachedName_survivesLaterResultsWithoutName() {
+        DeviceList list = new DeviceList();
+        list.offer(address(1), "beacon", -70);
+        list.offer(address(1), null, -65);
+        assertEquals("beacon", list.cachedName(address(1)));
+        list.apply(new Recorder());
+        assertEquals("beacon", list.name(0));
+    }
+
+    @Test
+    public void lateName_updatesTheExistingRow() {
+        DeviceList list = new DeviceList();
+        list.offer(address(0), "first", -70);
+        list.offer(address(1), null, -70);
+        list.offer(address(2), null, -70);
+        list.apply(new Recorder());
+        assertEquals(null, list.name(1));
+
+        // Il nome arriva con lo stesso RSSI per una riga e con uno nuovo per l'altra
+        list.offer(address(1), "beacon", -70);
+        list.offer(address(2), "phone", -55);
+        Recorder recorder = new Recorder();
+        list.apply(recorder);
+
+        assertEquals("[name 1, name 2, rssi 2+1]", recorder.events.toString());
+        assertEquals("beacon", list.name(1));
+        assertEquals("phone", list.name(2));
+
+        // Il nome già mostrato non genera altre notifiche
+        list.offer(address(1), "beacon", -70);
+        Recorder idle = new Recorder();
+        list.apply(idle);
+        assertTrue(idle.events.isEmpty());
+    }
+
+    @Test
+    public void concurrentScanners_loseNoDevice() throws Exception {
+        DeviceList list = new DeviceList();
+        Thread[] scanners = new Thread[4];
+        for (int t = 0; t < scanners.length; t++) {
+            int offset = t * 1000;
+            scanners[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) list.offer(address(offset + i), "d", -40 - i % 50);
+            });
+            scanners[t].start();
+        }
+        // Il main thread applica mentre gli scanner scrivono
+        Recorder recorder = new Recorder();
+        while (anyAlive(scanners)) list.apply(recorder);
+        list.apply(recorder);
+
+        assertEquals(4000, list.size());
+        int inserted = 0;
+        for (String event : recorder.events) {
+            if (event.startsWith("insert")) inserted += Integer.parseInt(event.substring(event.indexOf('+') + 1));
+        }
+        assertEquals(4000, inserted);
+    }
+
+    private static boolean anyAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+public class DoseAccumulatorTest {
+    private static final long SECOND = 1_000_000_000L;
+    private static final long MINUTE = 60 * SECOND;
+
+    /**
+     * Impulsi a frequenza costante dall'istante corrente per la durata data
+     */
+    private static void pulses(VirtualClock clock, DoseAccumulator dose, int perSecond, long duration) {
+        long interval = SECOND / perSecond;
+        long end = clock.nanoTime() + duration;
+        while (clock.nanoTime() + interval <= end) {
+            clock.advance(interval);
+            dose.onPulse(clock.nanoTime());
+        }
+    }
+
+    @Test
+    public void steadyRate_givesSameCpmInEveryWindow() {
+        // Fuori fase rispetto ai bucket, come impulsi reali
+        VirtualClock clock = new VirtualClock(5 * SECOND + 37_000_000L);
+        DoseAccumulator dose = new DoseAccumulator(clock);
+        pulses(clock, dose, 100, 20 * MINUTE);
+        clock.advance(5_000_000L);
+
+        // Nella finestra da 1 s un impulso in più o in meno vale l'1%
+        for (DoseAccumulator.Window window : DoseAccumulator.Window.values()) {
+            assertEquals(window.name(), 6000f, dose.cpm(window), 6000f * 0.03f);
+        }
+        assertEquals(120_000, dose.getTotalPulses());
+    }
+
+    @Test
+    public void shortWindows_forgetABurstBeforeLongOnes() {
+        VirtualClock clock = new VirtualClock();
+        DoseAccumulator dose = new DoseAccumulator(clock);
+        pulses(clock, dose, 100, 5 * SECOND);
+        clock.advance(30 * SECOND);
+
+        assertEquals(0f, dose.cpm(DoseAccumulator.Window.SECOND), 0f);
+        assertEquals(0f, dose.cpm(DoseAccumulator.Window.TEN_SECONDS), 0f);
+        // 500 impulsi nei 35 secondi trascorsi
+        assertEquals(500 * 60f / 35, dose.cpm(DoseAccumulator.Window.MINUTE), 10f);
+        assertEquals(dose.cpm(DoseAccumulator.Window.MINUTE), dose.cpm(DoseAccumulator.Window.TEN_MINUTES), 1f);
+
+        clock.advance(11 * MINUTE);
+        assertEquals(0f, dose.cpm(DoseAccumulator.Window.TEN_MINUTES), 0f);
+        assertEquals(500, dose.getTotalPulses());
+    }
+
+    @Test
+    public void dose_integratesLevelOverTimeAndSkipsPauses() {
+        VirtualClock clock = new VirtualClock();
+        DoseAccumulator dose = new DoseAccumulator(clock);
+
+        // 100 μSv/h per 36 secondi = 1 μSv
+        for (int i = 0; i <= 36; i++) {
+            dose.onReading(100, clock.nanoTime());
+            if (i < 36) clock.advance(SECOND);
+        }
+        assertEquals(1.0, dose.getTotalDose(), 1e-9);
+        assertEquals(100f, dose.meanRate(DoseAccumulator.Window.TEN_SECONDS), 1f);
+
+        dose.onStopped();
+        clock.advance(MINUTE);
+        dose.onReading(900, clock.nanoTime());
+        assertEquals(1.0, dose.getTotalDose(), 1e-9);
+        clock.advance(4 * SECOND);
+        dose.onReading(900, clock.nanoTime());
+        assertEquals(2.0, dose.getTotalDose(), 1e-9);
+    }
+
+    @Test
+    public void longSession_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        VirtualClock clock = new VirtualClock();
+        DoseAccumulator dose = new DoseAccumulator(clock);
+        pulses(clock, dose, 50, MINUTE);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        // Un'ora: 180 000 impulsi, 3600 letture e una domanda al secondo
+        for (int s = 0; s < 3600; s++) {
+            for (int i = 0; i < 50; i++) {
+                clock.advance(SECOND / 50);
+                dose.onPulse(clock.nanoTime());
+            }
+            dose.onReading(s % 1000, clock.nanoTime());
+            dose.cpm(DoseAccumulator.Window.SECOND);
+            dose.cpm(DoseAccumulator.Window.TEN_MINUTES);
+        }
+        assertEquals(0, threads.getThreadAllocatedBytes(threadId) - before);
+        assertTrue(dose.getTotalDose() > 0);
+    }
+
+    @Test
+    public void pulses_neverWaitForAQueryHoldingTheLock() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        CountDownLatch queryInside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] query = new Thread[1];
+        // Orologio che ferma la domanda della UI a metà, con le finestre prese
+        MonotonicClock stalling = () -> {
+            if (Thread.currentThread() == query[0]) {
+                queryInside.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return clock.nanoTime();
+        };
+        DoseAccumulator dose = new DoseAccumulator(stalling);
+        clock.advanceTo(10 * SECOND);
+        query[0] = new Thread(() -> dose.cpm(DoseAccumulator.Window.MINUTE));
+        query[0].start();
+        queryInside.await();
+
+        // Il thread audio scrive i suoi impulsi mentre la domanda è ferma
+        Thread audio = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) dose.onPulse(9 * SECOND + i * 1_000_000L);
+        });
+        audio.start();
+        audio.join(5000);
+        boolean blocked = audio.isAlive();
+        release.countDown();
+        query[0].join(5000);
+        assertTrue(!blocked);
+
+        // Nessun impulso perso: li raccoglie la prima domanda dopo
+        assertEquals(1000, dose.getTotalPulses());
+        assertEquals(1000 * 60f / 10, dose.cpm(DoseAccumulator.Window.MINUTE), 1f);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.fakegeigercounter;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scanner simulato per prove di carico: emette advertisement a rotazione da un
+ * insieme di indirizzi al ritmo richiesto, ignorando il filtro (come un controller
+ * senza filtri hardware), con RSSI casuali.
+ */
+public class FakeAdvertisementScanner implements AdvertisementScanner {
+    private static final long TICK = 1_000_000L; // emette a blocchi ogni millisecondo
+
+    private final String[] addresses;
+    private final int resultsPerSecond;
+    private final PulseEngine random;
+    private final AtomicLong emitted = new AtomicLong();
+    private volatile boolean running = false;
+    private Thread thread;
+
+    public FakeAdvertisementScanner(String[] addresses, int resultsPerSecond, long seed) {
+        this.addresses = addresses;
+        this.resultsPerSecond = resultsPerSecond;
+        this.random = new PulseEngine(seed);
+    }
+
+    @Override
+    public boolean start(Collection<String> filter, Listener listener) {
+        if (running) return false;
+        running = true;
+        thread = new Thread(() -> emit(listener), "FakeAdvertisementScanner");
+        thread.start();
+        return true;
+    }
+
+    private void emit(Listener listener) {
+        long start = System.nanoTime();
+        long sent = 0;
+        int next = 0;
+        while (running) {
+            // Quanti risultati avrebbero dovuto essere emessi fin qui
+            long due = (System.nanoTime() - start) * resultsPerSecond / 1_000_000_000L;
+            while (sent < due) {
+                listener.onAdvertisement(addresses[next], -100 + random.nextInt(61));
+                next = (next + 1) % addresses.length;
+                sent++;
+            }
+            emitted.set(sent);
+            LockSupport.parkNanos(TICK);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    public long getEmitted() {
+        return emitted.get();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Connessione GATT simulata sul tempo di un VirtualExecutor: latenza di
+ * connessione e di lettura configurabili, connessioni che falliscono con una
+ * certa probabilità e cadute della connessione a comando.
+ */
+public class FakeGattLink implements GattLink {
+    private final VirtualExecutor executor;
+    private final PulseEngine random;
+    private long connectLatency = 200;  // ms
+    private long readLatency = 30;      // ms
+    private double failureProbability = 0;
+    private int rssi = -60;
+    private int rssiNoise = 0;
+
+    private Callback callback;
+    private boolean connecting = false;
+    private boolean connected = false;
+    private ConnectionPriority priority = ConnectionPriority.BALANCED;
+    private int connectCalls = 0;
+    private int priorityRequests = 0;
+    private int reads = 0;
+
+    private final Runnable completeConnect = this::completeConnect;
+
+    public FakeGattLink(VirtualExecutor executor, long seed) {
+        this.executor = executor;
+        this.random = new PulseEngine(seed);
+    }
+
+    public void setConnectLatency(long millis) {
+        this.connectLatency = millis;
+    }
+
+    public void setReadLatency(long millis) {
+        this.readLatency = millis;
+    }
+
+    public void setFailureProbability(double probability) {
+        this.failureProbability = probability;
+    }
+
+    public void setRssi(int rssi) {
+        this.rssi = rssi;
+    }
+
+    /**
+     * Ampiezza in dB del rumore uniforme aggiunto a ogni lettura
+     */
+    public void setRssiNoise(int db) {
+        this.rssiNoise = db;
+    }
+
+    /**
+     * Simula la perdita del collegamento (dispositivo fuori portata, spento...)
+     */
+    public void drop() {
+        if (!connected) return;
+        connected = false;
+        callback.onDisconnected();
+    }
+
+    @Override
+    public boolean connect(Callback callback) {
+        if (connecting || connected) return false;
+        this.callback = callback;
+        connecting = true;
+        connectCalls++;
+        executor.postDelayed(completeConnect, connectLatency);
+        return true;
+    }
+
+    private void completeConnect() {
+        if (!connecting) return;
+        connecting = false;
+        if (random.nextDouble() < failureProbability) {
+            callback.onDisconnected();
+        } else {
+            connected = true;
+            callback.onConnected();
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        executor.removeCallbacks(completeConnect);
+        connecting = false;
+        connected = false;
+    }
+
+    @Override
+    public void close() {
+        disconnect();
+    }
+
+    @Override
+    public boolean requestPriority(ConnectionPriority priority) {
+        if (!connected) return false;
+        this.priority = priority;
+        priorityRequests++;
+        return true;
+    }
+
+    @Override
+    public boolean readRssi() {
+        if (!connected) return false;
+        reads++;
+        int value = rssi + (rssiNoise > 0 ? random.nextInt(2 * rssiNoise + 1) - rssiNoise : 0);
+        executor.postDelayed(() -> {
+            if (connected) callback.onRssiRead(value, true);
+        }, readLatency);
+        return true;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public ConnectionPriority getPriority() {
+        return priority;
+    }
+
+    public int getConnectCalls() {
+        return connectCalls;
+    }
+
+    public int getPriorityRequests() {
+        return priorityRequests;
+    }
+
+    public int getReads() {
+        return reads;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Posizioni simulate sul tempo di un DelayedExecutor: una camminata a velocità
+ * costante che cambia direzione a caso, partendo dal punto dato.
+ */
+public class FakeLocationProvider implements LocationProvider {
+    private static final double METERS_PER_DEGREE = 111_195; // un grado di latitudine
+
+    private final DelayedExecutor executor;
+    private final MonotonicClock clock;
+    private final PulseEngine random;
+    private long intervalMillis = 1000;
+    private double speed = 1.4;          // m/s, passo d'uomo
+    private double maxTurn = Math.PI / 6; // cambio massimo di direzione per aggiornamento
+    private float accuracy = 5;
+
+    private double latitude;
+    private double longitude;
+    private double heading;
+    private Listener listener;
+    private int fixes = 0;
+
+    private final Runnable tick = this::tick;
+
+    public FakeLocationProvider(DelayedExecutor executor, MonotonicClock clock,
+                                double latitude, double longitude, long seed) {
+        this.executor = executor;
+        this.clock = clock;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.random = new PulseEngine(seed);
+        this.heading = random.nextDouble() * 2 * Math.PI;
+    }
+
+    public void setInterval(long millis) {
+        this.intervalMillis = millis;
+    }
+
+    public void setSpeed(double metersPerSecond) {
+        this.speed = metersPerSecond;
+    }
+
+    public void setAccuracy(float meters) {
+        this.accuracy = meters;
+    }
+
+    /**
+     * Sposta il punto simulato; la prossima posizione riparte da qui
+     */
+    public void setPosition(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    @Override
+    public boolean start(Listener listener) {
+        if (this.listener != null) return true;
+        this.listener = listener;
+        tick();
+        return true;
+    }
+
+    @Override
+    public void stop() {
+        listener = null;
+        executor.removeCallbacks(tick);
+    }
+
+    private void tick() {
+        Listener listener = this.listener;
+        if (listener == null) return;
+        listener.onLocation(latitude, longitude, accuracy, clock.nanoTime());
+        fixes++;
+
+        double step = speed * intervalMillis / 1000.0;
+        heading += (random.nextDouble() * 2 - 1) * maxTurn;
+        latitude += step * Math.cos(heading) / METERS_PER_DEGREE;
+        longitude += step * Math.sin(heading) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+        executor.postDelayed(tick, intervalMillis);
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getFixes() {
+        return fixes;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GattConnectionManagerTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private VirtualExecutor executor;
+    private FakeGattLink link;
+    private GattConnectionManager manager;
+    private int connectedEvents;
+    private int disconnectedEvents;
+
+    @Before
+    public void setUp() {
+        executor = new VirtualExecutor(new VirtualClock());
+        link = new FakeGattLink(executor, 1);
+        // Jitter del backoff con seme fisso: numero di tentativi uguale a ogni esecuzione
+        manager = new GattConnectionManager(link, executor, executor.getClock(), new PulseEngine(3),
+                GattConnectionManager.DEFAULT_BASE_BACKOFF, GattConnectionManager.DEFAULT_MAX_BACKOFF);
+        manager.setListener(new GattConnectionManager.Listener() {
+            @Override
+            public void onConnected() {
+                connectedEvents++;
+            }
+
+            @Override
+            public void onDisconnected() {
+                disconnectedEvents++;
+            }
+
+            @Override
+            public void onRssiRead(int rssi, boolean success) {
+            }
+        });
+    }
+
+    @Test
+    public void priority_followsCounterState() {
+        manager.start();
+        executor.runFor(SECOND);
+        assertEquals(GattConnectionManager.State.CONNECTED, manager.getState());
+        assertEquals(200_000_000L, manager.getLastConnectLatency());
+        assertEquals(ConnectionPriority.LOW_POWER, link.getPriority());
+
+        manager.setActive(true);
+        assertEquals(ConnectionPriority.HIGH, link.getPriority());
+        manager.setInteractive(false);
+        assertEquals(ConnectionPriority.BALANCED, link.getPriority());
+        manager.setActive(false);
+        assertEquals(ConnectionPriority.LOW_POWER, link.getPriority());
+
+        // Richieste ripetute con lo stesso stato non raggiungono il controller
+        int requests = link.getPriorityRequests();
+        manager.setActive(false);
+        assertEquals(requests, link.getPriorityRequests());
+    }
+
+    @Test
+    public void droppedLink_reconnectsAndRestoresPriority() {
+        manager.setActive(true);
+        manager.start();
+        executor.runFor(SECOND);
+
+        link.drop();
+        assertEquals(GattConnectionManager.State.BACKOFF, manager.getState());
+        assertFalse(manager.readRssi());
+        executor.runFor(SECOND);
+
+        assertEquals(GattConnectionManager.State.CONNECTED, manager.getState());
+        assertEquals(1, manager.getReconnects());
+        assertEquals(2, connectedEvents);
+        assertEquals(1, disconnectedEvents);
+        assertEquals(ConnectionPriority.HIGH, link.getPriority());
+        assertTrue(manager.readRssi());
+    }
+
+    @Test
+    public void failingConnects_backOffExponentiallyUntilSuccess() {
+        link.setFailureProbability(1);
+        manager.start();
+        executor.runFor(60 * SECOND);
+        // Un tentativo ancora in corso allo scadere non è ancora fallito: si aspetta che finisca
+        while (manager.getState() == GattConnectionManager.State.CONNECTING) {
+            executor.runFor(SECOND / 10);
+        }
+        // 0.2 s per tentativo più attese di 0.5, 1, 2, 4, 8, 16, 30... s (almeno la metà ciascuna)
+        assertTrue(link.getConnectCalls() >= 5 && link.getConnectCalls() <= 9);
+        assertEquals(link.getConnectCalls(), manager.getFailures());
+        assertEquals(GattConnectionManager.State.BACKOFF, manager.getState());
+
+        link.setFailureProbability(0);
+        executor.runFor(60 * SECOND);
+        assertEquals(GattConnectionManager.State.CONNECTED, manager.getState());
+        assertEquals(0, manager.getReconnects());
+    }
+
+    @Test
+    public void backoff_isJitteredWithinBounds() {
+        long previousCap = 0;
+        for (int attempt = 0; attempt < 12; attempt++) {
+            long cap = Math.min(GattConnectionManager.DEFAULT_MAX_BACKOFF,
+                    GattConnectionManager.DEFAULT_BASE_BACKOFF << attempt);
+            long min = Long.MAX_VALUE, max = 0;
+            for (int i = 0; i < 200; i++) {
+                long delay = manager.backoffDelay(attempt);
+                min = Math.min(min, delay);
+                max = Math.max(max, delay);
+            }
+            assertTrue(min >= cap / 2 && max <= cap);
+            assertTrue("no jitter at attempt " + attempt, max > min);
+            assertTrue(cap >= previousCap);
+            previousCap = cap;
+        }
+    }
+
+    @Test
+    public void stop_cancelsPendingReconnect() {
+        manager.start();
+        executor.runFor(SECOND);
+        link.drop();
+        manager.stop();
+        executor.runFor(120 * SECOND);
+
+        assertEquals(GattConnectionManager.State.IDLE, manager.getState());
+        assertEquals(1, link.getConnectCalls());
+        assertEquals(0, executor.pending());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GattSessionPoolTest {
+    private static final long SECOND = 1_000_000_000L;
+    private static final int SESSIONS = 4;
+
+    private VirtualExecutor executor;
+    private GattSessionPool pool;
+    private FakeGattLink[] links;
+    private final long[] readings = new long[SESSIONS];
+
+    @Before
+    public void setUp() {
+        executor = new VirtualExecutor(new VirtualClock());
+        pool = new GattSessionPool(executor, executor.getClock());
+        pool.setListener(new GattSessionPool.Listener() {
+            @Override
+            public void onSessionStateChanged(int session, boolean connected) {
+            }
+
+            @Override
+            public void onReading(int session, int rssi) {
+                readings[session]++;
+            }
+        });
+        links = new FakeGattLink[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            links[i] = new FakeGattLink(executor, i);
+            pool.addSession("AA:BB:CC:DD:EE:0" + i, links[i]);
+        }
+        executor.runFor(SECOND);
+    }
+
+    @Test
+    public void saturatedController_sharesReadsFairly() {
+        // Segnali rumorosi: ogni sessione vorrebbe leggere ogni 100 ms, più di quanto il controller regge
+        for (FakeGattLink link : links) {
+            link.setRssiNoise(12);
+            link.setReadLatency(60);
+        }
+        pool.setActive(true);
+        executor.runFor(60 * SECOND);
+
+        long total = 0;
+        for (int i = 0; i < SESSIONS; i++) total += pool.getCompleted(i);
+        System.out.println("saturated: " + total + " reads/min");
+        for (int i = 0; i < SESSIONS; i++) {
+            System.out.printf("  session %d: %.0f reads/min, latency %d ms, queue wait %d ms%n", i,
+                    pool.getReadsPerMinute(i), pool.getMeanReadLatency(i) / 1_000_000,
+                    pool.getMeanQueueWait(i) / 1_000_000);
+            assertEquals(1.0, pool.getCompleted(i) * SESSIONS / (double) total, 0.05);
+            assertEquals(pool.getCompleted(i), readings[i]);
+        }
+        // Una lettura alla volta: al massimo 1 s / 60 ms letture al secondo
+        assertEquals(1, pool.getMaxObservedInFlight());
+        assertTrue(total <= 60 * 1000 / 60);
+        assertTrue(total > 60 * 1000 / 60 * 9 / 10);
+    }
+
+    @Test
+    public void stableSessions_slowDownIndependently() {
+        links[0].setRssiNoise(12);
+        pool.setActive(true);
+        executor.runFor(60 * SECOND);
+
+        // La sessione rumorosa legge molto più spesso di quelle stabili
+        assertTrue(pool.getReadsPerMinute(0) > 4 * pool.getReadsPerMinute(1));
+        assertEquals(pool.getReadsPerMinute(1), pool.getReadsPerMinute(2), 2);
+        assertTrue(pool.getReadsPerMinute(1) <= 20);
+    }
+
+    /**
+     * Minuto di letture dopo un minuto di assestamento, per un dispositivo fermo con il rumore dato
+     */
+    private static float readsPerMinuteWithNoise(RssiFilterType filter, int noise) {
+        VirtualExecutor executor = new VirtualExecutor(new VirtualClock());
+        GattSessionPool pool = new GattSessionPool(executor, executor.getClock());
+        pool.setRssiFilter(filter);
+        FakeGattLink link = new FakeGattLink(executor, 5);
+        link.setRssiNoise(noise);
+        pool.addSession("AA:BB:CC:DD:EE:FF", link);
+        executor.runFor(SECOND);
+        pool.setActive(true);
+        executor.runFor(60 * SECOND);
+        int before = link.getReads();
+        executor.runFor(60 * SECOND);
+        return link.getReads() - before;
+    }
+
+    @Test
+    public void stationaryDevice_backsOffOnFilteredRssi() {
+        // ±4 dB di rumore grezzo: la frequenza deve vedere il valore filtrato, non il rumore
+        float raw = readsPerMinuteWithNoise(RssiFilterType.NONE, 4);
+        float filtered = readsPerMinuteWithNoise(RssiFilterType.MEDIAN, 4);
+        System.out.println("stationary: " + raw + " reads/min raw, " + filtered + " filtered");
+        assertTrue(filtered <= 30);
+        assertTrue(filtered * 3 <= raw);
+    }
+
+    @Test
+    public void droppedSession_doesNotStallOthers() {
+        pool.setActive(true);
+        executor.runFor(5 * SECOND);
+        links[2].drop();
+        long before = pool.getCompleted(0);
+        executor.runFor(20 * SECOND);
+
+        assertTrue(pool.getCompleted(0) > before);
+        // La sessione caduta si è riconnessa da sola e ha ripreso a leggere
+        assertTrue(pool.isConnected(2));
+        assertEquals(1, pool.managerOf(2).getReconnects());
+        assertEquals(SESSIONS, pool.connectedCount());
+    }
+
+    @Test
+    public void pause_stopsAllReads() {
+        pool.setActive(true);
+        executor.runFor(10 * SECOND);
+        pool.setActive(false);
+        int reads = 0;
+        for (FakeGattLink link : links) reads += link.getReads();
+        executor.runFor(30 * SECOND);
+
+        int after = 0;
+        for (FakeGattLink link : links) after += link.getReads();
+        assertEquals(reads, after);
+        assertEquals(ConnectionPriority.LOW_POWER, links[0].getPriority());
+    }
+}
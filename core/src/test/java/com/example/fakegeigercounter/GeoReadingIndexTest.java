@@ -0,0 +1,117 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GeoReadingIndexTest {
+    private static final double LAT = 45.4642;
+    private static final double LON = 9.1900;
+    private static final double METERS_PER_DEGREE = 111_195;
+
+    private static double north(double meters) {
+        return LAT + meters / METERS_PER_DEGREE;
+    }
+
+    private static double east(double meters) {
+        return LON + meters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(LAT)));
+    }
+
+    @Test
+    public void radiusQueries_findTheHotspot() {
+        GeoReadingIndex index = new GeoReadingIndex();
+        PulseEngine random = new PulseEngine(5);
+        // Fondo a livello 100 su 400 x 400 m, punto caldo a 900 a 150 m a nord-est
+        for (int i = 0; i < 20_000; i++) {
+            index.add(north(random.nextDouble() * 400 - 200), east(random.nextDouble() * 400 - 200), 100);
+        }
+        for (int i = 0; i < 200; i++) {
+            index.add(north(150 + random.nextDouble() * 4), east(150 + random.nextDouble() * 4), 900);
+        }
+
+        assertEquals(900, index.maxWithin(north(150), east(150), 40));
+        assertEquals(100, index.maxWithin(LAT, LON, 100));
+        assertEquals(100f, index.meanWithin(north(-100), east(-100), 50), 0.01f);
+        float nearHotspot = index.meanWithin(north(150), east(150), 30);
+        assertTrue("mean " + nearHotspot, nearHotspot > 100 && nearHotspot < 900);
+        assertEquals(-1, index.maxWithin(north(5000), east(5000), 100));
+    }
+
+    @Test
+    public void tiles_aggregateTheirCells() {
+        GeoReadingIndex index = new GeoReadingIndex();
+        PulseEngine random = new PulseEngine(8);
+        for (int i = 0; i < 50_000; i++) {
+            index.add(north(random.nextDouble() * 1000), east(random.nextDouble() * 1000), random.nextInt(1001));
+        }
+
+        int tileX = GeoReadingIndex.tileXOf(east(500));
+        int tileY = GeoReadingIndex.tileYOf(north(500));
+        float[] heatmap = new float[GeoReadingIndex.TILE_SIZE * GeoReadingIndex.TILE_SIZE];
+        index.heatmap(tileX, tileY, heatmap);
+
+        int count = index.tileCount(tileX, tileY);
+        assertTrue(count > 0);
+        float maxCell = -1;
+        for (float mean : heatmap) {
+            assertTrue(mean == -1 || (mean >= 0 && mean <= 1000));
+            maxCell = Math.max(maxCell, mean);
+        }
+        assertTrue(index.tileMax(tileX, tileY) >= maxCell);
+        assertEquals(500f, index.tileMean(tileX, tileY), 60f);
+        assertEquals(-1, index.tileMax(tileX + 1000, tileY));
+    }
+
+    @Test
+    public void memory_isBoundedByCellsNotReadings() {
+        GeoReadingIndex index = new GeoReadingIndex(1000);
+        PulseEngine random = new PulseEngine(13);
+        for (int i = 0; i < 300_000; i++) {
+            index.add(north(random.nextDouble() * 3000), east(random.nextDouble() * 3000), 200);
+        }
+        assertEquals(1000, index.cellCount());
+        assertEquals(300_000, index.getReadings() + index.getDropped());
+        assertTrue(index.getDropped() > 0);
+    }
+
+    @Test
+    public void walk_tagsEveryReadingWithAFreshFix() {
+        VirtualClock clock = new VirtualClock();
+        VirtualExecutor executor = new VirtualExecutor(clock);
+        GeoReadingIndex index = new GeoReadingIndex();
+        GeoTagger tagger = new GeoTagger(index);
+        FakeLocationProvider provider = new FakeLocationProvider(executor, clock, LAT, LON, 21);
+        assertTrue(provider.start(tagger));
+
+        // Un'ora a passo d'uomo con 100 letture al secondo: 360 000 letture
+        for (int s = 0; s < 3600; s++) {
+            for (int i = 0; i < 100; i++) {
+                executor.runFor(10_000_000L);
+                assertTrue(tagger.onReading(300, clock.nanoTime()));
+            }
+        }
+        provider.stop();
+        assertEquals(360_000, index.getReadings());
+        assertEquals(0, tagger.getUntagged());
+        // La camminata copre qualche km: poche migliaia di celle
+        assertTrue("cells " + index.cellCount(), index.cellCount() < 5000);
+        assertEquals(300, index.maxWithin(provider.getLatitude(), provider.getLongitude(), 20));
+    }
+
+    @Test
+    public void staleOrInaccurateFixes_areNotUsed() {
+        GeoReadingIndex index = new GeoReadingIndex();
+        GeoTagger tagger = new GeoTagger(index, 5_000_000_000L, 50);
+
+        assertFalse(tagger.onReading(100, 0));
+        tagger.onLocation(LAT, LON, 200, 0);
+        assertFalse(tagger.hasFix());
+        tagger.onLocation(LAT, LON, 10, 1_000_000_000L);
+        assertTrue(tagger.onReading(100, 2_000_000_000L));
+        assertFalse(tagger.onReading(100, 7_000_000_000L));
+        assertEquals(2, tagger.getUntagged());
+        assertEquals(1, index.getReadings());
+    }
+}
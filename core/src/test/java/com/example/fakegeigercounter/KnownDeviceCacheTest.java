@@ -0,0 +1,88 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+
+public class KnownDeviceCacheTest {
+
+    private static File tempFile() throws Exception {
+        File dir = Files.createTempDirectory("known").toFile();
+        dir.deleteOnExit();
+        return new File(dir, "known_devices.bin");
+    }
+
+    @Test
+    public void entries_surviveSaveAndLoad() throws Exception {
+        File file = tempFile();
+        KnownDeviceCache cache = new KnownDeviceCache(file);
+        cache.remember("AA:00", "Geiger A", -60, 1000);
+        cache.remember("AA:01", "Geiger B", -70, 2000);
+        cache.save();
+
+        KnownDeviceCache reloaded = new KnownDeviceCache(file);
+        reloaded.load();
+        assertEquals(2, reloaded.size());
+        assertEquals("AA:01", reloaded.mostRecent().address);
+        assertEquals("Geiger A", reloaded.get("AA:00").name);
+        assertEquals(-60, reloaded.get("AA:00").rssi);
+        assertEquals(1000, reloaded.get("AA:00").lastSeenMillis);
+    }
+
+    @Test
+    public void refresh_updatesOnlyKnownDevices() throws Exception {
+        KnownDeviceCache cache = new KnownDeviceCache(tempFile());
+        cache.remember("AA:00", "Geiger A", -60, 1000);
+        cache.remember("AA:01", "Geiger B", -70, 2000);
+
+        assertFalse(cache.refresh("BB:00", -40, 3000));
+        assertTrue(cache.refresh("AA:00", -55, 3000));
+        assertEquals("AA:00", cache.mostRecent().address);
+        assertEquals("Geiger A", cache.get("AA:00").name);
+        assertEquals(-55, cache.get("AA:00").rssi);
+        assertEquals("AA:00", cache.entries().get(0).address);
+    }
+
+    @Test
+    public void strongestSince_ignoresDevicesNotSeenInThisScan() throws Exception {
+        KnownDeviceCache cache = new KnownDeviceCache(tempFile());
+        cache.remember("AA:00", "Geiger A", -40, 1000);
+        cache.remember("AA:01", "Geiger B", -80, 1000);
+        cache.remember("AA:02", "Geiger C", -90, 1000);
+
+        assertNull(cache.strongestSince(5000));
+        cache.refresh("AA:01", -75, 5100);
+        cache.refresh("AA:02", -65, 5200);
+        assertEquals("AA:02", cache.strongestSince(5000).address);
+    }
+
+    @Test
+    public void oldestEntry_isEvictedBeyondCapacity() throws Exception {
+        KnownDeviceCache cache = new KnownDeviceCache(tempFile());
+        for (int i = 0; i <= KnownDeviceCache.MAX_ENTRIES; i++) {
+            cache.remember("AA:" + i, "Geiger " + i, -60, i);
+        }
+        assertEquals(KnownDeviceCache.MAX_ENTRIES, cache.size());
+        assertNull(cache.get("AA:0"));
+        assertEquals("AA:" + KnownDeviceCache.MAX_ENTRIES, cache.mostRecent().address);
+    }
+
+    @Test
+    public void corruptFile_givesEmptyCache() throws Exception {
+        File file = tempFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{0x47, 0x4B, 0x44, 0x43, 0, 0, 0, 1, 0, 0, 0, 3, 0});
+        }
+        KnownDeviceCache cache = new KnownDeviceCache(file);
+        cache.load();
+        assertEquals(0, cache.size());
+        assertNull(cache.mostRecent());
+    }
+}
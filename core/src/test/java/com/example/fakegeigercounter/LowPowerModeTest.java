@@ -0,0 +1,109 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LowPowerModeTest {
+    private static final long MINUTE = 60_000_000_000L;
+    private static final long READ_LATENCY = 30_000_000L; // risposta GATT tipica
+    private static final int SAMPLE_RATE = 44100;
+
+    /**
+     * Simula un minuto di polling dopo un minuto di assestamento: ogni timer scaduto
+     * è un risveglio, le letture successive di un gruppo partono dal completamento
+     */
+    private static WakeupMeter simulatePolling(int batchSize, int[] readings) {
+        VirtualClock clock = new VirtualClock();
+        RssiPollScheduler scheduler = new RssiPollScheduler(clock);
+        scheduler.setBatchSize(batchSize);
+        WakeupMeter meter = new WakeupMeter(clock);
+        PulseEngine noise = new PulseEngine(9);
+
+        long nextTimer = 0;
+        long readDone = -1;
+        long read = RssiPollScheduler.NO_READ;
+        boolean immediate = false;
+        boolean settled = false;
+        int index = 0;
+        while (clock.nanoTime() < 2 * MINUTE) {
+            long next = readDone >= 0 ? Math.min(readDone, nextTimer) : nextTimer;
+            if (!settled && next >= MINUTE) {
+                // Chiude la finestra di assestamento: conta solo il secondo minuto
+                clock.advanceTo(MINUTE);
+                meter.sample(0);
+                settled = true;
+            }
+            if (readDone >= 0 && readDone <= nextTimer) {
+                clock.advanceTo(readDone);
+                readDone = -1;
+                int rssi = readings[index++ % readings.length] + noise.nextInt(3) - 1;
+                scheduler.onReadCompleted(read, rssi, 300);
+                meter.record(WakeupMeter.Source.PROCESSING);
+                if (scheduler.continueBatch()) {
+                    nextTimer = clock.nanoTime();
+                    immediate = true;
+                }
+            } else {
+                clock.advanceTo(nextTimer);
+                if (!immediate) meter.record(WakeupMeter.Source.POLL);
+                immediate = false;
+                read = scheduler.tryIssue();
+                if (read != RssiPollScheduler.NO_READ) readDone = clock.nanoTime() + READ_LATENCY;
+                nextTimer = clock.nanoTime() + scheduler.nextDelayMillis() * 1_000_000;
+            }
+        }
+        meter.sample(0);
+        return meter;
+    }
+
+    @Test
+    public void batchedPolling_wakesLessForSameReadRate() {
+        int[] steady = {-65};
+        WakeupMeter single = simulatePolling(1, steady);
+        WakeupMeter batched = simulatePolling(4, steady);
+
+        System.out.println("single:  " + single);
+        System.out.println("batched: " + batched);
+        assertTrue(batched.perMinute(WakeupMeter.Source.POLL) * 3 <= single.perMinute(WakeupMeter.Source.POLL));
+        assertEquals(1.0, batched.perMinute(WakeupMeter.Source.PROCESSING)
+                / single.perMinute(WakeupMeter.Source.PROCESSING), 0.35);
+    }
+
+    @Test
+    public void batchSizeOne_keepsAdaptiveInterval() {
+        RssiPollScheduler scheduler = new RssiPollScheduler(new VirtualClock());
+        assertTrue(scheduler.tryIssue() != RssiPollScheduler.NO_READ);
+        assertEquals(RssiPollScheduler.DEFAULT_BASE_INTERVAL, scheduler.nextDelayMillis());
+        assertTrue(!scheduler.continueBatch());
+    }
+
+    /**
+     * Un risveglio del thread audio per blocco: in background i blocchi sono 32 volte più grandi
+     */
+    @Test
+    public void largeAudioBlocks_wakeRarely() throws Exception {
+        short[] click = new short[64];
+        java.util.Arrays.fill(click, (short) 4000);
+        int[] blocks = {256, 8192};
+        float[] rates = new float[blocks.length];
+        for (int b = 0; b < blocks.length; b++) {
+            VirtualClock clock = new VirtualClock();
+            WakeupMeter meter = new WakeupMeter(clock);
+            ClickSynthesizer synth = new ClickSynthesizer(new PcmClip(click, SAMPLE_RATE), 16, 8192, new PulseEngine(1));
+            synth.setRate(5);
+            MemoryPcmSink sink = new MemoryPcmSink(SAMPLE_RATE, SAMPLE_RATE);
+            short[] buffer = new short[blocks[b]];
+            while (synth.getPosition() < 60L * SAMPLE_RATE) {
+                synth.renderTo(sink, buffer, blocks[b]);
+                meter.record(WakeupMeter.Source.AUDIO);
+            }
+            clock.advance(MINUTE);
+            meter.sample(0);
+            rates[b] = meter.perMinute(WakeupMeter.Source.AUDIO);
+        }
+        System.out.println("audio wakeups/min: " + rates[0] + " interactive, " + rates[1] + " low-power");
+        assertTrue(rates[1] * 30 <= rates[0]);
+    }
+}
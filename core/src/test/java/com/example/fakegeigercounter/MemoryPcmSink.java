@@ -0,0 +1,42 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Sink in memoria a capacità fissa, per test e simulazioni sulla JVM.
+ * I campioni oltre la capacità vengono contati ma scartati.
+ */
+public class MemoryPcmSink implements PcmSink {
+    private final int sampleRate;
+    private final short[] samples;
+    private long framesWritten = 0;
+
+    public MemoryPcmSink(int sampleRate, int capacity) {
+        this.sampleRate = sampleRate;
+        this.samples = new short[capacity];
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public void write(short[] buffer, int frames) {
+        long free = samples.length - framesWritten;
+        if (free > 0) {
+            System.arraycopy(buffer, 0, samples, (int) framesWritten, (int) Math.min(free, frames));
+        }
+        framesWritten += frames;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public short[] getSamples() {
+        return samples;
+    }
+
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+}
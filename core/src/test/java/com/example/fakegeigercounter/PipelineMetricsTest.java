@@ -0,0 +1,111 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000L); // 1..1000 ms
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000_000L, histogram.getMax());
+        assertEquals(500_500_000L, histogram.getMean());
+        assertEquals(500e6, histogram.percentile(0.5), 500e6 * 0.125);
+        assertEquals(990e6, histogram.percentile(0.99), 990e6 * 0.125);
+        assertEquals(1_000_000_000L, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void disabledMetrics_recordNothing() {
+        VirtualClock clock = new VirtualClock();
+        PipelineMetrics metrics = new PipelineMetrics(clock);
+
+        long start = metrics.start();
+        assertEquals(0, start);
+        clock.advanceTo(5_000_000L);
+        metrics.record(PipelineMetrics.Stage.CALCULATION, start);
+        metrics.recordLatency(PipelineMetrics.Stage.BLE_READ, 1_000_000L);
+        metrics.count(PipelineMetrics.Counter.READS);
+
+        assertEquals(0, metrics.histogram(PipelineMetrics.Stage.CALCULATION).getCount());
+        assertEquals(0, metrics.histogram(PipelineMetrics.Stage.BLE_READ).getCount());
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.READS));
+    }
+
+    @Test
+    public void enabledMetrics_measureStagesAndRates() {
+        VirtualClock clock = new VirtualClock();
+        clock.advanceTo(1_000_000_000L);
+        PipelineMetrics metrics = new PipelineMetrics(clock);
+        metrics.setEnabled(true);
+
+        for (int i = 0; i < 40; i++) {
+            long start = metrics.start();
+            clock.advanceTo(clock.nanoTime() + 2_000_000L);
+            metrics.record(PipelineMetrics.Stage.CALCULATION, start);
+            metrics.count(PipelineMetrics.Counter.READS);
+            clock.advanceTo(clock.nanoTime() + 48_000_000L);
+        }
+        metrics.sample();
+
+        LatencyHistogram calculation = metrics.histogram(PipelineMetrics.Stage.CALCULATION);
+        assertEquals(40, calculation.getCount());
+        assertEquals(2_000_000L, calculation.getMax());
+        assertEquals(20f, metrics.perSecond(PipelineMetrics.Counter.READS), 0.01f);
+        assertTrue(metrics.toText().contains("reads/s=20.0"));
+    }
+
+    @Test
+    public void binarySnapshot_roundTrips() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics(MonotonicClock.SYSTEM);
+        metrics.setEnabled(true);
+        for (int i = 0; i < 300; i++) {
+            metrics.recordLatency(PipelineMetrics.Stage.BLE_READ, 20_000_000L + i * 100_000L);
+            metrics.recordLatency(PipelineMetrics.Stage.UI_POST, 8_000_000L + i * 10_000L);
+            metrics.count(PipelineMetrics.Counter.CLICKS);
+        }
+
+        byte[] snapshot = metrics.toBytes();
+        // Solo i bucket usati: molto meno dei ~2.5 KB di un istogramma completo
+        assertTrue("snapshot " + snapshot.length, snapshot.length < 512);
+
+        PipelineMetrics copy = PipelineMetrics.read(new ByteArrayInputStream(snapshot));
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            LatencyHistogram original = metrics.histogram(stage);
+            LatencyHistogram read = copy.histogram(stage);
+            assertEquals(original.getCount(), read.getCount());
+            assertEquals(original.getMax(), read.getMax());
+            assertEquals(original.getMean(), read.getMean());
+            assertEquals(original.percentile(0.9), read.percentile(0.9));
+        }
+        assertEquals(300, copy.getCount(PipelineMetrics.Counter.CLICKS));
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long base = (t + 1) * 1_000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(base + i % 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(4_999, histogram.getMax());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+public class PulseEngineTest {
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    public void intervals_areExponentiallyDistributed() {
+        PulseEngine engine = new PulseEngine(42);
+        engine.setRate(50);
+        double mean = 1e9 / 50;
+
+        long[] timestamps = new long[SAMPLES];
+        engine.fillTimestamps(0, timestamps, SAMPLES);
+
+        double sum = 0, sumSq = 0;
+        int belowMean = 0;
+        long previous = 0;
+        for (long t : timestamps) {
+            long interval = t - previous;
+            previous = t;
+            sum += interval;
+            sumSq += (double) interval * interval;
+            if (interval < mean) belowMean++;
+        }
+        double sampleMean = sum / SAMPLES;
+        double variance = sumSq / SAMPLES - sampleMean * sampleMean;
+
+        // Media 1/λ, deviazione standard 1/λ, P(X < media) = 1 - 1/e
+        assertEquals(1.0, sampleMean / mean, 0.01);
+        assertEquals(1.0, Math.sqrt(variance) / mean, 0.02);
+        assertEquals(1 - Math.exp(-1), belowMean / (double) SAMPLES, 0.005);
+    }
+
+    @Test
+    public void sameSeed_givesSameSequence() {
+        PulseEngine a = new PulseEngine(7);
+        PulseEngine b = new PulseEngine(7);
+        a.setRate(10);
+        b.setRate(10);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(a.nextIntervalNanos(), b.nextIntervalNanos());
+        }
+    }
+
+    @Test
+    public void zeroRate_producesNoPulses() {
+        PulseEngine engine = new PulseEngine(1);
+        assertEquals(0, engine.fillTimestamps(0, new long[8], 8));
+        assertEquals(Long.MAX_VALUE, engine.nextIntervalNanos());
+    }
+
+    @Test
+    public void hotPath_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        PulseEngine engine = new PulseEngine(3);
+        engine.setRate(1000);
+        RadiationCalculator calculator = new RadiationCalculator(new PulseEngine(3));
+        long[] batch = new long[256];
+
+        // Riscaldamento per far compilare i metodi al JIT
+        runHotPath(engine, calculator, batch, 20_000);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        runHotPath(engine, calculator, batch, 20_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, allocated);
+    }
+
+    private static long runHotPath(PulseEngine engine, RadiationCalculator calculator, long[] batch, int iterations) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += engine.fillTimestamps(sink, batch, batch.length);
+            if (calculator.shouldTriggerPulse()) sink++;
+        }
+        return sink;
+    }
+}
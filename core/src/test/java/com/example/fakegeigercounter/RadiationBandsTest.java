@@ -0,0 +1,57 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+public class RadiationBandsTest {
+    /**
+     * Classificazione originale a catena di if di DetectorActivity
+     */
+    private static String legacyName(int radiation) {
+        if (radiation <= 50) return "Aria Vault";
+        if (radiation <= 150) return "Polvere Glow";
+        if (radiation <= 300) return "Zona Gialla";
+        if (radiation <= 500) return "Sangue Verde";
+        if (radiation <= 700) return "Ghoul Ferale";
+        if (radiation <= 850) return "Scorie Dirette";
+        if (radiation <= 950) return "Cuore FEV";
+        return "Liberty Prime";
+    }
+
+    @Test
+    public void bands_matchLegacyClassification() {
+        for (int radiation = 0; radiation <= CurveTables.MAX_RAD; radiation++) {
+            assertEquals(legacyName(radiation), RadiationBands.name(RadiationBands.bandOf(radiation)));
+            assertEquals(String.valueOf(radiation), RadiationBands.valueText(radiation));
+        }
+    }
+
+    @Test
+    public void displayLookup_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        lookupAll(20);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        int checksum = lookupAll(200);
+        assertEquals(0, threads.getThreadAllocatedBytes(threadId) - before);
+        assertTrue(checksum != 0);
+    }
+
+    private static int lookupAll(int rounds) {
+        int checksum = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (int radiation = 0; radiation <= CurveTables.MAX_RAD; radiation++) {
+                int band = RadiationBands.bandOf(radiation);
+                checksum += band + RadiationBands.name(band).length()
+                        + RadiationBands.valueText(radiation).length();
+            }
+        }
+        return checksum;
+    }
+}
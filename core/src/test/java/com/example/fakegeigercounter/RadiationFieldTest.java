@@ -0,0 +1,178 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class RadiationFieldTest {
+    private static final long SECOND = 1_000_000_000L;
+    private static final CurveTables LINEAR = CurveTables.compile(RadiationCurveType.LINEAR.create());
+
+    @Test
+    public void radiation_isWeightedSumClampedToMax() {
+        VirtualClock clock = new VirtualClock(10 * SECOND);
+        RadiationField field = new RadiationField(clock, 8);
+        int near = field.register("AA", 1f);
+        int far = field.register("BB", 0.5f);
+
+        field.update(near, -50);
+        field.update(far, -70);
+        assertEquals((int) (LINEAR.radiationFor(-50) + 0.5f * LINEAR.radiationFor(-70)),
+                field.calculateRadiation());
+        assertEquals(-50, field.strongestRssi());
+        assertEquals(2, field.activeEmitters());
+
+        // Un peso enorme satura a MAX_RAD invece di uscire dalla scala
+        field.register("AA", 100f);
+        assertEquals(CurveTables.MAX_RAD, field.calculateRadiation());
+    }
+
+    @Test
+    public void staleSlots_areSkippedWithTheirOwnWindow() {
+        VirtualClock clock = new VirtualClock(10 * SECOND);
+        RadiationField field = new RadiationField(clock, 8);
+        int beacon = field.register("AA", 1f, SECOND);
+        int phone = field.register("BB", 1f, 10 * SECOND);
+        int silent = field.register("CC", 1f);
+
+        field.update(beacon, -40);
+        field.update(phone, -60);
+        assertEquals(2, field.activeEmitters());
+
+        // Il beacon scade dopo 1 s, il telefono vale ancora per 10 s
+        clock.advance(2 * SECOND);
+        assertEquals(1, field.activeEmitters());
+        assertEquals(-60, field.strongestRssi());
+        assertEquals(LINEAR.radiationFor(-60), field.calculateRadiation());
+
+        clock.advance(9 * SECOND);
+        assertEquals(0, field.activeEmitters());
+        assertEquals(0, field.calculateRadiation());
+        assertEquals(RadiationCalculator.MIN_RSSI, field.strongestRssi());
+        assertEquals("CC", field.addressOf(silent));
+    }
+
+    @Test
+    public void register_beyondCapacityFailsWithoutLosingSlots() {
+        RadiationField field = new RadiationField(new VirtualClock(), 2);
+        assertEquals(0, field.register("AA", 1f));
+        assertEquals(1, field.register("BB", 1f));
+        // Una sorgente già registrata non occupa un altro slot
+        assertEquals(0, field.register("AA", 2f));
+
+        try {
+            field.register("CC", 1f);
+            fail("capacity exceeded");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            field.update("DD", -50);
+            fail("capacity exceeded");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(2, field.emitterCount());
+        assertEquals("BB", field.addressOf(1));
+    }
+
+    @Test
+    public void concurrentUpdates_keepEverySlotConsistent() throws Exception {
+        final int threads = 4;
+        final int perThread = 50;
+        RadiationField field = new RadiationField(MonotonicClock.SYSTEM, threads * perThread);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Ogni thread registra le proprie sorgenti e le aggiorna molte volte;
+        // l'ultima lettura di ognuna è -40 - indice del thread
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int round = 0; round < 200; round++) {
+                    for (int k = 0; k < perThread; k++) {
+                        field.update("T" + id + "-" + k, round == 199 ? -40 - id : -90 + round % 40);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, field.emitterCount());
+        Set<String> addresses = new HashSet<>();
+        for (int slot = 0; slot < field.emitterCount(); slot++) {
+            assertTrue(addresses.add(field.addressOf(slot)));
+        }
+        assertEquals(threads * perThread, field.activeEmitters());
+        assertEquals(-40, field.strongestRssi());
+
+        // Ogni slot isolato (peso 1 solo a lui) contiene l'ultima lettura del suo thread
+        for (int slot = 0; slot < field.emitterCount(); slot++) {
+            field.register(field.addressOf(slot), 0f);
+        }
+        for (int slot = 0; slot < field.emitterCount(); slot++) {
+            String address = field.addressOf(slot);
+            int thread = address.charAt(1) - '0';
+            field.register(address, 1f);
+            assertEquals(address, LINEAR.radiationFor(-40 - thread), field.calculateRadiation());
+            field.register(address, 0f);
+        }
+    }
+
+    @Test
+    public void newEmitters_neverCountWithZeroWeight() throws Exception {
+        // La finestra della corsa è stretta: servono molti campi nuovi per vederla
+        for (int round = 0; round < 200; round++) newEmittersRound();
+    }
+
+    private void newEmittersRound() throws Exception {
+        final int threads = 4;
+        final int emitters = 800;
+        RadiationField field = new RadiationField(new VirtualClock(SECOND), emitters);
+        // Ogni sorgente fresca vale esattamente 1: il totale è il numero di sorgenti attive
+        field.setCurve(rssi -> 1f);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Più thread registrano e aggiornano le stesse sorgenti nuove, in ordini diversi
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * emitters / threads;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int k = 0; k < emitters; k++) {
+                    field.update("E" + (k + offset) % emitters, -50);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        // Le sorgenti attive possono solo aumentare: il totale sta tra i due conteggi
+        while (field.activeEmitters() < emitters) {
+            int before = field.activeEmitters();
+            int radiation = field.calculateRadiation();
+            int after = field.activeEmitters();
+            assertTrue(before + " <= " + radiation + " <= " + after, before <= radiation && radiation <= after);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(emitters, field.calculateRadiation());
+    }
+}
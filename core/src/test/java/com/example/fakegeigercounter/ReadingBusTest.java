@@ -0,0 +1,207 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReadingBusTest {
+
+    /**
+     * Handler che verifica ordine e coerenza: rssi = -(n % 128), livello = n % 1001, istante = n
+     */
+    private static final class Checker implements ReadingBus.Handler {
+        long last = -1;
+        long count = 0;
+        long violations = 0;
+
+        @Override
+        public void onReading(int rssi, int radLevel, long nanos) {
+            if (nanos <= last || rssi != -(int) (nanos % 128) || radLevel != (int) (nanos % 1001)) {
+                violations++;
+            }
+            last = nanos;
+            count++;
+        }
+    }
+
+    private static void publish(ReadingBus bus, long n) {
+        bus.publish(-(int) (n % 128), (int) (n % 1001), n);
+    }
+
+    @Test
+    public void consumers_seeEveryReadingIndependently() {
+        ReadingBus bus = new ReadingBus(16);
+        Checker fast = new Checker();
+        Checker slow = new Checker();
+        ReadingBus.Consumer fastConsumer = bus.addConsumer("fast", fast, ReadingBus.WaitStrategy.BLOCKING);
+        ReadingBus.Consumer slowConsumer = bus.addConsumer("slow", slow, ReadingBus.WaitStrategy.BLOCKING);
+
+        for (long n = 1; n <= 10; n++) {
+            publish(bus, n);
+            fastConsumer.poll();
+        }
+        assertEquals(10, fast.count);
+        assertEquals(0, fastConsumer.getBacklog());
+        assertEquals(10, slowConsumer.getBacklog());
+        assertEquals(10, slowConsumer.getMaxBacklog());
+
+        assertEquals(10, slowConsumer.poll());
+        assertEquals(10, slow.count);
+        assertEquals(0, fast.violations + slow.violations);
+        assertEquals(0, fastConsumer.getLost() + slowConsumer.getLost());
+    }
+
+    @Test
+    public void slowConsumer_isOverrunInsteadOfStallingTheProducer() {
+        ReadingBus bus = new ReadingBus(8);
+        Checker checker = new Checker();
+        ReadingBus.Consumer consumer = bus.addConsumer("recorder", checker, ReadingBus.WaitStrategy.BLOCKING);
+
+        for (long n = 1; n <= 20; n++) {
+            publish(bus, n);
+        }
+        assertEquals(8, consumer.getBacklog());
+        assertEquals(20, consumer.getMaxBacklog());
+
+        // Restano solo le ultime 8, in ordine
+        assertEquals(8, consumer.poll());
+        assertEquals(12, consumer.getLost());
+        assertEquals(20, checker.last);
+        assertEquals(0, checker.violations);
+    }
+
+    @Test
+    public void lateConsumer_startsFromTheCursor() {
+        ReadingBus bus = new ReadingBus(8);
+        publish(bus, 1);
+        publish(bus, 2);
+        Checker checker = new Checker();
+        ReadingBus.Consumer consumer = bus.addConsumer("late", checker, ReadingBus.WaitStrategy.BLOCKING);
+
+        assertEquals(0, consumer.poll());
+        publish(bus, 3);
+        assertEquals(1, consumer.poll());
+        assertEquals(3, checker.last);
+    }
+
+    @Test
+    public void removedConsumer_isNoLongerTracked() {
+        ReadingBus bus = new ReadingBus(8);
+        Checker kept = new Checker();
+        ReadingBus.Consumer keptConsumer = bus.addConsumer("kept", kept, ReadingBus.WaitStrategy.BLOCKING);
+        ReadingBus.Consumer removed = bus.addConsumer("removed", new Checker(), ReadingBus.WaitStrategy.BLOCKING);
+
+        bus.removeConsumer(removed);
+        for (long n = 1; n <= 20; n++) {
+            publish(bus, n);
+            keptConsumer.poll();
+        }
+        assertEquals(1, bus.getConsumers().length);
+        assertEquals(0, removed.getMaxBacklog());
+        assertEquals(20, kept.count);
+    }
+
+    @Test
+    public void threadedConsumers_keepUpWithEveryWaitStrategy() throws Exception {
+        for (ReadingBus.WaitStrategy strategy : ReadingBus.WaitStrategy.values()) {
+            ReadingBus bus = new ReadingBus(1024);
+            Checker checker = new Checker();
+            ReadingBus.Consumer consumer = bus.addConsumer(strategy.name(), checker, strategy);
+            Thread thread = new Thread(consumer);
+            thread.start();
+
+            // Ritmo da sorgente reale (pause brevi): nessuna lettura deve andare persa
+            for (long n = 1; n <= 2000; n++) {
+                publish(bus, n);
+                if (n % 100 == 0) Thread.sleep(1);
+            }
+            consumer.halt();
+            thread.join(5000);
+
+            assertEquals(strategy.name(), 2000, checker.count);
+            assertEquals(strategy.name(), 0, checker.violations);
+            assertEquals(strategy.name(), 0, consumer.getLost());
+        }
+    }
+
+    @Test
+    public void stalledConsumer_neverBlocksProducer() throws Exception {
+        ReadingBus bus = new ReadingBus(64);
+        AtomicLong slowSeen = new AtomicLong();
+        Checker fast = new Checker();
+        ReadingBus.Consumer fastConsumer = bus.addConsumer("audio", fast, ReadingBus.WaitStrategy.BLOCKING);
+        ReadingBus.Consumer slowConsumer = bus.addConsumer("disk", (rssi, level, nanos) -> {
+            slowSeen.incrementAndGet();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, ReadingBus.WaitStrategy.SLEEPING);
+        Thread slowThread = new Thread(slowConsumer);
+        slowThread.start();
+
+        long start = System.nanoTime();
+        for (long n = 1; n <= 100_000; n++) {
+            publish(bus, n);
+            fastConsumer.poll();
+        }
+        long elapsed = System.nanoTime() - start;
+        slowConsumer.halt();
+        slowThread.join(5000);
+
+        // 100 000 letture al ritmo del consumatore lento richiederebbero almeno 100 s
+        assertTrue(elapsed < 5_000_000_000L);
+        assertEquals(100_000, fast.count);
+        assertEquals(0, fast.violations);
+        assertEquals(100_000, slowSeen.get() + slowConsumer.getLost());
+        assertTrue(slowConsumer.getLost() > 0);
+    }
+
+    @Test
+    public void publishAndPoll_doNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ReadingBus bus = new ReadingBus(256);
+        Checker first = new Checker();
+        Checker second = new Checker();
+        ReadingBus.Consumer a = bus.addConsumer("a", first, ReadingBus.WaitStrategy.BLOCKING);
+        ReadingBus.Consumer b = bus.addConsumer("b", second, ReadingBus.WaitStrategy.BLOCKING);
+
+        // Riscaldamento con lo stesso ciclo misurato, per far compilare i metodi al JIT
+        runHotPath(bus, a, b, 1, 20_000);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        runHotPath(bus, a, b, 20_001, 20_000);
+        assertEquals(0, threads.getThreadAllocatedBytes(threadId) - before);
+        assertEquals(40_000, first.count);
+        assertEquals(0, first.violations + second.violations);
+    }
+
+    /**
+     * Un consumatore al passo con il produttore, l'altro che legge ogni 100 letture
+     */
+    private static void runHotPath(ReadingBus bus, ReadingBus.Consumer a, ReadingBus.Consumer b,
+                                   long from, int iterations) {
+        for (long n = from; n < from + iterations; n++) {
+            publish(bus, n);
+            a.poll();
+            if (n % 100 == 0) b.poll();
+        }
+    }
+
+    @Test
+    public void waitStrategy_fromNameFallsBack() {
+        assertEquals(ReadingBus.WaitStrategy.SLEEPING,
+                ReadingBus.WaitStrategy.fromName("SLEEPING", ReadingBus.WaitStrategy.BLOCKING));
+        assertEquals(ReadingBus.WaitStrategy.BLOCKING,
+                ReadingBus.WaitStrategy.fromName("nope", ReadingBus.WaitStrategy.BLOCKING));
+        assertEquals(ReadingBus.WaitStrategy.BLOCKING,
+                ReadingBus.WaitStrategy.fromName(null, ReadingBus.WaitStrategy.BLOCKING));
+    }
+}
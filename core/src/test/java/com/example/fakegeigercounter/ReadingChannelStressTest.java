@@ -0,0 +1,77 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test concorrente del canale: uno scrittore pubblica letture i cui campi
+ * derivano tutti dallo stesso contatore, più lettori verificano che ogni snapshot
+ * letto sia coerente (nessun campo di una lettura mischiato con quelli di un'altra)
+ * e che il tempo non torni mai indietro.
+ */
+public class ReadingChannelStressTest {
+    private static final int READERS = 3;
+    private static final long WRITES = 5_000_000;
+
+    private volatile boolean done;
+
+    @Test
+    public void readers_neverSeeTornSnapshots() throws Exception {
+        long[] now = {0};
+        ReadingChannel channel = new ReadingChannel(() -> now[0]);
+        AtomicLong violations = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] readers = new Thread[READERS];
+        for (int r = 0; r < READERS; r++) {
+            readers[r] = new Thread(() -> {
+                awaitQuietly(start);
+                long lastTick = -1;
+                long count = 0;
+                while (!done) {
+                    long snapshot = channel.read();
+                    count++;
+                    if (snapshot == ReadingChannel.EMPTY) continue;
+
+                    long tick = channel.timestampNanos(snapshot) / 1_000_000;
+                    int rad = ReadingChannel.radLevel(snapshot);
+                    boolean consistent = rad == tick % 1001
+                            && ReadingChannel.rssi(snapshot) == -(int) (tick % 128)
+                            && ReadingChannel.band(snapshot) == RadiationBands.bandOf(rad)
+                            && tick >= lastTick;
+                    if (!consistent) violations.incrementAndGet();
+                    lastTick = tick;
+                }
+                reads.addAndGet(count);
+            });
+            readers[r].start();
+        }
+
+        start.countDown();
+        for (long i = 0; i < WRITES; i++) {
+            now[0] = i * 1_000_000;
+            int rad = (int) (i % 1001);
+            channel.publish(-(int) (i % 128), rad, RadiationBands.bandOf(rad));
+        }
+        done = true;
+        for (Thread reader : readers) reader.join();
+
+        assertEquals(0, violations.get());
+        assertTrue(reads.get() > 0);
+        assertEquals(WRITES - 1, channel.timestampNanos(channel.read()) / 1_000_000);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Confronto tra i filtri su una traccia di avvicinamento: tempo di assestamento
+ * dopo un salto di livello e jitter residuo a regime.
+ */
+public class RssiFilterTest {
+    private static final int FAR_RSSI = -85;
+    private static final int NEAR_RSSI = -55;
+    private static final int STEP_AT = 60;
+    private static final int LENGTH = 240;
+    private static final int SETTLE_TOLERANCE = 3;
+
+    /**
+     * Traccia con rumore gaussiano (σ = 4 dB) e qualche fading profondo isolato,
+     * come quelle registrate in sala con il telefono in tasca.
+     */
+    private static int[] approachTrace(long seed) {
+        Random random = new Random(seed);
+        int[] trace = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            int level = i < STEP_AT ? FAR_RSSI : NEAR_RSSI;
+            int sample = level + (int) Math.round(random.nextGaussian() * 4);
+            if (random.nextInt(20) == 0) sample -= 15;
+            trace[i] = sample;
+        }
+        return trace;
+    }
+
+    private static int[] run(RssiFilter filter, int[] trace) {
+        int[] out = new int[trace.length];
+        for (int i = 0; i < trace.length; i++) {
+            out[i] = filter.filter(trace[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Campioni dopo il salto prima che l'uscita resti entro la tolleranza per 5 campioni di fila
+     */
+    private static int settleSamples(int[] filtered) {
+        int inside = 0;
+        for (int i = STEP_AT; i < filtered.length; i++) {
+            inside = Math.abs(filtered[i] - NEAR_RSSI) <= SETTLE_TOLERANCE ? inside + 1 : 0;
+            if (inside == 5) return i - STEP_AT - 4;
+        }
+        return filtered.length - STEP_AT;
+    }
+
+    /**
+     * Deviazione standard dell'uscita nell'ultima parte della traccia
+     */
+    private static double jitter(int[] filtered) {
+        int from = STEP_AT + 60;
+        double sum = 0, sumSq = 0;
+        for (int i = from; i < filtered.length; i++) {
+            sum += filtered[i];
+            sumSq += (double) filtered[i] * filtered[i];
+        }
+        int n = filtered.length - from;
+        double mean = sum / n;
+        return Math.sqrt(sumSq / n - mean * mean);
+    }
+
+    @Test
+    public void filters_reduceJitterAndSettleQuickly() {
+        double rawJitter = 0;
+        System.out.println("filter   settle(samples)  jitter(dB)");
+        for (RssiFilterType type : RssiFilterType.values()) {
+            double totalJitter = 0;
+            double totalSettle = 0;
+            for (long seed = 1; seed <= 20; seed++) {
+                int[] filtered = run(type.create(), approachTrace(seed));
+                totalJitter += jitter(filtered);
+                totalSettle += settleSamples(filtered);
+            }
+            double meanJitter = totalJitter / 20;
+            double meanSettle = totalSettle / 20;
+            System.out.printf("%-8s %15.1f %11.2f%n", type, meanSettle, meanJitter);
+
+            if (type == RssiFilterType.NONE) {
+                rawJitter = meanJitter;
+            } else {
+                assertTrue(type + " jitter", meanJitter < rawJitter * 0.75);
+                assertTrue(type + " settle", meanSettle <= 12);
+            }
+        }
+    }
+
+    @Test
+    public void median_ignoresIsolatedSpike() {
+        RssiFilter filter = new MedianRssiFilter(5);
+        int out = 0;
+        for (int rssi : new int[]{-60, -61, -59, -95, -60}) {
+            out = filter.filter(rssi);
+        }
+        assertEquals(-60, out);
+    }
+
+    @Test
+    public void reset_forgetsHistory() {
+        for (RssiFilterType type : RssiFilterType.values()) {
+            RssiFilter filter = type.create();
+            for (int i = 0; i < 10; i++) filter.filter(-90);
+            filter.reset();
+            assertEquals(type.toString(), -50, filter.filter(-50));
+        }
+    }
+
+    @Test
+    public void ringBuffer_keepsLastValues() {
+        RssiRingBuffer buffer = new RssiRingBuffer(3);
+        for (int i = 1; i <= 5; i++) buffer.push(i);
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.oldest());
+        assertEquals(5, buffer.get(2));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RssiPollSchedulerTest {
+    private static final long MS = 1_000_000L;
+    private static final long READ_LATENCY = 30 * MS;
+
+    /**
+     * Una lettura completa: avvio, risposta dopo READ_LATENCY, attesa scelta dallo scheduler
+     */
+    private static void poll(VirtualClock clock, RssiPollScheduler scheduler, int rssi, int radLevel) {
+        long read = scheduler.tryIssue();
+        assertTrue(RssiPollScheduler.NO_READ != read);
+        long delay = scheduler.nextDelayMillis();
+        clock.advance(READ_LATENCY);
+        scheduler.onReadCompleted(read, rssi, radLevel);
+        clock.advance(delay * MS - READ_LATENCY);
+    }
+
+    @Test
+    public void interval_adaptsToTheSignal() {
+        VirtualClock clock = new VirtualClock();
+        RssiPollScheduler scheduler = new RssiPollScheduler(clock);
+        assertEquals(RssiPollScheduler.DEFAULT_BASE_INTERVAL, scheduler.nextDelayMillis());
+
+        // Segnale fermo: rallenta fino al massimo
+        for (int i = 0; i < 10; i++) poll(clock, scheduler, -65, 300);
+        assertEquals(RssiPollScheduler.DEFAULT_MAX_INTERVAL, scheduler.nextDelayMillis());
+
+        // Segnale che salta di 20 dB a ogni lettura: accelera fino al minimo
+        for (int i = 0; i < 10; i++) poll(clock, scheduler, i % 2 == 0 ? -45 : -65, 300);
+        assertEquals(RssiPollScheduler.DEFAULT_MIN_INTERVAL, scheduler.nextDelayMillis());
+
+        // Livello zero: rallenta anche se il segnale si muove ancora
+        scheduler.reset();
+        for (int i = 0; i < 10; i++) poll(clock, scheduler, -90 - i % 2, 0);
+        assertEquals(RssiPollScheduler.DEFAULT_MAX_INTERVAL, scheduler.nextDelayMillis());
+        assertEquals(30, scheduler.getCompleted());
+        assertEquals(0, scheduler.getLate());
+    }
+
+    @Test
+    public void lateCompletion_afterTimeoutIsIgnored() {
+        VirtualClock clock = new VirtualClock();
+        RssiPollScheduler scheduler = new RssiPollScheduler(clock);
+
+        long lost = scheduler.tryIssue();
+        assertTrue(RssiPollScheduler.NO_READ != lost);
+        // Slot occupato finché non scade il timeout
+        clock.advance(1000 * MS);
+        assertEquals(RssiPollScheduler.NO_READ, scheduler.tryIssue());
+        clock.advance(1500 * MS);
+        long current = scheduler.tryIssue();
+        assertTrue(RssiPollScheduler.NO_READ != current);
+        assertTrue(lost != current);
+        assertEquals(1, scheduler.getTimedOut());
+
+        // La risposta della lettura scaduta non libera lo slot della nuova
+        scheduler.onReadCompleted(lost, -40, 300);
+        scheduler.onReadFailed(lost);
+        assertEquals(2, scheduler.getLate());
+        assertEquals(1, scheduler.getInFlight());
+        assertEquals(0, scheduler.getCompleted() + scheduler.getFailed());
+        assertEquals(RssiPollScheduler.NO_READ, scheduler.tryIssue());
+
+        scheduler.onReadCompleted(current, -60, 300);
+        assertEquals(0, scheduler.getInFlight());
+        assertEquals(1, scheduler.getCompleted());
+
+        // Una seconda risposta per la stessa lettura è tardiva anche lei
+        scheduler.onReadFailed(current);
+        assertEquals(3, scheduler.getLate());
+        assertEquals(0, scheduler.getFailed());
+        assertTrue(RssiPollScheduler.NO_READ != scheduler.tryIssue());
+        assertEquals(3, scheduler.getIssued());
+    }
+
+    @Test
+    public void batch_issuesBackToBackThenWaitsLonger() {
+        VirtualClock clock = new VirtualClock();
+        RssiPollScheduler scheduler = new RssiPollScheduler(clock);
+        scheduler.setBatchSize(3);
+
+        for (int i = 0; i < 3; i++) {
+            long read = scheduler.tryIssue();
+            long delay = scheduler.nextDelayMillis();
+            clock.advance(READ_LATENCY);
+            scheduler.onReadCompleted(read, -65, 300);
+            if (i < 2) {
+                // Le successive partono al completamento: l'attesa è solo il ripiego
+                assertEquals(2000, delay);
+                assertTrue(scheduler.continueBatch());
+            } else {
+                // Segnale fermo: 1000 -> 1500 -> 2250 ms, per tre letture
+                assertEquals(3 * 2250, delay);
+                assertFalse(scheduler.continueBatch());
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScanBatchingTest {
+    private static final long MINUTE = 60_000_000_000L;
+    private static final int ADVERTISERS = 200;
+    private static final int TARGETS = 4;
+    private static final long ADVERTISING_INTERVAL = 100; // ms, 10 advertisement al secondo ciascuno
+    private static final int MANUFACTURER = 0xFFFF;
+    private static final byte[] TARGET_DATA = {0x47, 0x43};
+
+    /**
+     * Controller Bluetooth simulato: applica i filtri hardware del profilo e,
+     * con un ritardo dei report, consegna i risultati in blocchi
+     */
+    private static final class Controller implements ScanDutyCycle.Window {
+        private final VirtualExecutor executor;
+        private final ScanProfile profile;
+        private final ScanMeter meter;
+        private final List<Integer> batch = new ArrayList<>();
+        private final Runnable flushTask = this::flushAndReschedule;
+        private boolean scanning = false;
+
+        Controller(VirtualExecutor executor, ScanProfile profile, ScanMeter meter) {
+            this.executor = executor;
+            this.profile = profile;
+            this.meter = meter;
+        }
+
+        @Override
+        public boolean open() {
+            scanning = true;
+            if (profile.getReportDelayMillis() > 0) {
+                executor.postDelayed(flushTask, profile.getReportDelayMillis());
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // Come flushPendingScanResults prima di stopScan
+            flush();
+            executor.removeCallbacks(flushTask);
+            scanning = false;
+        }
+
+        void advertise(int advertiser) {
+            if (!scanning) return;
+            if (profile.hasHardwareFilter() && !profile.matchesManufacturer(MANUFACTURER, payloadOf(advertiser))) {
+                return;
+            }
+            if (profile.getReportDelayMillis() > 0) {
+                batch.add(advertiser);
+            } else {
+                meter.recordCallback(1);
+                accept(advertiser);
+            }
+        }
+
+        private void flushAndReschedule() {
+            flush();
+            executor.postDelayed(flushTask, profile.getReportDelayMillis());
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) return;
+            meter.recordCallback(batch.size());
+            for (int advertiser : batch) {
+                accept(advertiser);
+            }
+            batch.clear();
+        }
+
+        /**
+         * Il filtro software dell'app: tutto ciò che scarta è una sveglia sprecata
+         */
+        private void accept(int advertiser) {
+            if (!profile.matchesName(nameOf(advertiser))
+                    || !profile.matchesManufacturer(MANUFACTURER, payloadOf(advertiser))) {
+                meter.recordRejected();
+            }
+        }
+    }
+
+    private static boolean isTarget(int advertiser) {
+        return advertiser < TARGETS;
+    }
+
+    private static String nameOf(int advertiser) {
+        return isTarget(advertiser) ? "Geiger-" + advertiser : "Beacon-" + advertiser;
+    }
+
+    private static byte[] payloadOf(int advertiser) {
+        return isTarget(advertiser) ? TARGET_DATA : new byte[]{0x10, (byte) advertiser};
+    }
+
+    /**
+     * Un minuto in un ambiente con 200 dispositivi che trasmettono a 10 Hz
+     */
+    private static ScanMeter simulate(ScanProfile profile) {
+        VirtualClock clock = new VirtualClock();
+        VirtualExecutor executor = new VirtualExecutor(clock);
+        ScanMeter meter = new ScanMeter(clock);
+        Controller controller = new Controller(executor, profile, meter);
+
+        for (int i = 0; i < ADVERTISERS; i++) {
+            int advertiser = i;
+            Runnable advertise = new Runnable() {
+                @Override
+                public void run() {
+                    controller.advertise(advertiser);
+                    executor.postDelayed(this, ADVERTISING_INTERVAL);
+                }
+            };
+            // Sfasati, come trasmettitori indipendenti
+            executor.postDelayed(advertise, advertiser % ADVERTISING_INTERVAL);
+        }
+
+        ScanDutyCycle cycle = new ScanDutyCycle(executor, controller,
+                profile.isDutyCycled() ? profile.getDutyOnMillis() : 0, profile.getDutyOffMillis());
+        assertTrue(cycle.start());
+        executor.runFor(MINUTE);
+        cycle.stop();
+        return meter;
+    }
+
+    private static ScanProfile filteredProfile() {
+        ScanProfile profile = new ScanProfile();
+        profile.setNamePrefix("Geiger");
+        profile.setManufacturerData(MANUFACTURER, TARGET_DATA, null);
+        return profile;
+    }
+
+    @Test
+    public void unfilteredScan_wakesTheAppForEveryAdvertisement() {
+        ScanProfile profile = new ScanProfile();
+        profile.setNamePrefix("Geiger");
+        ScanMeter meter = simulate(profile);
+
+        assertEquals(ADVERTISERS * 600, meter.getCallbacks(), ADVERTISERS);
+        assertEquals(meter.getCallbacks() * (ADVERTISERS - TARGETS) / ADVERTISERS, meter.getRejected(), ADVERTISERS);
+    }
+
+    @Test
+    public void hardwareFilterAndBatching_cutCallbacksToOnePerReportDelay() {
+        ScanMeter unfiltered = simulate(new ScanProfile());
+
+        ScanProfile profile = filteredProfile();
+        profile.setReportDelayMillis(1000);
+        ScanMeter meter = simulate(profile);
+
+        assertEquals(60, meter.getCallbacks(), 1);
+        assertEquals(0, meter.getRejected());
+        assertEquals(TARGETS * 600, meter.getResults(), TARGETS);
+        assertEquals(TARGETS * 10, meter.resultsPerCallback(), 1f);
+        assertTrue(unfiltered.callbacksPerMinute() / meter.callbacksPerMinute() > 1000);
+    }
+
+    @Test
+    public void dutyCycle_scansOnlyInsideWindows() {
+        ScanProfile profile = filteredProfile();
+        profile.setReportDelayMillis(1000);
+        profile.setDutyCycle(2000, 4000);
+        ScanMeter meter = simulate(profile);
+
+        // 10 finestre da 2 secondi in un minuto: un terzo dei risultati
+        assertEquals(TARGETS * 200, meter.getResults(), TARGETS * 10);
+        assertEquals(20, meter.getCallbacks(), 1);
+    }
+
+    @Test
+    public void shortCycles_areStretchedToTheAndroidStartLimit() {
+        VirtualClock clock = new VirtualClock();
+        VirtualExecutor executor = new VirtualExecutor(clock);
+        int[] opened = new int[1];
+        ScanDutyCycle cycle = new ScanDutyCycle(executor, new ScanDutyCycle.Window() {
+            @Override
+            public boolean open() {
+                opened[0]++;
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 1000, 1000);
+
+        assertEquals(5000, cycle.getOffMillis());
+        assertTrue(cycle.start());
+        executor.runFor(29_999_000_000L);
+        assertTrue(opened[0] <= 5);
+        cycle.stop();
+        assertFalse(cycle.isOpen());
+        assertEquals(0, executor.pending());
+    }
+
+    @Test
+    public void manufacturerMask_ignoresMaskedBytes() {
+        ScanProfile profile = new ScanProfile();
+        profile.setManufacturerData(MANUFACTURER, ScanProfile.parseHex("47 00"), ScanProfile.parseHex("FF00"));
+
+        assertTrue(profile.matchesManufacturer(MANUFACTURER, new byte[]{0x47, 0x12, 0x00}));
+        assertFalse(profile.matchesManufacturer(MANUFACTURER, new byte[]{0x48, 0x00}));
+        assertFalse(profile.matchesManufacturer(0x004C, new byte[]{0x47, 0x00}));
+        assertFalse(profile.matchesManufacturer(MANUFACTURER, new byte[]{0x47}));
+    }
+}
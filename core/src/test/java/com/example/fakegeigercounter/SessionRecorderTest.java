@@ -0,0 +1,117 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+public class SessionRecorderTest {
+
+    private static File tempDir() throws Exception {
+        File dir = Files.createTempDirectory("session").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void readings_roundTrip() throws Exception {
+        File file = new File(tempDir(), "readings.trc");
+        TraceWriter writer = new TraceWriter(file, 1_000_000_000L);
+        for (int i = 0; i < 1000; i++) {
+            writer.writeReading(1_000_000_000L + i * 250_000_000L, -30 - i % 70, i % 1001);
+        }
+        writer.close();
+
+        try (TraceReader reader = new TraceReader(file)) {
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(reader.next());
+                assertEquals(TraceWriter.TYPE_READING, reader.type());
+                assertEquals(i * 250L, reader.elapsedMillis());
+                assertEquals(-30 - i % 70, reader.rssi());
+                assertEquals(i % 1001, reader.radLevel());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void unclosedTrace_readsUpToLastRecord() throws Exception {
+        File file = new File(tempDir(), "pulses.trc");
+        TraceWriter writer = new TraceWriter(file, 0);
+        for (int i = 0; i < 100; i++) {
+            writer.writePulse(i * 80_000_000L);
+        }
+        writer.flush();
+
+        // Il file mappato è più lungo dei dati: il lettore si ferma al primo byte vuoto
+        int pulses = 0;
+        try (TraceReader reader = new TraceReader(file)) {
+            while (reader.next()) {
+                assertTrue(reader.isPulse());
+                pulses++;
+            }
+        }
+        assertEquals(100, pulses);
+        writer.close();
+    }
+
+    @Test
+    public void fourHourSession_staysUnderFewHundredKilobytes() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        File dir = tempDir();
+        SessionRecorder recorder = new SessionRecorder(dir, clock);
+        PulseEngine pulses = new PulseEngine(3);
+        pulses.setRate(4);
+
+        long end = 4L * 3600 * 1_000_000_000L;
+        long nextPulse = pulses.nextIntervalNanos();
+        int readings = 0;
+        while (clock.nanoTime() < end) {
+            while (nextPulse < clock.nanoTime()) {
+                recorder.onPulse(nextPulse);
+                nextPulse += pulses.nextIntervalNanos();
+            }
+            recorder.onReading(-60 + readings % 7, 300 + readings % 40);
+            readings++;
+            clock.advance(1_000_000_000L);
+        }
+        recorder.close();
+
+        long size = new File(dir, SessionRecorder.READINGS_FILE).length()
+                + new File(dir, SessionRecorder.PULSES_FILE).length();
+        System.out.println("4 h session: " + readings + " readings, " + size / 1024 + " KB");
+        assertTrue(size < 300 * 1024);
+
+        int read = 0;
+        try (TraceReader reader = new TraceReader(new File(dir, SessionRecorder.READINGS_FILE))) {
+            while (reader.next()) read++;
+        }
+        assertEquals(readings, read);
+    }
+
+    @Test
+    public void recording_doesNotAllocate() throws Exception {
+        File file = new File(tempDir(), "readings.trc");
+        TraceWriter writer = new TraceWriter(file, 0);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int i = 0; i < 10_000; i++) {
+            writer.writeReading(i * 1_000_000L, -50, 400);
+        }
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 10_000; i < 110_000; i++) {
+            writer.writeReading(i * 1_000_000L, -50 - i % 40, i % 1000);
+            writer.writePulse(i * 1_000_000L);
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        writer.close();
+
+        assertTrue("allocated " + allocated, allocated < 1024);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SessionSwitchTest {
+
+    /**
+     * Extra di un intent, come li vede il servizio
+     */
+    private static final class MapExtras implements SessionConfig.Extras {
+        final Map<String, Object> values = new HashMap<>();
+
+        MapExtras put(String name, Object value) {
+            values.put(name, value);
+            return this;
+        }
+
+        @Override
+        public boolean has(String name) {
+            return values.containsKey(name);
+        }
+
+        @Override
+        public String getString(String name) {
+            return (String) values.get(name);
+        }
+
+        @Override
+        public String[] getStringArray(String name) {
+            return (String[]) values.get(name);
+        }
+
+        @Override
+        public boolean getBoolean(String name) {
+            return Boolean.TRUE.equals(values.get(name));
+        }
+    }
+
+    /**
+     * Servizio finto: apre la sessione e fa partire il contatore, chiuderla lo ferma
+     */
+    private static final class CounterTarget implements SessionSwitch.Target {
+        SessionConfig open;
+        boolean counting;
+        int closed;
+
+        @Override
+        public void closeSession() {
+            open = null;
+            counting = false;
+            closed++;
+        }
+
+        @Override
+        public void openSession(SessionConfig config) {
+            open = config;
+            counting = true;
+        }
+    }
+
+    private static MapExtras device(String address) {
+        return new MapExtras().put(SessionConfig.DEVICE_ADDRESS, address)
+                .put("LAUNCH_NANOS", 42L).put("AUTO_START", true);
+    }
+
+    @Test
+    public void notificationIntent_whileCounting_attachesToTheRunningSession() {
+        CounterTarget target = new CounterTarget();
+        SessionSwitch sessions = new SessionSwitch(target);
+        assertEquals(SessionSwitch.Action.OPEN,
+                sessions.apply(SessionConfig.read(device("AA:BB:CC:DD:EE:01").put(SessionConfig.DEBUG_OVERLAY, true))));
+        SessionConfig running = target.open;
+        assertTrue(target.counting);
+
+        // L'intent della notifica apre il rilevatore senza extra
+        SessionConfig fromNotification = SessionConfig.read(new MapExtras());
+        assertNull(fromNotification);
+        assertEquals(SessionSwitch.Action.ATTACH, sessions.apply(fromNotification));
+
+        assertTrue(target.counting);
+        assertEquals(0, target.closed);
+        assertSame(running, sessions.current());
+        assertTrue(sessions.current().isDebugOverlay());
+    }
+
+    @Test
+    public void sameExtras_keepTheSessionAndDifferentOnesReplaceIt() {
+        CounterTarget target = new CounterTarget();
+        SessionSwitch sessions = new SessionSwitch(target);
+        sessions.apply(SessionConfig.read(device("AA:BB:CC:DD:EE:01")));
+
+        // Activity ricreata o stesso dispositivo riaperto: gli extra di avvio non contano
+        assertEquals(SessionSwitch.Action.KEEP,
+                sessions.apply(SessionConfig.read(device("AA:BB:CC:DD:EE:01").put("LAUNCH_NANOS", 7L))));
+        assertEquals(0, target.closed);
+
+        assertEquals(SessionSwitch.Action.REPLACE,
+                sessions.apply(SessionConfig.read(device("AA:BB:CC:DD:EE:01").put(SessionConfig.RSSI_FILTER, "KALMAN"))));
+        assertEquals(1, target.closed);
+        assertEquals(RssiFilterType.KALMAN, target.open.getRssiFilter());
+        assertTrue(target.counting);
+    }
+
+    @Test
+    public void config_dedupesSourcesAndFallsBackToDefaults() {
+        SessionConfig config = SessionConfig.read(new MapExtras()
+                .put(SessionConfig.PASSIVE_MODE, true)
+                .put(SessionConfig.SOURCE_ADDRESSES, new String[]{"AA", "BB", "AA"})
+                .put(SessionConfig.RADIATION_CURVE, "nope"));
+
+        assertTrue(config.isPassiveMode());
+        assertEquals(Arrays.asList("AA", "BB"), config.getSourceAddresses());
+        assertEquals(RssiFilterType.MEDIAN, config.getRssiFilter());
+        assertEquals(RadiationCurveType.LINEAR, config.getRadiationCurve());
+        assertEquals(ReadingBus.WaitStrategy.BLOCKING, config.getBusWait());
+        assertEquals(Arrays.asList("CC"), SessionConfig.read(device("CC")).getSourceAddresses());
+    }
+}
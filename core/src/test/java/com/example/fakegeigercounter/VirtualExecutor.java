@@ -0,0 +1,70 @@
+package com.example.fakegeigercounter;
+
+import java.util.PriorityQueue;
+
+/**
+ * Executor simulato sul tempo di un VirtualClock: i task partono solo quando
+ * il tempo viene fatto avanzare con runUntil o runFor
+ */
+public class VirtualExecutor implements DelayedExecutor {
+    private static final class Task implements Comparable<Task> {
+        final long time;
+        final long sequence;
+        final Runnable runnable;
+
+        Task(long time, long sequence, Runnable runnable) {
+            this.time = time;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (time != other.time) return Long.compare(time, other.time);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final VirtualClock clock;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long sequence = 0;
+
+    public VirtualExecutor(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        queue.add(new Task(clock.nanoTime() + Math.max(0, delayMillis) * 1_000_000, sequence++, task));
+    }
+
+    @Override
+    public void removeCallbacks(Runnable task) {
+        queue.removeIf(t -> t.runnable == task);
+    }
+
+    /**
+     * Esegue in ordine tutti i task fino all'istante dato, poi porta l'orologio lì
+     */
+    public void runUntil(long nanos) {
+        Task next;
+        while ((next = queue.peek()) != null && next.time <= nanos) {
+            queue.poll();
+            clock.advanceTo(Math.max(clock.nanoTime(), next.time));
+            next.runnable.run();
+        }
+        if (nanos > clock.nanoTime()) clock.advanceTo(nanos);
+    }
+
+    public void runFor(long nanos) {
+        runUntil(clock.nanoTime() + nanos);
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+}
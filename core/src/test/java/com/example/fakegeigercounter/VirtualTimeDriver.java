@@ -0,0 +1,131 @@
+package com.example.fakegeigercounter;
+
+/**
+ * Riproduce uno storico RSSI attraverso RadiationCalculator e ClickSynthesizer
+ * in tempo simulato: ore di sessione vengono eseguite in pochi secondi. I click
+ * passano dallo stesso percorso del player (processo di Poisson, voci mixate nel
+ * PCM), renderizzati a bassa frequenza di campionamento in un MemoryPcmSink.
+ */
+public class VirtualTimeDriver {
+    // Basta per click fino a MAX_FREQ e tiene veloce il rendering di ore di audio
+    public static final int SAMPLE_RATE = 8000;
+    private static final int BLOCK_FRAMES = 1024;
+    private static final int MAX_VOICES = 16;
+
+    private final VirtualClock clock;
+    private final RadiationCalculator calculator;
+    private final ClickSynthesizer synthesizer;
+    // Tiene il primo secondo di audio, il resto viene solo contato
+    private final MemoryPcmSink sink = new MemoryPcmSink(SAMPLE_RATE, SAMPLE_RATE);
+    private final short[] buffer = new short[BLOCK_FRAMES];
+    private final long startNanos;
+
+    private long readings = 0;
+    private long missedReadings = 0;
+    private long radiationSum = 0;
+    private int maxRadiation = 0;
+
+    public VirtualTimeDriver(long seed) {
+        this.clock = new VirtualClock();
+        this.calculator = new RadiationCalculator(clock, new PulseEngine(seed));
+        this.synthesizer = new ClickSynthesizer(syntheticClick(), MAX_VOICES, BLOCK_FRAMES, new PulseEngine(seed + 1));
+        this.startNanos = clock.nanoTime();
+    }
+
+    /**
+     * Click di 5 ms con decadimento lineare
+     */
+    private static PcmClip syntheticClick() {
+        short[] samples = new short[SAMPLE_RATE / 200];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (8000 * (samples.length - i) / samples.length);
+        }
+        return new PcmClip(samples, SAMPLE_RATE);
+    }
+
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    public RadiationCalculator getCalculator() {
+        return calculator;
+    }
+
+    public ClickSynthesizer getSynthesizer() {
+        return synthesizer;
+    }
+
+    /**
+     * Esegue la simulazione per durationNanos (fine esclusa) leggendo l'RSSI ogni pollIntervalNanos
+     */
+    public void run(RssiSource source, long durationNanos, long pollIntervalNanos) {
+        long end = clock.nanoTime() + durationNanos;
+        long nextPoll = clock.nanoTime();
+
+        while (nextPoll < end) {
+            clock.advanceTo(nextPoll);
+            int rssi = source.rssiAt(nextPoll);
+            if (rssi == RssiSource.NO_READING) {
+                missedReadings++;
+            } else {
+                calculator.updateRssi(rssi);
+                readings++;
+            }
+
+            int radiation = calculator.calculateRadiation();
+            radiationSum += radiation;
+            maxRadiation = Math.max(maxRadiation, radiation);
+
+            // Come il player: nessun click a livello 0, altrimenti la frequenza della curva
+            synthesizer.setRate(radiation > 0 ? CurveTables.frequencyFor(radiation) : 0);
+            nextPoll += pollIntervalNanos;
+            renderUntil(Math.min(nextPoll, end));
+        }
+        clock.advanceTo(end);
+    }
+
+    /**
+     * Renderizza l'audio fino all'istante dato, in blocchi come il thread audio
+     */
+    private void renderUntil(long nanos) {
+        long target = (nanos - startNanos) * SAMPLE_RATE / 1_000_000_000L;
+        long position = synthesizer.getPosition();
+        while (position < target) {
+            int frames = (int) Math.min(BLOCK_FRAMES, target - position);
+            synthesizer.render(buffer, frames);
+            sink.write(buffer, frames);
+            position += frames;
+        }
+    }
+
+    public long getReadings() {
+        return readings;
+    }
+
+    public long getMissedReadings() {
+        return missedReadings;
+    }
+
+    public long getClicks() {
+        return synthesizer.getClicks();
+    }
+
+    /**
+     * Campioni audio renderizzati dall'inizio della simulazione
+     */
+    public long getFramesRendered() {
+        return sink.getFramesWritten();
+    }
+
+    public int getMaxRadiation() {
+        return maxRadiation;
+    }
+
+    /**
+     * Media delle radiazioni calcolate a ogni lettura (incluse quelle mancate)
+     */
+    public double getMeanRadiation() {
+        long samples = readings + missedReadings;
+        return samples == 0 ? 0 : radiationSum / (double) samples;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.fakegeigercounter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VirtualTimeDriverTest {
+    private static final long SECOND = 1_000_000_000L;
+    private static final long HOUR = 3600 * SECOND;
+
+    @Test
+    public void staleReadings_dropToZeroAfterMaxDelay() {
+        VirtualClock clock = new VirtualClock(123 * SECOND);
+        RadiationCalculator calculator = new RadiationCalculator(clock, new PulseEngine(1));
+
+        assertEquals(0, calculator.calculateRadiation());
+
+        calculator.updateRssi(-40);
+        assertEquals(500, calculator.calculateRadiation());
+
+        clock.advance(4 * SECOND);
+        assertEquals(500, calculator.calculateRadiation());
+
+        clock.advance(2 * SECOND);
+        assertEquals(0, calculator.calculateRadiation());
+    }
+
+    @Test
+    public void constantLevel_clickRateFollowsCurve() {
+        VirtualTimeDriver driver = new VirtualTimeDriver(5);
+        driver.run(nanos -> -40, HOUR, SECOND);
+
+        double expected = CurveTables.frequencyFor(500) * 3600;
+        assertEquals(1.0, driver.getClicks() / expected, 0.05);
+    }
+
+    @Test
+    public void eventDay_soakRunsInVirtualTime() {
+        // Partecipante che si avvicina e si allontana dalla sorgente ogni 10 minuti,
+        // con il 10% delle letture perse
+        RssiSource walking = nanos -> {
+            if ((nanos / SECOND) % 10 == 0) return RssiSource.NO_READING;
+            double phase = 2 * Math.PI * nanos / (600.0 * SECOND);
+            return (int) Math.round(-70 + 25 * Math.sin(phase));
+        };
+
+        VirtualTimeDriver driver = new VirtualTimeDriver(9);
+        long start = System.nanoTime();
+        driver.run(walking, 12 * HOUR, SECOND);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(12 * 3600, driver.getReadings() + driver.getMissedReadings());
+        assertEquals(12 * HOUR, driver.getClock().nanoTime());
+        assertEquals(12L * 3600 * VirtualTimeDriver.SAMPLE_RATE, driver.getFramesRendered());
+        assertTrue(driver.getClicks() > 0);
+        assertTrue(driver.getMaxRadiation() <= CurveTables.MAX_RAD);
+        assertTrue("soak took " + elapsed / 1_000_000 + " ms", elapsed < 5 * SECOND);
+    }
+}
@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "FakeGeigerCounter"
 include(":app")
+include(":core")
+include(":benchmark")
  
\ No newline at end of file